@@ -57,6 +57,8 @@ public class InfinityLib extends InfinityMod<IProxy, Config> {
         wrapper.registerMessage(MessageRenderUpdate.class);
         wrapper.registerMessage(MessageSetEntityDead.class);
         wrapper.registerMessage(MessageSyncTile.class);
+        wrapper.registerMessage(MessageRequestTileSync.class, RateLimit.perSecond(40, 128));
+        wrapper.registerMessage(MessageSyncDictionary.class);
         wrapper.registerMessage(MessagePlaySound.class);
         wrapper.registerMessage(MessageStopSound.class);
         Module.getActiveModules().stream().sorted().forEach(m -> m.registerMessages(wrapper));
@@ -308,10 +308,11 @@ public abstract class InfinityMod<P extends IProxyBase<C>, C extends Configurati
 
     /**
      * Used to register all of the mod's Recipe and/or Ingredient Serializers.
-     * The object returned by this should have a field for each of its Recipe and/or Ingredient Serializers
+     * Recipe Serializers are declared with recipe(...) and Ingredient Serializers with ingredient(...) in the registry
      *
      * Note: for this to work, the Recipe and/or Ingredient Serializers must implement IInfRecipeSerializer
      *       and IInfIngredientSerializer respectively.
+     *       Registries which declare no Ingredient Serializers are still scanned for fields holding them.
      *
      * @return IRecipeSerializer registry object or class
      */
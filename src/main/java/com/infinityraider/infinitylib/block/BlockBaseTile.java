@@ -3,6 +3,7 @@ package com.infinityraider.infinitylib.block;
 import com.infinityraider.infinitylib.block.tile.TileEntityBase;
 import net.minecraft.core.BlockPos;
 import net.minecraft.world.level.Level;
+import net.minecraft.world.level.block.Block;
 import net.minecraft.world.level.block.entity.BlockEntity;
 import net.minecraft.world.level.block.state.BlockState;
 
@@ -19,4 +20,14 @@ public abstract class BlockBaseTile<T extends TileEntityBase> extends BlockBase
         BlockEntity tile = world.getBlockEntity(pos);
         return tile != null && tile.triggerEvent(id, data);
     }
+
+    @Override
+    @SuppressWarnings("deprecation")
+    public void neighborChanged(BlockState state, Level world, BlockPos pos, Block block, BlockPos fromPos, boolean isMoving) {
+        super.neighborChanged(state, world, pos, block, fromPos, isMoving);
+        BlockEntity tile = world.getBlockEntity(pos);
+        if(tile instanceof TileEntityBase) {
+            ((TileEntityBase) tile).notifyNeighborChanged(fromPos);
+        }
+    }
 }
@@ -2,6 +2,7 @@ package com.infinityraider.infinitylib.block;
 
 import com.infinityraider.infinitylib.block.tile.IInfinityTileEntity;
 import com.infinityraider.infinitylib.block.tile.IInfinityTileEntityType;
+import com.infinityraider.infinitylib.block.tile.TileTickScheduler;
 import net.minecraft.core.BlockPos;
 import net.minecraft.world.level.Level;
 import net.minecraft.world.level.block.EntityBlock;
@@ -32,11 +33,7 @@ public interface IInfinityBlockWithTile<T extends BlockEntity & IInfinityTileEnt
     default <TE extends BlockEntity> BlockEntityTicker<TE> getTicker(Level level, BlockState state, BlockEntityType<TE> type) {
         if(type instanceof IInfinityTileEntityType) {
             if(((IInfinityTileEntityType) type).isTicking()) {
-                return (l, p, s, t) -> {
-                    if(t instanceof IInfinityTileEntity) {
-                        ((IInfinityTileEntity) t).tick();
-                    }
-                };
+                return (l, p, s, t) -> TileTickScheduler.getInstance().tick(l, p, t);
             }
         }
         return EntityBlock.super.getTicker(level, state, type);
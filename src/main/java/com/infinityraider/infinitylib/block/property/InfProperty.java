@@ -131,7 +131,7 @@ public class InfProperty<T extends Comparable<T>> {
         }
 
         public static InfProperty<DirectionalConnectivity> create(String name, DirectionalConnectivity defaultValue) {
-            return create(Properties.Connectivity.create(name), defaultValue);
+            return create(Properties.Connectivity.create(name), defaultValue, MirrorHandler.Handlers.connectivity(), RotationHandler.Handlers.connectivity());
         }
 
         public static <T extends Enum<T> & StringRepresentable> InfProperty<T> create(String name, Class<T> valueClass, T defaultValue) {
@@ -197,7 +197,7 @@ public class InfProperty<T extends Comparable<T>> {
 
             @Override
             public Optional<DirectionalConnectivity> getValue(String value) {
-                return Optional.empty();
+                return DirectionalConnectivity.fromString(value);
             }
         }
     }
@@ -1,5 +1,6 @@
 package com.infinityraider.infinitylib.block.property;
 
+import com.infinityraider.infinitylib.utility.DirectionalConnectivity;
 import net.minecraft.core.Direction;
 import net.minecraft.world.level.block.Mirror;
 
@@ -17,7 +18,12 @@ public interface MirrorHandler<T> {
             return DIRECTION;
         }
 
+        public static MirrorHandler<DirectionalConnectivity> connectivity() {
+            return CONNECTIVITY;
+        }
+
         private static final MirrorHandler<?> NO_OP = (mirror, value) -> value;
         private static final MirrorHandler<Direction> DIRECTION = Mirror::mirror;
+        private static final MirrorHandler<DirectionalConnectivity> CONNECTIVITY = (mirror, value) -> value.mirror(mirror);
     }
 }
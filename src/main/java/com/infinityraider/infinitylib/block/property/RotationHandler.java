@@ -1,5 +1,6 @@
 package com.infinityraider.infinitylib.block.property;
 
+import com.infinityraider.infinitylib.utility.DirectionalConnectivity;
 import net.minecraft.core.Direction;
 import net.minecraft.world.level.block.Rotation;
 
@@ -20,8 +21,13 @@ public interface RotationHandler<T> {
             return AXIS;
         }
 
+        public static RotationHandler<DirectionalConnectivity> connectivity() {
+            return CONNECTIVITY;
+        }
+
         private static final RotationHandler<?> NO_OP = (rotation, value) -> value;
         private static final RotationHandler<Direction> DIRECTION = Rotation::rotate;
+        private static final RotationHandler<DirectionalConnectivity> CONNECTIVITY = (rotation, value) -> value.rotate(rotation);
         private static final RotationHandler<Direction.Axis> AXIS = (rotation, value) -> {
             if(value.isVertical()) {
                 return value;
@@ -2,4 +2,21 @@ package com.infinityraider.infinitylib.block.tile;
 
 public interface IInfinityTileEntity {
     default void tick() {}
+
+    /**
+     * Ticking tiles are ticked through the TileTickScheduler, which can tick them at a lower rate.
+     * Tiles with the same interval are staggered by their position, so that their ticks are spread evenly over the interval.
+     *
+     * @return the number of game ticks between two calls to tick()
+     */
+    default int getTickInterval() {
+        return 1;
+    }
+
+    /**
+     * @return true if the tile is sleeping, sleeping tiles are not ticked until they are woken up
+     */
+    default boolean isSleeping() {
+        return false;
+    }
 }
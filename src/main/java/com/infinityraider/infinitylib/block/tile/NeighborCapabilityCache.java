@@ -0,0 +1,156 @@
+package com.infinityraider.infinitylib.block.tile;
+
+import com.google.common.collect.Maps;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.Direction;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.level.block.entity.BlockEntity;
+import net.minecraftforge.common.capabilities.Capability;
+import net.minecraftforge.common.util.LazyOptional;
+import net.minecraftforge.common.util.NonNullConsumer;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+
+/**
+ * Caches the capability handles of the neighbours of a tile, per Direction and Capability, so that repeated access to
+ * the neighbours does not look up their BlockEntity or call getCapability again.
+ *
+ * Handles are dropped when the neighbour invalidates them, and a direction is checked again when its neighbour changes,
+ * invalidates a handle or is removed. Checking only replaces the handles if the neighbouring BlockEntity has changed.
+ * Only present handles are cached, as empty handles are never invalidated.
+ */
+public class NeighborCapabilityCache {
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private final BlockEntity tile;
+    private final Neighbor[] neighbors;
+
+    public NeighborCapabilityCache(BlockEntity tile) {
+        this.tile = tile;
+        this.neighbors = new Neighbor[DIRECTIONS.length];
+        for(Direction dir : DIRECTIONS) {
+            this.neighbors[dir.get3DDataValue()] = new Neighbor(dir);
+        }
+    }
+
+    /**
+     * Fetches the capability of the neighbour in a direction, for the face of the neighbour which faces the tile
+     * @param dir the direction of the neighbour
+     * @param capability the capability
+     * @return the cached handle, empty if the neighbour does not have the capability or is not loaded
+     */
+    public <T> LazyOptional<T> get(Direction dir, Capability<T> capability) {
+        return this.neighbors[dir.get3DDataValue()].get(capability);
+    }
+
+    /**
+     * Marks a direction to be checked again on the next access, called when a neighbour changes
+     * @param neighbor the position of the neighbour
+     */
+    public void onNeighborChanged(BlockPos neighbor) {
+        BlockPos pos = this.tile.getBlockPos();
+        Direction dir = Direction.fromNormal(neighbor.getX() - pos.getX(), neighbor.getY() - pos.getY(), neighbor.getZ() - pos.getZ());
+        if(dir != null) {
+            this.neighbors[dir.get3DDataValue()].stale = true;
+        }
+    }
+
+    /**
+     * Drops all cached handles, called when the tile is loaded or removed
+     */
+    public void invalidate() {
+        for(Neighbor neighbor : this.neighbors) {
+            neighbor.clear();
+        }
+    }
+
+    private final class Neighbor {
+        private final Direction dir;
+        private final Map<Capability<?>, LazyOptional<?>> handles;
+
+        private BlockEntity neighbor;
+        private boolean resolved;
+        private boolean stale;
+
+        private Neighbor(Direction dir) {
+            this.dir = dir;
+            this.handles = Maps.newIdentityHashMap();
+        }
+
+        @SuppressWarnings("unchecked")
+        private <T> LazyOptional<T> get(Capability<T> capability) {
+            Level world = NeighborCapabilityCache.this.tile.getLevel();
+            if(world == null) {
+                return LazyOptional.empty();
+            }
+            if(!this.resolved || this.stale || (this.neighbor != null && this.neighbor.isRemoved())) {
+                BlockPos pos = NeighborCapabilityCache.this.tile.getBlockPos().relative(this.dir);
+                if(!world.isLoaded(pos)) {
+                    return LazyOptional.empty();
+                }
+                BlockEntity neighbor = world.getBlockEntity(pos);
+                if(!this.resolved || neighbor != this.neighbor) {
+                    this.handles.clear();
+                    this.neighbor = neighbor;
+                }
+                this.resolved = true;
+                this.stale = false;
+            }
+            LazyOptional<T> handle = (LazyOptional<T>) this.handles.get(capability);
+            if(handle == null) {
+                handle = this.resolve(capability);
+            }
+            return handle;
+        }
+
+        private <T> LazyOptional<T> resolve(Capability<T> capability) {
+            if(this.neighbor == null || this.neighbor.isRemoved()) {
+                return LazyOptional.empty();
+            }
+            LazyOptional<T> handle = this.neighbor.getCapability(capability, this.dir.getOpposite());
+            // Empty handles never signal invalidation, so only present handles are cached
+            if(handle.isPresent()) {
+                handle.addListener(new Listener<>(this, capability));
+                this.handles.put(capability, handle);
+            }
+            return handle;
+        }
+
+        private void onInvalidated(Capability<?> capability, LazyOptional<?> handle) {
+            if(this.handles.get(capability) == handle) {
+                this.handles.remove(capability);
+            }
+            // The neighbour may have been replaced or removed along with its handles
+            this.stale = true;
+        }
+
+        private void clear() {
+            this.handles.clear();
+            this.neighbor = null;
+            this.resolved = false;
+            this.stale = false;
+        }
+    }
+
+    /**
+     * Only weakly references the cache, as the neighbour holds on to its listeners until it invalidates its handles
+     */
+    private static final class Listener<T> implements NonNullConsumer<LazyOptional<T>> {
+        private final WeakReference<Neighbor> neighbor;
+        private final Capability<T> capability;
+
+        private Listener(Neighbor neighbor, Capability<T> capability) {
+            this.neighbor = new WeakReference<>(neighbor);
+            this.capability = capability;
+        }
+
+        @Override
+        public void accept(LazyOptional<T> handle) {
+            Neighbor neighbor = this.neighbor.get();
+            if(neighbor != null) {
+                neighbor.onInvalidated(this.capability, handle);
+            }
+        }
+    }
+}
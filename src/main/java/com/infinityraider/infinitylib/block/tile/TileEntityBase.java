@@ -4,33 +4,66 @@ import com.google.common.collect.Maps;
 import com.infinityraider.infinitylib.InfinityLib;
 import com.infinityraider.infinitylib.network.MessageAutoSyncTileField;
 import com.infinityraider.infinitylib.network.MessageRenderUpdate;
+import com.infinityraider.infinitylib.network.MessageRequestTileSync;
 import com.infinityraider.infinitylib.network.MessageSyncTile;
 import com.infinityraider.infinitylib.reference.Names;
+import com.infinityraider.infinitylib.utility.TileReferenceRegistry;
 import net.minecraft.core.BlockPos;
+import net.minecraft.core.Direction;
 import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.Tag;
 import net.minecraft.network.Connection;
 import net.minecraft.network.protocol.Packet;
 import net.minecraft.network.protocol.game.ClientGamePacketListener;
 import net.minecraft.network.protocol.game.ClientboundBlockEntityDataPacket;
+import net.minecraft.server.level.ServerPlayer;
 import net.minecraft.world.item.ItemStack;
 import net.minecraft.world.level.Level;
 import net.minecraft.world.level.block.entity.BlockEntity;
 import net.minecraft.world.level.block.entity.BlockEntityType;
 import net.minecraft.world.level.block.state.BlockState;
 import net.minecraft.world.level.chunk.ChunkAccess;
+import net.minecraftforge.common.capabilities.Capability;
+import net.minecraftforge.common.util.LazyOptional;
 import net.minecraftforge.fml.LogicalSide;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import java.util.function.*;
+import java.util.stream.Collectors;
 
 @SuppressWarnings("unused")
 public abstract class TileEntityBase extends BlockEntity implements IInfinityTileEntity {
     private static final Random RANDOM = new Random();
 
+    /** Every this many syncs, the full client sync tag is sent instead of only the changed keys */
+    private static final int FULL_SYNC_INTERVAL = 20;
+
+    /** Ticks after which an unanswered full sync request is sent again */
+    private static final int SYNC_REQUEST_TIMEOUT = 40;
+
     private final Map<Integer, AutoSyncedField<?>> syncedFields;
 
+    // Server side: the last client sync tag which was sent, deltas are computed against it
+    private CompoundTag lastSyncTag;
+    private int syncVersion;
+    private int syncsSinceFull;
+
+    // Client side: the received client sync tag, with all deltas applied
+    private CompoundTag clientSyncTag;
+    private int clientSyncVersion = -1;
+    private long syncRequestTime = -1;
+
+    // Tick scheduling
+    private boolean sleeping;
+    private boolean ticking;
+
+    // Capabilities of the neighbours, created on first access
+    private NeighborCapabilityCache neighborCapabilities;
+
     public TileEntityBase(BlockEntityType<?> type, BlockPos pos, BlockState state) {
         super(type, pos, state);
         this.syncedFields = Maps.newHashMap();
@@ -63,15 +96,118 @@ public abstract class TileEntityBase extends BlockEntity implements IInfinityTil
         return this.getLevel() != null && this.getLevel().isClientSide();
     }
 
+    @Override
+    public boolean isSleeping() {
+        return this.sleeping;
+    }
+
+    /**
+     * Stops ticking until the tile is woken up, which happens automatically on a neighbour update, when the tile is marked
+     * as changed (e.g. its inventory changed), or when one of its AutoSyncedFields is set, unless that happens from its own tick
+     */
+    public void sleep() {
+        this.sleeping = true;
+    }
+
+    public void wake() {
+        this.sleeping = false;
+    }
+
+    /**
+     * Called by BlockBaseTile when a neighbouring block changes
+     * @param fromPos the position of the neighbour
+     */
+    public final void notifyNeighborChanged(BlockPos fromPos) {
+        if(this.neighborCapabilities != null) {
+            this.neighborCapabilities.onNeighborChanged(fromPos);
+        }
+        this.onNeighborChanged(fromPos);
+    }
+
+    /**
+     * Called when a neighbouring block changes, wakes the tile by default
+     * @param fromPos the position of the neighbour
+     */
+    public void onNeighborChanged(BlockPos fromPos) {
+        this.onWakeCondition();
+    }
+
+    /**
+     * Fetches a capability of a neighbour through the cache of this tile, use this for neighbours which are accessed often
+     * @param dir the direction of the neighbour
+     * @param capability the capability
+     * @return the handle for the face of the neighbour which faces this tile
+     */
+    public <T> LazyOptional<T> getNeighborCapability(Direction dir, Capability<T> capability) {
+        if(this.neighborCapabilities == null) {
+            this.neighborCapabilities = new NeighborCapabilityCache(this);
+        }
+        return this.neighborCapabilities.get(dir, capability);
+    }
+
+    @Override
+    public void setChanged() {
+        super.setChanged();
+        this.onWakeCondition();
+    }
+
+    @Override
+    public void onLoad() {
+        super.onLoad();
+        if(this.neighborCapabilities != null) {
+            this.neighborCapabilities.invalidate();
+        }
+        TileReferenceRegistry.getInstance().onTileAdded(this);
+    }
+
+    @Override
+    public void setRemoved() {
+        super.setRemoved();
+        if(this.neighborCapabilities != null) {
+            this.neighborCapabilities.invalidate();
+        }
+        TileReferenceRegistry.getInstance().onTileRemoved(this);
+    }
+
+    private void onWakeCondition() {
+        // Changes made by the tile itself while ticking should not wake it up
+        if(!this.ticking) {
+            this.wake();
+        }
+    }
+
+    void setTicking(boolean ticking) {
+        this.ticking = ticking;
+    }
+
     @Override
     public Packet<ClientGamePacketListener> getUpdatePacket() {
         return ClientboundBlockEntityDataPacket.create(this);
     }
 
+    /**
+     * The update tag is the base of the delta syncs along with its version, so clients can apply the following deltas
+     */
     @Nonnull
     @Override
     public CompoundTag getUpdateTag() {
-        return this.saveWithFullMetadata();
+        if(this.getLevel() == null || this.getLevel().isClientSide()) {
+            return this.getClientSyncTag();
+        }
+        CompoundTag tag = this.getSyncBase().copy();
+        tag.putInt(Names.NBT.VERSION, this.getSyncVersion());
+        return tag;
+    }
+
+    @Override
+    public void handleUpdateTag(CompoundTag tag) {
+        CompoundTag data = tag.copy();
+        data.remove(Names.NBT.VERSION);
+        this.clientSyncTag = data;
+        this.clientSyncVersion = tag.contains(Names.NBT.VERSION, Tag.TAG_INT) ? tag.getInt(Names.NBT.VERSION) : -1;
+        this.syncRequestTime = -1;
+        this.readSyncedFields(data);
+        this.readClientNBT(data);
     }
 
     //read data from packet
@@ -83,7 +219,7 @@ public abstract class TileEntityBase extends BlockEntity implements IInfinityTil
         CompoundTag tag = pkt.getTag();
         if(tag != null) {
             BlockState before = this.getBlockState();
-            this.load(tag);
+            this.handleUpdateTag(tag);
             BlockState after = this.getLevel().getBlockState(pkt.getPos());
             if (!after.equals(before)) {
                 this.getLevel().setBlocksDirty(pkt.getPos(), before, after);
@@ -95,21 +231,14 @@ public abstract class TileEntityBase extends BlockEntity implements IInfinityTil
     @Override
     public final void saveAdditional(@Nonnull CompoundTag tag) {
         super.saveAdditional(tag);
-        // Order shouldn't matter here
-        this.syncedFields.values().forEach(field -> tag.put(Names.NBT.FIELD + "_" + field.getId(), field.serialize()));
+        this.writeSyncedFields(tag);
         this.writeTileNBT(tag);
     }
 
     @Override
     public final void load(@Nonnull CompoundTag tag) {
         super.load(tag);
-        // Again, order doesn't matter
-        this.syncedFields.values().forEach(field -> {
-            String key = Names.NBT.FIELD + "_" + field.getId();
-            if(tag.contains(key)) {
-                field.deserialize(tag.getCompound(key));
-            }
-        });
+        this.readSyncedFields(tag);
         this.readTileNBT(tag);
     }
 
@@ -117,6 +246,131 @@ public abstract class TileEntityBase extends BlockEntity implements IInfinityTil
 
     protected abstract void readTileNBT(@Nonnull CompoundTag tag);
 
+    /**
+     * Writes the data which is needed on the client, used to sync the tile instead of the full tag which is saved to disk.
+     * Defaults to all data which is saved to disk, override to leave out server only data.
+     */
+    protected void writeClientNBT(@Nonnull CompoundTag tag) {
+        this.writeTileNBT(tag);
+    }
+
+    /**
+     * Reads the data written by writeClientNBT on the client, called with the full client sync tag, also after a delta sync
+     */
+    protected void readClientNBT(@Nonnull CompoundTag tag) {
+        this.readTileNBT(tag);
+    }
+
+    /**
+     * @return a tag with all data which is needed on the client, without metadata
+     */
+    public final CompoundTag getClientSyncTag() {
+        CompoundTag tag = new CompoundTag();
+        this.writeSyncedFields(tag);
+        this.writeClientNBT(tag);
+        return tag;
+    }
+
+    /**
+     * Packed fields are written to a single long array: a header with a bit set for each packed field id,
+     * followed by the values of those fields in order of their id. Other fields are written to their own compound.
+     * Override to disable packing, the packed layout is always read.
+     *
+     * @return true to write packable fields in the packed layout
+     */
+    protected boolean usePackedFields() {
+        return true;
+    }
+
+    private void writeSyncedFields(CompoundTag tag) {
+        boolean pack = this.usePackedFields();
+        long header = 0;
+        int count = 0;
+        for(AutoSyncedField<?> field : this.syncedFields.values()) {
+            if(pack && field.isPackable()) {
+                header |= 1L << field.getId();
+                count++;
+            } else {
+                tag.put(field.getKey(), field.serialize());
+            }
+        }
+        if(count > 0) {
+            long[] packed = new long[count + 1];
+            packed[0] = header;
+            int index = 1;
+            for(int id = 0; id < Long.SIZE; id++) {
+                if((header & (1L << id)) != 0) {
+                    packed[index++] = this.syncedFields.get(id).pack();
+                }
+            }
+            tag.putLongArray(Names.NBT.PACKED_FIELDS, packed);
+        }
+    }
+
+    private void readSyncedFields(CompoundTag tag) {
+        if(tag.contains(Names.NBT.PACKED_FIELDS, Tag.TAG_LONG_ARRAY)) {
+            long[] packed = tag.getLongArray(Names.NBT.PACKED_FIELDS);
+            if(packed.length > 0) {
+                long header = packed[0];
+                int index = 1;
+                for(int id = 0; id < Long.SIZE && index < packed.length; id++) {
+                    if((header & (1L << id)) != 0) {
+                        AutoSyncedField<?> field = this.syncedFields.get(id);
+                        if(field != null && field.isPackable()) {
+                            field.unpack(packed[index]);
+                        }
+                        index++;
+                    }
+                }
+            }
+        }
+        // Legacy layout, and fields which can not be packed
+        this.syncedFields.values().forEach(field -> {
+            if(tag.contains(field.getKey())) {
+                field.deserialize(tag.getCompound(field.getKey()));
+            }
+        });
+    }
+
+    /**
+     * Applies a sync from the server on the client, called by MessageSyncTile
+     * @return false if the sync is a delta which could not be applied because the sync it is based on is missing
+     */
+    public final boolean onClientSync(boolean full, int baseVersion, int version, CompoundTag tag, String[] removed) {
+        if(full) {
+            this.clientSyncTag = tag;
+            this.syncRequestTime = -1;
+            this.readSyncedFields(tag);
+        } else {
+            if(this.clientSyncTag == null || this.clientSyncVersion != baseVersion) {
+                this.requestFullSync();
+                return false;
+            }
+            for(String key : removed) {
+                this.clientSyncTag.remove(key);
+            }
+            for(String key : tag.getAllKeys()) {
+                this.clientSyncTag.put(key, tag.get(key));
+            }
+            // Synced fields might have been updated in between, only read those which changed
+            this.readSyncedFields(tag);
+        }
+        this.clientSyncVersion = version;
+        this.readClientNBT(this.clientSyncTag);
+        return true;
+    }
+
+    /**
+     * Requests are rate limited by the server, so a request which is not answered is repeated after a timeout
+     */
+    private void requestFullSync() {
+        long time = this.getLevel() == null ? 0 : this.getLevel().getGameTime();
+        if(this.syncRequestTime < 0 || time - this.syncRequestTime >= SYNC_REQUEST_TIMEOUT || time < this.syncRequestTime) {
+            this.syncRequestTime = time;
+            new MessageRequestTileSync(this.getBlockPos()).sendToServer();
+        }
+    }
+
     public void markForUpdateAndNotify() {
         if(this.getLevel() != null) {
             BlockState state = this.getBlockState();
@@ -132,8 +386,73 @@ public abstract class TileEntityBase extends BlockEntity implements IInfinityTil
     public void syncToClient(boolean renderUpdate) {
         Level world = this.getLevel();
         if(world != null && !this.getLevel().isClientSide()) {
-            new MessageSyncTile(this, renderUpdate).sendToAllAround(this.getLevel(), this.xCoord(), this.yCoord(), this.zCoord(), 128);
+            MessageSyncTile message = this.createSyncMessage(renderUpdate);
+            if(message != null) {
+                message.sendToAllAround(this.getLevel(), this.xCoord(), this.yCoord(), this.zCoord(), 128);
+            }
+        }
+    }
+
+    /**
+     * Sends a full sync to a single player, based on the last sync which was sent to all players, so following deltas apply
+     */
+    public void syncToClient(ServerPlayer player) {
+        if(this.getLevel() != null && !this.getLevel().isClientSide()) {
+            CompoundTag tag = this.lastSyncTag == null ? this.getClientSyncTag() : this.lastSyncTag;
+            MessageSyncTile.full(this, tag, this.syncVersion, false).sendTo(player);
+        }
+    }
+
+    /**
+     * Fetches the tag on which the following delta syncs are based, which is advanced to the current client sync tag
+     * if that has changed since the last sync. Clients which receive it in full can apply the following deltas.
+     * @return the base tag, must not be modified
+     */
+    public final CompoundTag getSyncBase() {
+        CompoundTag tag = this.getClientSyncTag();
+        if(this.lastSyncTag == null || !tag.equals(this.lastSyncTag)) {
+            if(this.lastSyncTag != null) {
+                // Clients which did not receive the new base can not apply the next delta, make it a full sync instead
+                this.syncsSinceFull = FULL_SYNC_INTERVAL;
+            }
+            this.lastSyncTag = tag;
+            this.syncVersion++;
+        }
+        return this.lastSyncTag;
+    }
+
+    /**
+     * @return the version of the sync base
+     */
+    public final int getSyncVersion() {
+        return this.syncVersion;
+    }
+
+    @Nullable
+    private MessageSyncTile createSyncMessage(boolean renderUpdate) {
+        CompoundTag tag = this.getClientSyncTag();
+        int baseVersion = this.syncVersion;
+        if(this.lastSyncTag == null || this.syncsSinceFull >= FULL_SYNC_INTERVAL) {
+            this.lastSyncTag = tag;
+            this.syncVersion++;
+            this.syncsSinceFull = 0;
+            return MessageSyncTile.full(this, tag, this.syncVersion, renderUpdate);
+        }
+        CompoundTag changed = new CompoundTag();
+        for(String key : tag.getAllKeys()) {
+            Tag value = tag.get(key);
+            if(value != null && !value.equals(this.lastSyncTag.get(key))) {
+                changed.put(key, value);
+            }
+        }
+        List<String> removed = this.lastSyncTag.getAllKeys().stream().filter(key -> !tag.contains(key)).collect(Collectors.toList());
+        if(changed.isEmpty() && removed.isEmpty() && !renderUpdate) {
+            return null;
         }
+        this.lastSyncTag = tag;
+        this.syncVersion++;
+        this.syncsSinceFull++;
+        return MessageSyncTile.delta(this, changed, removed.toArray(new String[0]), baseVersion, this.syncVersion, renderUpdate);
     }
 
     public void forceRenderUpdate() {
@@ -202,7 +521,7 @@ public abstract class TileEntityBase extends BlockEntity implements IInfinityTil
                 value, this,
                 (b, tag) -> tag.putBoolean(Names.NBT.VALUE, b),
                 (tag) -> tag.contains(Names.NBT.VALUE) ? tag.getBoolean(Names.NBT.VALUE) : value
-        );
+        ).withPacking(b -> b ? 1 : 0, l -> l != 0);
     }
 
     public AutoSyncedFieldBuilder<Integer> getAutoSyncedFieldBuilder(int value) {
@@ -210,7 +529,7 @@ public abstract class TileEntityBase extends BlockEntity implements IInfinityTil
                 value, this,
                 (i, tag) -> tag.putInt(Names.NBT.VALUE, i),
                 (tag) -> tag.contains(Names.NBT.VALUE) ? tag.getInt(Names.NBT.VALUE) : value
-        );
+        ).withPacking(i -> i, l -> (int) l);
     }
 
     public AutoSyncedFieldBuilder<Float> getAutoSyncedFieldBuilder(float value) {
@@ -218,7 +537,7 @@ public abstract class TileEntityBase extends BlockEntity implements IInfinityTil
                 value, this,
                 (f, tag) -> tag.putFloat(Names.NBT.VALUE, f),
                 (tag) -> tag.contains(Names.NBT.VALUE) ? tag.getFloat(Names.NBT.VALUE) : value
-        );
+        ).withPacking(Float::floatToIntBits, l -> Float.intBitsToFloat((int) l));
     }
 
     public AutoSyncedFieldBuilder<Double> getAutoSyncedFieldBuilder(double value) {
@@ -226,7 +545,7 @@ public abstract class TileEntityBase extends BlockEntity implements IInfinityTil
                 value, this,
                 (d, tag) -> tag.putDouble(Names.NBT.VALUE, d),
                 (tag) -> tag.contains(Names.NBT.VALUE) ? tag.getDouble(Names.NBT.VALUE) : value
-        );
+        ).withPacking(Double::doubleToLongBits, Double::longBitsToDouble);
     }
 
     public AutoSyncedFieldBuilder<String> getAutoSyncedFieldBuilder(String value) {
@@ -272,6 +591,10 @@ public abstract class TileEntityBase extends BlockEntity implements IInfinityTil
         // Render update
         private Predicate<F> renderUpdateChecker;
 
+        // Packing
+        private ToLongFunction<F> packer;
+        private LongFunction<F> unpacker;
+
         // Delay
         private boolean delayed;
         private BooleanSupplier delayedCheck;
@@ -303,6 +626,17 @@ public abstract class TileEntityBase extends BlockEntity implements IInfinityTil
             return this;
         }
 
+        /**
+         * Allows the field to be saved in the packed layout, as a single long, instead of its own compound
+         * @param packer converts the value to a long
+         * @param unpacker converts the long back to the value
+         */
+        public AutoSyncedFieldBuilder<F> withPacking(ToLongFunction<F> packer, LongFunction<F> unpacker) {
+            this.packer = packer;
+            this.unpacker = unpacker;
+            return this;
+        }
+
         public AutoSyncedFieldBuilder<F> withDelay(BooleanSupplier isReady, F tempValue) {
             this.delayed = true;
             this.delayedCheck = isReady;
@@ -318,7 +652,8 @@ public abstract class TileEntityBase extends BlockEntity implements IInfinityTil
                 );
             }
             return new AutoSyncedField<>(
-                    this.value, this.tile, this.serializer, this.deserializer, this.callback, this.renderUpdateChecker);
+                    this.value, this.tile, this.serializer, this.deserializer, this.callback, this.renderUpdateChecker,
+                    this.packer, this.unpacker);
         }
 
     }
@@ -327,6 +662,7 @@ public abstract class TileEntityBase extends BlockEntity implements IInfinityTil
         private F value;
 
         private final int id;
+        private final String key;
         private final TileEntityBase tile;
         private final LogicalSide side;
 
@@ -336,12 +672,16 @@ public abstract class TileEntityBase extends BlockEntity implements IInfinityTil
         private final Consumer<F> callback;
         private final Predicate<F> renderUpdateChecker;
 
+        private final ToLongFunction<F> packer;
+        private final LongFunction<F> unpacker;
+
         private AutoSyncedField(
                 F value, TileEntityBase tile, BiConsumer<F, CompoundTag> serializer, Function<CompoundTag, F> deserializer,
-                Consumer<F> callback, Predicate<F> renderUpdateChecker) {
+                Consumer<F> callback, Predicate<F> renderUpdateChecker, ToLongFunction<F> packer, LongFunction<F> unpacker) {
 
             this.value = value;
             this.id = tile.syncedFields.size();
+            this.key = Names.NBT.FIELD + "_" + this.id;
             tile.syncedFields.put(this.getId(), this);
             this.tile = tile;
             this.side = InfinityLib.instance.proxy().getLogicalSide();
@@ -349,6 +689,8 @@ public abstract class TileEntityBase extends BlockEntity implements IInfinityTil
             this.deserializer = deserializer;
             this.callback = callback;
             this.renderUpdateChecker = renderUpdateChecker;
+            this.packer = packer;
+            this.unpacker = unpacker;
         }
 
         public void set(F value) {
@@ -366,6 +708,7 @@ public abstract class TileEntityBase extends BlockEntity implements IInfinityTil
             }
             this.value = value;
             this.callback.accept(value);
+            this.getTile().onWakeCondition();
             if(this.getSide().isClient() && this.renderUpdateChecker.test(value)) {
                 this.getTile().forceRenderUpdate();
             }
@@ -379,6 +722,13 @@ public abstract class TileEntityBase extends BlockEntity implements IInfinityTil
             return this.id;
         }
 
+        /**
+         * @return the key under which this field is saved in the legacy layout
+         */
+        public String getKey() {
+            return this.key;
+        }
+
         public TileEntityBase getTile() {
             return this.tile;
         }
@@ -397,6 +747,18 @@ public abstract class TileEntityBase extends BlockEntity implements IInfinityTil
             this.setInternal(this.deserializer.apply(tag));
         }
 
+        public boolean isPackable() {
+            return this.packer != null && this.unpacker != null && this.getId() < Long.SIZE;
+        }
+
+        public long pack() {
+            return this.packer.applyAsLong(this.get());
+        }
+
+        public void unpack(long value) {
+            this.setInternal(this.unpacker.apply(value));
+        }
+
         protected void sync() {
             new MessageAutoSyncTileField<>(this).sendToAll();
         }
@@ -410,7 +772,8 @@ public abstract class TileEntityBase extends BlockEntity implements IInfinityTil
 
         private AutoSyncedFieldDelayed(F value, TileEntityBase tile, BiConsumer<F, CompoundTag> serializer, Function<CompoundTag, F> deserializer,
                                        Consumer<F> callback, Predicate<F> renderUpdateChecker, BooleanSupplier checker, F fallback) {
-            super(value, tile, serializer, deserializer, callback, renderUpdateChecker);
+            // Delayed fields keep their data as a compound until they are ready, and are therefore never packed
+            super(value, tile, serializer, deserializer, callback, renderUpdateChecker, null, null);
             this.checker = checker;
             this.fallback = fallback;
         }
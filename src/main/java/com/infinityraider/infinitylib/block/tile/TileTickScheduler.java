@@ -0,0 +1,148 @@
+package com.infinityraider.infinitylib.block.tile;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import com.infinityraider.infinitylib.InfinityLib;
+import com.infinityraider.infinitylib.config.Config;
+import it.unimi.dsi.fastutil.HashCommon;
+import net.minecraft.core.BlockPos;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.level.block.entity.BlockEntity;
+import net.minecraft.world.level.block.entity.BlockEntityType;
+
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Ticks IInfinityTileEntities: skips sleeping tiles, applies tick intervals staggered by position,
+ * and keeps track of the time spent ticking per tile type.
+ */
+public final class TileTickScheduler {
+    private static final TileTickScheduler INSTANCE = new TileTickScheduler();
+
+    public static TileTickScheduler getInstance() {
+        return INSTANCE;
+    }
+
+    private final Map<BlockEntityType<?>, Statistics> statistics;
+    /** Null to follow the debug setting of the config */
+    private volatile Boolean profiling;
+
+    private TileTickScheduler() {
+        this.statistics = Maps.newConcurrentMap();
+    }
+
+    /**
+     * Called by the BlockEntityTicker of ticking IInfinityBlockWithTiles every game tick
+     * @param level the level
+     * @param pos the position of the tile
+     * @param tile the tile
+     */
+    public void tick(Level level, BlockPos pos, BlockEntity tile) {
+        if(!(tile instanceof IInfinityTileEntity)) {
+            return;
+        }
+        IInfinityTileEntity ticking = (IInfinityTileEntity) tile;
+        if(ticking.isSleeping() || !isTickDue(level.getGameTime(), pos, ticking.getTickInterval())) {
+            return;
+        }
+        TileEntityBase base = tile instanceof TileEntityBase ? (TileEntityBase) tile : null;
+        if(base != null) {
+            base.setTicking(true);
+        }
+        boolean profiling = this.isProfiling();
+        long start = profiling ? System.nanoTime() : 0;
+        try {
+            ticking.tick();
+        } finally {
+            if(base != null) {
+                base.setTicking(false);
+            }
+            if(profiling) {
+                this.getStatistics(tile.getType()).record(System.nanoTime() - start);
+            }
+        }
+    }
+
+    /**
+     * Checks if a tile with a tick interval is due to tick, the offset within the interval is derived from the position
+     * @param gameTime the current game time
+     * @param pos the position of the tile
+     * @param interval the tick interval
+     * @return true if the tile should tick
+     */
+    public static boolean isTickDue(long gameTime, BlockPos pos, int interval) {
+        return interval <= 1 || Math.floorMod(gameTime + getStagger(pos), interval) == 0;
+    }
+
+    /**
+     * @param pos a position
+     * @return a well distributed, non-negative offset for the position
+     */
+    public static int getStagger(BlockPos pos) {
+        return HashCommon.mix(Long.hashCode(pos.asLong())) & Integer.MAX_VALUE;
+    }
+
+    /**
+     * @return true if the time spent ticking is recorded, by default only in debug mode
+     */
+    public boolean isProfiling() {
+        Boolean profiling = this.profiling;
+        if(profiling != null) {
+            return profiling;
+        }
+        Config config = InfinityLib.instance.getConfig();
+        return config != null && config.debug();
+    }
+
+    /**
+     * Overrides the debug setting of the config for profiling
+     * @param profiling if the time spent ticking should be recorded
+     */
+    public void setProfiling(boolean profiling) {
+        this.profiling = profiling;
+    }
+
+    /**
+     * @return the tick statistics of all tile types which have been ticked so far
+     */
+    public Map<BlockEntityType<?>, Statistics> getStatistics() {
+        return ImmutableMap.copyOf(this.statistics);
+    }
+
+    public Statistics getStatistics(BlockEntityType<?> type) {
+        return this.statistics.computeIfAbsent(type, t -> new Statistics());
+    }
+
+    public void resetStatistics() {
+        this.statistics.clear();
+    }
+
+    public static final class Statistics {
+        private final LongAdder ticks;
+        private final LongAdder nanos;
+
+        private Statistics() {
+            this.ticks = new LongAdder();
+            this.nanos = new LongAdder();
+        }
+
+        private void record(long nanos) {
+            this.ticks.increment();
+            this.nanos.add(nanos);
+        }
+
+        public long getTickCount() {
+            return this.ticks.sum();
+        }
+
+        public long getTotalNanos() {
+            return this.nanos.sum();
+        }
+
+        public double getAverageNanos() {
+            long ticks = this.getTickCount();
+            return ticks == 0 ? 0 : ((double) this.getTotalNanos()) / ticks;
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.infinityraider.infinitylib.compat.jei;
 
 import com.infinityraider.infinitylib.InfinityLib;
 import com.infinityraider.infinitylib.crafting.dynamictexture.IDynamicTextureIngredient;
+import com.infinityraider.infinitylib.crafting.dynamictexture.MaterialVariantCatalog;
 import com.infinityraider.infinitylib.crafting.dynamictexture.ShapedDynamicTextureRecipe;
 import com.infinityraider.infinitylib.item.BlockItemDynamicTexture;
 import mezz.jei.api.IModPlugin;
@@ -16,17 +17,22 @@ import mezz.jei.api.recipe.category.extensions.IExtendableRecipeCategory;
 import mezz.jei.api.recipe.category.extensions.vanilla.crafting.ICraftingCategoryExtension;
 import mezz.jei.api.registration.ISubtypeRegistration;
 import mezz.jei.api.registration.IVanillaCategoryExtensionRegistration;
+import mezz.jei.api.runtime.IJeiRuntime;
 import net.minecraft.MethodsReturnNonnullByDefault;
+import net.minecraft.client.Minecraft;
 import net.minecraft.resources.ResourceLocation;
 import net.minecraft.world.item.ItemStack;
 import net.minecraft.world.item.crafting.CraftingRecipe;
+import net.minecraft.world.item.crafting.RecipeType;
 import net.minecraftforge.api.distmarker.Dist;
 import net.minecraftforge.api.distmarker.OnlyIn;
 
+import javax.annotation.Nullable;
 import javax.annotation.ParametersAreNonnullByDefault;
 import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 @mezz.jei.api.JeiPlugin
@@ -59,6 +65,19 @@ public class JeiPlugin implements IModPlugin {
         }));
     }
 
+    @Override
+    public void onRuntimeAvailable(IJeiRuntime runtime) {
+        // Tags and recipes are available: build the material variants for the dynamic texture recipes in the background
+        if(Minecraft.getInstance().level == null) {
+            return;
+        }
+        List<ShapedDynamicTextureRecipe> recipes = Minecraft.getInstance().level.getRecipeManager().getAllRecipesFor(RecipeType.CRAFTING).stream()
+                .filter(recipe -> recipe instanceof ShapedDynamicTextureRecipe)
+                .map(recipe -> (ShapedDynamicTextureRecipe) recipe)
+                .collect(Collectors.toList());
+        CompletableFuture.runAsync(() -> MaterialVariantCatalog.getInstance().prepare(recipes));
+    }
+
     private static final class DynamicTextureRecipeExtension implements ICraftingCategoryExtension {
         private final ShapedDynamicTextureRecipe recipe;
 
@@ -68,6 +87,10 @@ public class JeiPlugin implements IModPlugin {
 
         @Override
         public void setRecipe(IRecipeLayoutBuilder builder, ICraftingGridHelper craftingGridHelper, IFocusGroup focuses) {
+            MaterialVariantCatalog.Variants materials = this.recipe.getMaterialVariants().orElse(null);
+            if(materials == null) {
+                return;
+            }
             // Fetch materials
             List<ItemStack> inputs = focuses.getFocuses(VanillaTypes.ITEM, RecipeIngredientRole.INPUT)
                     .map(IFocus::getTypedValue)
@@ -81,12 +104,10 @@ public class JeiPlugin implements IModPlugin {
                     })
                     // make sure the stack is not empty
                     .filter(stack -> !stack.isEmpty())
-                    // make sure the stack contains a valid item
-                    .filter(stack -> this.recipe.getSuitableMaterials().stream().anyMatch(block -> stack.getItem() == block.asItem()))
-                    // make a copy of the stack
-                    .map(ItemStack::copy)
-                    // set the stack count to 1
-                    .peek(stack -> stack.setCount(1))
+                    // look up the shared material stack, this also makes sure the stack contains a valid item
+                    .map(materials::get)
+                    .filter(Objects::nonNull)
+                    .distinct()
                     .collect(Collectors.toList());
             List<ItemStack> outputs = focuses.getFocuses(VanillaTypes.ITEM, RecipeIngredientRole.OUTPUT)
                     // fetch value from focus
@@ -95,12 +116,12 @@ public class JeiPlugin implements IModPlugin {
                     .map(ITypedIngredient::getIngredient)
                     // make sure the output is a dynamic texture block
                     .filter(stack -> stack.getItem() instanceof BlockItemDynamicTexture)
-                    // set the material
+                    // fetch the material
                     .map(stack -> ((BlockItemDynamicTexture) stack.getItem()).getMaterial(stack))
-                    // make a copy of the stack
-                    .map(ItemStack::copy)
-                    // set the stack count to 1
-                    .peek(stack -> stack.setCount(1))
+                    // look up the shared material stack
+                    .map(materials::get)
+                    .filter(Objects::nonNull)
+                    .distinct()
                     .collect(Collectors.toList());
             // Set recipe based on inputs
             if(inputs.size() > 0) {
@@ -108,14 +129,15 @@ public class JeiPlugin implements IModPlugin {
             } else if (outputs.size() > 0) {
                 this.setRecipeForMaterials(builder, craftingGridHelper, outputs);
             } else {
-                List<ItemStack> materials = this.recipe.getSuitableMaterials().stream()
-                        .map(ItemStack::new)
-                        .collect(Collectors.toList());
-                this.setRecipeForMaterials(builder, craftingGridHelper, materials);
+                this.setRecipeForMaterials(builder, craftingGridHelper, null);
             }
         }
 
-        protected void setRecipeForMaterials(IRecipeLayoutBuilder builder, ICraftingGridHelper craftingGridHelper, List<ItemStack> materials) {
+        /**
+         * Sets the recipe, the stacks are taken from the shared variant catalog rather than being rebuilt
+         * @param materials the focused materials, or null for all materials
+         */
+        protected void setRecipeForMaterials(IRecipeLayoutBuilder builder, ICraftingGridHelper craftingGridHelper, @Nullable List<ItemStack> materials) {
             // Set inputs
             List<ItemStack> empty = Collections.emptyList();
             List<List<ItemStack>> ingredients = this.recipe.getIngredients().stream().map(ingredient -> {
@@ -124,11 +146,11 @@ public class JeiPlugin implements IModPlugin {
                     return empty;
                 } else if (ingredient instanceof IDynamicTextureIngredient) {
                     // if the ingredient is a dynamic texture ingredient, set it to the correct material
-                    return materials.stream().map(((IDynamicTextureIngredient) ingredient)::asStackWithMaterial)
-                            .collect(Collectors.toList());
+                    MaterialVariantCatalog.Variants variants = ((IDynamicTextureIngredient) ingredient).getVariants();
+                    return materials == null ? variants.getStacks() : variants.get(materials);
                 } else {
                     // in any other case, the ingredient is the material itself
-                    return materials;
+                    return materials == null ? this.recipe.getMaterialVariants().map(MaterialVariantCatalog.Variants::getStacks).orElse(empty) : materials;
                 }
             }).collect(Collectors.toList());
             craftingGridHelper.setInputs(
@@ -139,11 +161,14 @@ public class JeiPlugin implements IModPlugin {
                     this.recipe.getRecipeHeight()
             );
             // Set outputs
-            craftingGridHelper.setOutputs(
-                    builder,
-                    VanillaTypes.ITEM,
-                    materials.stream().map(this.recipe::getResultWithMaterial).collect(Collectors.toList())
-            );
+            MaterialVariantCatalog.Variants results = this.recipe.getResultVariants().orElse(null);
+            if(results != null) {
+                craftingGridHelper.setOutputs(
+                        builder,
+                        VanillaTypes.ITEM,
+                        materials == null ? results.getStacks() : results.get(materials)
+                );
+            }
         }
 
         @Override
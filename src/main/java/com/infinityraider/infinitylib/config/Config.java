@@ -1,8 +1,11 @@
 package com.infinityraider.infinitylib.config;
 
+import com.google.common.collect.ImmutableList;
 import net.minecraftforge.common.ForgeConfigSpec;
 import net.minecraftforge.fml.config.ModConfig;
 
+import java.util.List;
+
 public abstract class Config implements ConfigurationHandler.SidedModConfig {
 
     private Config() {}
@@ -12,18 +15,28 @@ public abstract class Config implements ConfigurationHandler.SidedModConfig {
     public static class Common extends Config {
         public final ForgeConfigSpec.BooleanValue debug;
 
+        public final ConfigSnapshot<Snapshot> snapshot;
+
         public Common(ForgeConfigSpec.Builder builder) {
             builder.push("Debug");
             this.debug = builder.comment("Set to true if you wish to enable debug mode.")
                     .define("debug", false);
             builder.pop();
+            this.snapshot = new ConfigSnapshot<>(new Snapshot(false), () -> new Snapshot(this.debug.get()));
         }
 
         @Override
         public boolean debug() {
-            return this.debug.get();
+            return this.snapshot.get().debug();
+        }
+
+        @Override
+        public List<ConfigSnapshot<?>> getSnapshots() {
+            return ImmutableList.of(this.snapshot);
         }
 
+        public record Snapshot(boolean debug) {}
+
         @Override
         public ModConfig.Type getSide() {
             return ModConfig.Type.COMMON;
@@ -0,0 +1,55 @@
+package com.infinityraider.infinitylib.config;
+
+import com.google.common.collect.Lists;
+
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Immutable copy of config values, e.g. a record of primitives, which is rebuilt when the config is loaded or reloaded.
+ * Reading config values through a snapshot avoids the lookup and conversion of ForgeConfigSpec values on hot paths.
+ *
+ * Snapshots must be returned by SidedModConfig.getSnapshots() to be refreshed by the ConfigurationHandler.
+ * Note that configs are reloaded from the config file watcher thread.
+ * @param <S> the type of the snapshot, should implement equals
+ */
+public final class ConfigSnapshot<S> {
+    private final Supplier<S> factory;
+    private final List<BiConsumer<S, S>> listeners;
+
+    private volatile S value;
+
+    /**
+     * @param defaults the snapshot to use until the config has been loaded
+     * @param factory creates a new snapshot from the current config values
+     */
+    public ConfigSnapshot(S defaults, Supplier<S> factory) {
+        this.factory = factory;
+        this.listeners = Lists.newCopyOnWriteArrayList();
+        this.value = defaults;
+    }
+
+    public S get() {
+        return this.value;
+    }
+
+    /**
+     * Adds a listener which is notified when the snapshot changes
+     * @param listener receives the previous and the new snapshot
+     * @return this
+     */
+    public ConfigSnapshot<S> addListener(BiConsumer<S, S> listener) {
+        this.listeners.add(listener);
+        return this;
+    }
+
+    void refresh() {
+        S previous = this.value;
+        S current = this.factory.get();
+        this.value = current;
+        if(!current.equals(previous)) {
+            this.listeners.forEach(listener -> listener.accept(previous, current));
+        }
+    }
+}
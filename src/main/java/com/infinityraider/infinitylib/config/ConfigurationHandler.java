@@ -4,10 +4,14 @@ import com.infinityraider.infinitylib.InfinityMod;
 import net.minecraftforge.common.ForgeConfigSpec;
 import net.minecraftforge.fml.ModLoadingContext;
 import net.minecraftforge.fml.config.ModConfig;
+import net.minecraftforge.fml.event.config.ModConfigEvent;
+import net.minecraftforge.fml.javafmlmod.FMLJavaModLoadingContext;
 import net.minecraftforge.fml.loading.FMLPaths;
 import org.apache.commons.lang3.tuple.Pair;
 
 import java.io.File;
+import java.util.Collections;
+import java.util.List;
 import java.util.function.Function;
 
 public class ConfigurationHandler<T extends ConfigurationHandler.SidedModConfig> {
@@ -25,6 +29,8 @@ public class ConfigurationHandler<T extends ConfigurationHandler.SidedModConfig>
                     this.getSpec(),
                     mod.getModId() + "/config-" + this.getConfig().getSide().name().toLowerCase() +".toml"
             );
+            FMLJavaModLoadingContext.get().getModEventBus().addListener(this::onConfigLoading);
+            FMLJavaModLoadingContext.get().getModEventBus().addListener(this::onConfigReloading);
         } else {
             throw new IllegalStateException("Could not evaluate config dir for " + mod.getModId());
         }
@@ -38,7 +44,28 @@ public class ConfigurationHandler<T extends ConfigurationHandler.SidedModConfig>
         return this.spec;
     }
 
+    private void onConfigLoading(ModConfigEvent.Loading event) {
+        this.onConfigEvent(event);
+    }
+
+    private void onConfigReloading(ModConfigEvent.Reloading event) {
+        this.onConfigEvent(event);
+    }
+
+    private void onConfigEvent(ModConfigEvent event) {
+        if(event.getConfig().getSpec() == this.getSpec()) {
+            this.getConfig().getSnapshots().forEach(ConfigSnapshot::refresh);
+        }
+    }
+
     public interface SidedModConfig {
         ModConfig.Type getSide();
+
+        /**
+         * @return the snapshots of this config, which are refreshed when the config is loaded or reloaded
+         */
+        default List<ConfigSnapshot<?>> getSnapshots() {
+            return Collections.emptyList();
+        }
     }
 }
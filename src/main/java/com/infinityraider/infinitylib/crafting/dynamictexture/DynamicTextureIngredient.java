@@ -1,13 +1,16 @@
 package com.infinityraider.infinitylib.crafting.dynamictexture;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParseException;
 import com.infinityraider.infinitylib.InfinityLib;
 import com.infinityraider.infinitylib.crafting.IInfIngredientSerializer;
+import com.infinityraider.infinitylib.utility.TagReloadTracker;
 import net.minecraft.network.FriendlyByteBuf;
 import net.minecraft.resources.ResourceLocation;
 import net.minecraft.util.GsonHelper;
+import net.minecraft.world.item.Item;
 import net.minecraft.world.item.ItemStack;
 import net.minecraft.world.item.crafting.Ingredient;
 import net.minecraft.world.level.block.Block;
@@ -18,6 +21,7 @@ import net.minecraftforge.registries.tags.ITag;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.util.Collection;
+import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -51,11 +55,13 @@ public class DynamicTextureIngredient extends Ingredient implements IDynamicText
         return material;
     }
 
+    public boolean isMaterial(Item item) {
+        return this.tagList.getMaterialItems().contains(item);
+    }
+
     @Override
     public boolean test(@Nullable ItemStack stack) {
-        return stack != null && !stack.isEmpty() && this.getTag().stream()
-                .map(Block::asItem)
-                .anyMatch(item -> stack.getItem().equals(item));
+        return stack != null && !stack.isEmpty() && this.isMaterial(stack.getItem());
     }
 
     @Override
@@ -92,7 +98,9 @@ public class DynamicTextureIngredient extends Ingredient implements IDynamicText
         private final ResourceLocation tagId;
 
         private ITag<Block> tag;
+        private Set<Item> items;
         private Collection<ItemStack> stacks;
+        private int generation;
 
         public BlockTagList(ResourceLocation tagId) {
             this.tagId = tagId;
@@ -103,15 +111,36 @@ public class DynamicTextureIngredient extends Ingredient implements IDynamicText
         }
 
         public ITag<Block> getTag() {
+            this.checkGeneration();
             if(this.tag == null) {
                 this.tag = ForgeRegistries.BLOCKS.tags().getTag(ForgeRegistries.BLOCKS.tags().createTagKey(this.getTagId()));
             }
             return this.tag;
         }
 
+        /**
+         * @return the set of items of all blocks in the tag, cached until the next tag reload
+         */
+        public Set<Item> getMaterialItems() {
+            this.checkGeneration();
+            Set<Item> items = this.items;
+            if(items == null) {
+                ITag<Block> tag = this.getTag();
+                if(tag == null) {
+                    return ImmutableSet.of();
+                }
+                items = tag.stream()
+                        .map(Block::asItem)
+                        .collect(ImmutableSet.toImmutableSet());
+                this.items = items;
+            }
+            return items;
+        }
+
         @Nonnull
         @Override
         public Collection<ItemStack> getItems() {
+            this.checkGeneration();
             if(this.stacks == null) {
                 ITag<Block> tag = this.getTag();
                 if(tag == null) {
@@ -125,6 +154,16 @@ public class DynamicTextureIngredient extends Ingredient implements IDynamicText
             return this.stacks;
         }
 
+        private void checkGeneration() {
+            int generation = TagReloadTracker.getInstance().getGeneration();
+            if(this.generation != generation) {
+                this.tag = null;
+                this.items = null;
+                this.stacks = null;
+                this.generation = generation;
+            }
+        }
+
         @Override
         public JsonObject serialize() {
             JsonObject json = new JsonObject();
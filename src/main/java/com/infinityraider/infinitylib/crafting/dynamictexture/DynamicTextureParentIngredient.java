@@ -61,6 +61,11 @@ public class DynamicTextureParentIngredient extends Ingredient implements IDynam
         return stack;
     }
 
+    @Override
+    public MaterialVariantCatalog.Variants getVariants() {
+        return MaterialVariantCatalog.getInstance().getVariants(this.getTagId(), this.getParent());
+    }
+
     @Override
     public boolean test(@Nullable ItemStack stack) {
        return stack != null
@@ -15,4 +15,11 @@ public interface IDynamicTextureIngredient {
     }
 
     ItemStack asStackWithMaterial(ItemStack material);
+
+    /**
+     * @return the stacks of this ingredient for every material in the tag, shared through the MaterialVariantCatalog
+     */
+    default MaterialVariantCatalog.Variants getVariants() {
+        return MaterialVariantCatalog.getInstance().getMaterialStacks(this.getTagId());
+    }
 }
@@ -0,0 +1,233 @@
+package com.infinityraider.infinitylib.crafting.dynamictexture;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import com.infinityraider.infinitylib.InfinityLib;
+import com.infinityraider.infinitylib.item.BlockItemDynamicTexture;
+import com.infinityraider.infinitylib.utility.TagReloadTracker;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.world.item.Item;
+import net.minecraft.world.item.ItemStack;
+import net.minecraft.world.item.Items;
+import net.minecraft.world.level.block.Block;
+import net.minecraftforge.registries.ForgeRegistries;
+import net.minecraftforge.registries.tags.ITagManager;
+
+import javax.annotation.Nullable;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * Catalog of material variants for dynamic texture items.
+ * For every block tag, the materials and the variant stacks for each dynamic texture item template are built once
+ * and shared across all recipes using that tag, until the next tag reload.
+ * Stacks handed out by the catalog are shared and must not be modified.
+ */
+public final class MaterialVariantCatalog {
+    private static final MaterialVariantCatalog INSTANCE = new MaterialVariantCatalog();
+
+    public static MaterialVariantCatalog getInstance() {
+        return INSTANCE;
+    }
+
+    private final Map<ResourceLocation, Materials> materials;
+    private final Map<VariantKey, Variants> variants;
+
+    private int generation;
+
+    private MaterialVariantCatalog() {
+        this.materials = Maps.newConcurrentMap();
+        this.variants = Maps.newConcurrentMap();
+        this.generation = TagReloadTracker.getInstance().getGeneration();
+    }
+
+    /**
+     * @param tagId the id of the block tag
+     * @return the blocks in the tag
+     */
+    public List<Block> getBlocks(ResourceLocation tagId) {
+        return this.getMaterials(tagId).getBlocks();
+    }
+
+    /**
+     * @param tagId the id of the block tag
+     * @return a stack of every block in the tag, indexed by item
+     */
+    public Variants getMaterialStacks(ResourceLocation tagId) {
+        return this.getMaterials(tagId).getStacks();
+    }
+
+    /**
+     * Fetches the variants of a template stack for all materials in the tag.
+     * If the template is not a dynamic texture item, the materials themselves are returned.
+     *
+     * @param tagId the id of the block tag
+     * @param template the template stack, will not be modified
+     * @return a variant of the template with every material in the tag, indexed by material item
+     */
+    public Variants getVariants(ResourceLocation tagId, ItemStack template) {
+        if(!(template.getItem() instanceof BlockItemDynamicTexture)) {
+            return this.getMaterialStacks(tagId);
+        }
+        this.checkGeneration();
+        VariantKey key = new VariantKey(tagId, template);
+        Variants variants = this.variants.get(key);
+        if(variants == null) {
+            variants = this.buildVariants(tagId, template);
+            this.variants.putIfAbsent(key, variants);
+        }
+        return variants;
+    }
+
+    /**
+     * Builds the catalog entries for the given recipes in parallel
+     * @param recipes the recipes
+     */
+    public void prepare(Collection<ShapedDynamicTextureRecipe> recipes) {
+        long start = System.currentTimeMillis();
+        recipes.parallelStream().forEach(recipe -> {
+            recipe.getResultVariants();
+            recipe.getIngredients().stream()
+                    .filter(ingredient -> ingredient instanceof IDynamicTextureIngredient)
+                    .map(ingredient -> (IDynamicTextureIngredient) ingredient)
+                    .forEach(IDynamicTextureIngredient::getVariants);
+        });
+        InfinityLib.instance.getLogger().debug("Built material variants for " + recipes.size() + " dynamic texture recipes in " + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    private Materials getMaterials(ResourceLocation tagId) {
+        this.checkGeneration();
+        return this.materials.computeIfAbsent(tagId, Materials::new);
+    }
+
+    private Variants buildVariants(ResourceLocation tagId, ItemStack template) {
+        BlockItemDynamicTexture item = (BlockItemDynamicTexture) template.getItem();
+        return new Variants(this.getMaterialStacks(tagId).getStacks().stream()
+                .map(material -> {
+                    ItemStack stack = template.copy();
+                    item.setMaterial(stack, material);
+                    return stack;
+                })
+                .collect(ImmutableList.toImmutableList()), this.getMaterialStacks(tagId).getStacks());
+    }
+
+    private synchronized void checkGeneration() {
+        int generation = TagReloadTracker.getInstance().getGeneration();
+        if(this.generation != generation) {
+            this.materials.clear();
+            this.variants.clear();
+            this.generation = generation;
+        }
+    }
+
+    private static final class Materials {
+        private final List<Block> blocks;
+        private final Variants stacks;
+
+        private Materials(ResourceLocation tagId) {
+            ITagManager<Block> tags = ForgeRegistries.BLOCKS.tags();
+            this.blocks = tags == null ? ImmutableList.of() : tags.getTag(tags.createTagKey(tagId)).stream()
+                    .collect(ImmutableList.toImmutableList());
+            List<ItemStack> stacks = this.blocks.stream()
+                    .map(Block::asItem)
+                    .filter(item -> item != Items.AIR)
+                    .distinct()
+                    .map(ItemStack::new)
+                    .collect(ImmutableList.toImmutableList());
+            this.stacks = new Variants(stacks, stacks);
+        }
+
+        public List<Block> getBlocks() {
+            return this.blocks;
+        }
+
+        public Variants getStacks() {
+            return this.stacks;
+        }
+    }
+
+    /**
+     * Immutable list of variant stacks, with a lookup by material item
+     */
+    public static final class Variants {
+        private final List<ItemStack> stacks;
+        private final Map<Item, ItemStack> byMaterial;
+
+        private Variants(List<ItemStack> stacks, List<ItemStack> materials) {
+            this.stacks = stacks;
+            ImmutableMap.Builder<Item, ItemStack> builder = ImmutableMap.builder();
+            for(int i = 0; i < stacks.size(); i++) {
+                builder.put(materials.get(i).getItem(), stacks.get(i));
+            }
+            this.byMaterial = builder.build();
+        }
+
+        /**
+         * @return the variants for all materials
+         */
+        public List<ItemStack> getStacks() {
+            return this.stacks;
+        }
+
+        /**
+         * @param material the material
+         * @return the variant for the material, or null if the material is not part of the tag
+         */
+        @Nullable
+        public ItemStack get(ItemStack material) {
+            return this.byMaterial.get(material.getItem());
+        }
+
+        /**
+         * @param materials the materials
+         * @return the variants for the materials which are part of the tag
+         */
+        public List<ItemStack> get(List<ItemStack> materials) {
+            return materials.stream().map(this::get).filter(Objects::nonNull).collect(Collectors.toList());
+        }
+
+        public boolean isEmpty() {
+            return this.stacks.isEmpty();
+        }
+    }
+
+    private static final class VariantKey {
+        private final ResourceLocation tagId;
+        private final Item item;
+        private final int count;
+        @Nullable
+        private final CompoundTag tag;
+
+        private VariantKey(ResourceLocation tagId, ItemStack template) {
+            this.tagId = tagId;
+            this.item = template.getItem();
+            this.count = template.getCount();
+            this.tag = template.getTag() == null ? null : template.getTag().copy();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if(this == obj) {
+                return true;
+            }
+            if(!(obj instanceof VariantKey)) {
+                return false;
+            }
+            VariantKey other = (VariantKey) obj;
+            return this.item == other.item
+                    && this.count == other.count
+                    && this.tagId.equals(other.tagId)
+                    && Objects.equals(this.tag, other.tag);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(this.tagId, this.item, this.count, this.tag);
+        }
+    }
+}
@@ -1,13 +1,16 @@
 package com.infinityraider.infinitylib.crafting.dynamictexture;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
 import com.google.gson.JsonObject;
 import com.infinityraider.infinitylib.crafting.IInfIngredientSerializer;
 import com.infinityraider.infinitylib.crafting.IInfRecipeSerializer;
 import com.infinityraider.infinitylib.item.BlockItemDynamicTexture;
+import com.infinityraider.infinitylib.utility.TagReloadTracker;
 import net.minecraft.network.FriendlyByteBuf;
 import net.minecraft.resources.ResourceLocation;
 import net.minecraft.world.inventory.CraftingContainer;
+import net.minecraft.world.item.Item;
 import net.minecraft.world.item.ItemStack;
 import net.minecraft.world.item.crafting.Ingredient;
 import net.minecraft.world.item.crafting.RecipeSerializer;
@@ -15,36 +18,62 @@ import net.minecraft.world.item.crafting.ShapedRecipe;
 import net.minecraft.world.level.Level;
 import net.minecraft.world.level.block.Block;
 import net.minecraftforge.registries.ForgeRegistryEntry;
-import net.minecraftforge.registries.tags.ITag;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import java.util.Arrays;
 import java.util.List;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import java.util.Map;
+import java.util.Optional;
 
 public class ShapedDynamicTextureRecipe extends ShapedRecipe {
     public static final String ID = "crafting_shaped_dynamic_texture";
     public static final IInfRecipeSerializer<ShapedDynamicTextureRecipe> SERIALIZER = new Serializer();
 
-    private List<Block> materials;
+    @Nullable
+    private final ResourceLocation materialTag;
+
+    private volatile MatchIndex index;
 
     public ShapedDynamicTextureRecipe(ShapedRecipe parent) {
         super(parent.getId(), parent.getGroup(), parent.getRecipeWidth(), parent.getRecipeHeight(), parent.getIngredients(), parent.getResultItem());
+        this.materialTag = this.getIngredients().stream()
+                .filter(ingredient -> ingredient instanceof IDynamicTextureIngredient)
+                .findFirst()
+                .map(ingredient -> ((IDynamicTextureIngredient) ingredient).getTagId())
+                .orElse(null);
+    }
+
+    @Nullable
+    public ResourceLocation getMaterialTag() {
+        return this.materialTag;
     }
 
     public List<Block> getSuitableMaterials() {
-        if(this.materials == null) {
-            this.materials = this.getIngredients().stream()
-                    .filter(ingredient -> ingredient instanceof IDynamicTextureIngredient)
-                    .findFirst()
-                    .map(ingredient -> (IDynamicTextureIngredient) ingredient)
-                    .map(IDynamicTextureIngredient::getTag)
-                    .map(ITag::stream)
-                    .orElse(Stream.empty())
-                    .collect(Collectors.toList());
+        return this.getMaterialTag() == null ? ImmutableList.of() : MaterialVariantCatalog.getInstance().getBlocks(this.getMaterialTag());
+    }
+
+    /**
+     * @return a stack of each suitable material, shared through the MaterialVariantCatalog, must not be modified
+     */
+    public Optional<MaterialVariantCatalog.Variants> getMaterialVariants() {
+        return Optional.ofNullable(this.getMaterialTag()).map(MaterialVariantCatalog.getInstance()::getMaterialStacks);
+    }
+
+    /**
+     * @return the result for each suitable material, shared through the MaterialVariantCatalog, must not be modified
+     */
+    public Optional<MaterialVariantCatalog.Variants> getResultVariants() {
+        return Optional.ofNullable(this.getMaterialTag()).map(tag -> MaterialVariantCatalog.getInstance().getVariants(tag, super.getResultItem()));
+    }
+
+    protected MatchIndex getMatchIndex() {
+        MatchIndex index = this.index;
+        if(index == null || !index.isValid()) {
+            index = new MatchIndex(this);
+            this.index = index;
         }
-        return this.materials;
+        return index;
     }
 
     @Override
@@ -94,6 +123,74 @@ public class ShapedDynamicTextureRecipe extends ShapedRecipe {
 
     @Nullable
     protected ItemStack checkMaterial(@Nonnull CraftingContainer inv) {
+        int width = inv.getWidth();
+        int height = inv.getHeight();
+        int w = this.getRecipeWidth();
+        int h = this.getRecipeHeight();
+        if(w > width || h > height) {
+            return null;
+        }
+        MatchIndex index = this.getMatchIndex();
+        if(!index.canPreFilter() || width * height > Long.SIZE) {
+            return this.checkMaterialUnfiltered(inv);
+        }
+        // Scan the grid once: bounding box of the non-empty slots and the pattern positions which can accept each item
+        long[] itemMasks = new long[width * height];
+        long occupied = 0;
+        int minX = width;
+        int minY = height;
+        int maxX = -1;
+        int maxY = -1;
+        for(int x = 0; x < width; ++x) {
+            for(int y = 0; y < height; ++y) {
+                int slot = x + y * width;
+                ItemStack stack = inv.getItem(slot);
+                if(stack.isEmpty()) {
+                    continue;
+                }
+                long mask = index.getItemMask(stack.getItem());
+                if(mask == 0) {
+                    // This item fits nowhere in the pattern
+                    return null;
+                }
+                itemMasks[slot] = mask;
+                occupied |= 1L << slot;
+                minX = Math.min(minX, x);
+                minY = Math.min(minY, y);
+                maxX = Math.max(maxX, x);
+                maxY = Math.max(maxY, y);
+            }
+        }
+        if(occupied == 0) {
+            return index.getRequiredMask() == 0 ? this.checkMaterialUnfiltered(inv) : null;
+        }
+        // Only offsets for which the pattern covers the bounding box of the non-empty slots are possible
+        int fromX = Math.max(0, maxX - w + 1);
+        int toX = Math.min(minX, width - w);
+        int fromY = Math.max(0, maxY - h + 1);
+        int toY = Math.min(minY, height - h);
+        ItemStack material;
+        for(int i = fromX; i <= toX; ++i) {
+            for(int j = fromY; j <= toY; ++j) {
+                if(index.accepts(itemMasks, occupied, width, i, j, true)) {
+                    material = this.checkMaterialWithOffset(inv, i, j, true);
+                    if (material != null) {
+                        return material;
+                    }
+                }
+                if(index.accepts(itemMasks, occupied, width, i, j, false)) {
+                    material = this.checkMaterialWithOffset(inv, i, j, false);
+                    if (material != null) {
+                        return material;
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    @Nullable
+    protected ItemStack checkMaterialUnfiltered(@Nonnull CraftingContainer inv) {
         // Mostly copied with vanilla, with an additional check if all dynamic texture ingredients are equivalent
         ItemStack material;
         for(int i = 0; i <= inv.getWidth() - this.getRecipeWidth(); ++i) {
@@ -115,6 +212,7 @@ public class ShapedDynamicTextureRecipe extends ShapedRecipe {
     protected ItemStack checkMaterialWithOffset(CraftingContainer craftingInventory, int width, int height, boolean flag) {
         // Also mostly copied with vanilla, with an additional check if all dynamic texture ingredients are equivalent
         ItemStack material = null;
+        boolean copy = false;
         for(int i = 0; i < craftingInventory.getWidth(); ++i) {
             for(int j = 0; j < craftingInventory.getHeight(); ++j) {
                 int k = i - width;
@@ -134,8 +232,9 @@ public class ShapedDynamicTextureRecipe extends ShapedRecipe {
                 // Dynamic texture check
                 if(ingredient instanceof DynamicTextureIngredient) {
                     if(material == null) {
-                        material = stackInSlot.copy();
-                        material.setCount(1);
+                        // Defer the copy until the whole grid has been validated
+                        material = stackInSlot;
+                        copy = true;
                     } else {
                         if(!ItemStack.isSame(material, stackInSlot)) {
                             return null;
@@ -144,8 +243,9 @@ public class ShapedDynamicTextureRecipe extends ShapedRecipe {
                 } else if(ingredient instanceof DynamicTextureParentIngredient) {
                     ItemStack materialStack = ((BlockItemDynamicTexture) stackInSlot.getItem()).getMaterial(stackInSlot);
                     if(material == null) {
-                        material = materialStack.copy();
-                        material.setCount(1);
+                        // The material is read from nbt, thus already a new stack
+                        material = materialStack;
+                        copy = false;
                     } else {
                         if(!ItemStack.matches(material, materialStack)) {
                             return null;
@@ -154,9 +254,120 @@ public class ShapedDynamicTextureRecipe extends ShapedRecipe {
                 }
             }
         }
+        if(material != null) {
+            if(copy) {
+                material = material.copy();
+            }
+            material.setCount(1);
+        }
         return material;
     }
 
+    /**
+     * Pre-computed data to quickly reject crafting grid offsets without having to test the ingredients,
+     * valid until the next tag reload.
+     */
+    protected static final class MatchIndex {
+        private final ShapedDynamicTextureRecipe recipe;
+        private final int generation;
+        private final boolean preFilter;
+        private final long requiredMask;
+        private final Map<Item, Long> itemMasks;
+
+        private MatchIndex(ShapedDynamicTextureRecipe recipe) {
+            this.recipe = recipe;
+            this.generation = TagReloadTracker.getInstance().getGeneration();
+            this.preFilter = recipe.getIngredients().size() <= Long.SIZE;
+            long required = 0;
+            if(this.preFilter) {
+                for (int p = 0; p < recipe.getIngredients().size(); p++) {
+                    Ingredient ingredient = recipe.getIngredients().get(p);
+                    if (!ingredient.isEmpty() && !ingredient.test(ItemStack.EMPTY)) {
+                        required |= 1L << p;
+                    }
+                }
+            }
+            this.requiredMask = required;
+            this.itemMasks = Maps.newConcurrentMap();
+        }
+
+        public boolean isValid() {
+            return TagReloadTracker.getInstance().isCurrent(this.generation);
+        }
+
+        public boolean canPreFilter() {
+            return this.preFilter;
+        }
+
+        /**
+         * @return bit mask of the pattern positions which require a non-empty stack
+         */
+        public long getRequiredMask() {
+            return this.requiredMask;
+        }
+
+        /**
+         * @param item the item
+         * @return bit mask of the pattern positions whose ingredient can possibly accept the item
+         */
+        public long getItemMask(Item item) {
+            return this.itemMasks.computeIfAbsent(item, this::computeItemMask);
+        }
+
+        private long computeItemMask(Item item) {
+            long mask = 0;
+            List<Ingredient> ingredients = this.recipe.getIngredients();
+            for(int p = 0; p < ingredients.size(); p++) {
+                if(canAccept(ingredients.get(p), item)) {
+                    mask |= 1L << p;
+                }
+            }
+            return mask;
+        }
+
+        /**
+         * Checks if the crafting grid can possibly match the pattern at the given offset, without testing any ingredients
+         */
+        private boolean accepts(long[] itemMasks, long occupied, int gridWidth, int offsetX, int offsetY, boolean mirrored) {
+            int w = this.recipe.getRecipeWidth();
+            int h = this.recipe.getRecipeHeight();
+            // Every occupied slot must be accepted by the pattern position it falls onto
+            for(int x = 0; x < w; x++) {
+                for(int y = 0; y < h; y++) {
+                    int slot = x + offsetX + (y + offsetY) * gridWidth;
+                    int p = mirrored ? (w - x - 1 + y * w) : (x + y * w);
+                    if((occupied & (1L << slot)) != 0) {
+                        if((itemMasks[slot] & (1L << p)) == 0) {
+                            return false;
+                        }
+                    } else if((this.getRequiredMask() & (1L << p)) != 0) {
+                        // Required pattern position is empty
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+
+        private static boolean canAccept(Ingredient ingredient, Item item) {
+            if(ingredient.isEmpty()) {
+                return false;
+            }
+            if(ingredient instanceof DynamicTextureIngredient) {
+                return ((DynamicTextureIngredient) ingredient).isMaterial(item);
+            }
+            if(ingredient instanceof DynamicTextureParentIngredient) {
+                return item instanceof BlockItemDynamicTexture;
+            }
+            if(ingredient.getClass() == Ingredient.class) {
+                // Vanilla ingredients only test on the item
+                return Arrays.stream(ingredient.getItems()).anyMatch(stack -> stack.is(item));
+            }
+            // Unknown ingredient, can not be pre-filtered
+            return true;
+        }
+    }
+
     public static class Serializer extends ForgeRegistryEntry<RecipeSerializer<?>> implements IInfRecipeSerializer<ShapedDynamicTextureRecipe> {
 
         private Serializer() {}
@@ -5,6 +5,7 @@ import com.google.gson.JsonObject;
 import com.google.gson.JsonParseException;
 import com.infinityraider.infinitylib.InfinityLib;
 import com.infinityraider.infinitylib.crafting.IInfIngredientSerializer;
+import com.infinityraider.infinitylib.utility.TagReloadTracker;
 import it.unimi.dsi.fastutil.ints.IntList;
 import net.minecraft.network.FriendlyByteBuf;
 import net.minecraft.resources.ResourceLocation;
@@ -24,18 +25,21 @@ public class FallbackIngredient extends Ingredient {
     public static final ResourceLocation ID = new ResourceLocation(InfinityLib.instance.getModId(), "fallback");
     public static final Serializer SERIALIZER = new Serializer();
 
-    private final ITag<Item> tag;
     private final Ingredient fallback;
 
+    private ITag<Item> tag;
     private Ingredient ingredient;
+    private int generation;
 
     public FallbackIngredient(ITag<Item> tag, Ingredient fallback) {
         super(Stream.empty());
         this.tag = tag;
         this.fallback = fallback;
+        this.generation = TagReloadTracker.getInstance().getGeneration();
     }
 
     protected ITag<Item> getTag() {
+        this.checkGeneration();
         return this.tag;
     }
 
@@ -44,6 +48,7 @@ public class FallbackIngredient extends Ingredient {
     }
 
     private Ingredient getActualIngredient() {
+        this.checkGeneration();
         if(this.ingredient == null) {
             if(this.getTag() != null && this.getTag().size() > 0) {
                 this.ingredient = Ingredient.of(this.getTag().getKey());
@@ -93,6 +98,18 @@ public class FallbackIngredient extends Ingredient {
         this.ingredient = null;
     }
 
+    private void checkGeneration() {
+        int generation = TagReloadTracker.getInstance().getGeneration();
+        if(this.generation != generation) {
+            // Tags have been reloaded, re-resolve the tag and the actual ingredient
+            if(this.tag != null && ForgeRegistries.ITEMS.tags() != null) {
+                this.tag = ForgeRegistries.ITEMS.tags().getTag(this.tag.getKey());
+            }
+            this.ingredient = null;
+            this.generation = generation;
+        }
+    }
+
     @Override
     public boolean isSimple() {
         return this.getActualIngredient().isSimple();
@@ -61,6 +61,8 @@ public abstract class AbstractEntityFrozen extends Entity implements IEntityAddi
     private BlockPos blockPos;
     private ChunkPos chunkPos;
 
+    private boolean virtual;
+
     public AbstractEntityFrozen(EntityType<?> type, Level world, double x, double y, double z) {
         super(type, world);
         this.name = new TextComponent(this.name());
@@ -91,6 +93,64 @@ public abstract class AbstractEntityFrozen extends Entity implements IEntityAddi
 
     protected abstract void writeDataToNBT(CompoundTag tag);
 
+    /**
+     * @return true if this entity is a virtual entity, stored and ticked per chunk rather than added to the level,
+     * see ModuleVirtualEntities
+     */
+    public final boolean isVirtual() {
+        return this.virtual;
+    }
+
+    public final void setVirtual(boolean virtual) {
+        this.virtual = virtual;
+    }
+
+    /**
+     * Sets the position of this entity, as frozen entities can not be moved otherwise.
+     * Only use this on entities which have not been added to the level yet, e.g. when creating virtual entities.
+     */
+    public final void setFrozenPosition(double x, double y, double z) {
+        this.position = new Vec3(x, y, z);
+        this.blockPos = new BlockPos(this.position).immutable();
+        this.chunkPos = new ChunkPos(this.blockPos);
+        this.xOld = x;
+        this.yOld = y;
+        this.zOld = z;
+        this.xo = x;
+        this.yo = y;
+        this.zo = z;
+        this.setPosRaw(x, y, z);
+    }
+
+    /**
+     * Called every tick for virtual entities, which are ticked in batch per chunk instead of by the level
+     */
+    public final void tickVirtual() {
+        this.tickCount++;
+        this.update();
+    }
+
+    /**
+     * Writes the data of this entity, as used to store and sync virtual entities
+     */
+    public final CompoundTag writeFrozenData() {
+        CompoundTag tag = new CompoundTag();
+        this.writeDataToNBT(tag);
+        return tag;
+    }
+
+    /**
+     * Reads the data of this entity, as used to store and sync virtual entities
+     * @param tag the data
+     * @param spawned true if the entity is spawned on the client by this
+     */
+    public final void readFrozenData(CompoundTag tag, boolean spawned) {
+        this.readDataFromNBT(tag);
+        if(spawned) {
+            this.onEntitySpawned();
+        }
+    }
+
     @Override
     public Vec3 position() {
         return this.position;
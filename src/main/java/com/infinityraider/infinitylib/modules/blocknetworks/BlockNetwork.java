@@ -0,0 +1,76 @@
+package com.infinityraider.infinitylib.modules.blocknetworks;
+
+/**
+ * A connected component of nodes of a single NetworkType in a level
+ * @param <D> the type of the aggregate data
+ */
+public final class BlockNetwork<D extends INetworkData<D>> {
+    private final NetworkType<D> type;
+    private final long id;
+    private final D data;
+
+    private int size;
+    private int loaded;
+    private boolean valid;
+
+    BlockNetwork(NetworkType<D> type, long id, D data) {
+        this.type = type;
+        this.id = id;
+        this.data = data;
+        this.valid = true;
+    }
+
+    public NetworkType<D> getType() {
+        return this.type;
+    }
+
+    /**
+     * @return the id of the network, which is persistent and unique per level and type
+     */
+    public long getId() {
+        return this.id;
+    }
+
+    public D getData() {
+        return this.data;
+    }
+
+    /**
+     * @return the total number of nodes in the network, including nodes in unloaded chunks
+     */
+    public int getSize() {
+        return this.size;
+    }
+
+    /**
+     * @return the number of nodes in the network which are in loaded chunks
+     */
+    public int getLoadedSize() {
+        return this.loaded;
+    }
+
+    public boolean isFullyLoaded() {
+        return this.loaded == this.size;
+    }
+
+    /**
+     * @return false if the network has been merged into another network, or if all of its nodes have been removed
+     */
+    public boolean isValid() {
+        return this.valid;
+    }
+
+    void setSize(int size, int loaded) {
+        this.size = size;
+        this.loaded = loaded;
+    }
+
+    void invalidate() {
+        this.valid = false;
+    }
+
+    @Override
+    public String toString() {
+        return this.type + "#" + this.id;
+    }
+}
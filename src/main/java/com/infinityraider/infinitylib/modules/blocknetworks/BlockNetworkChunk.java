@@ -0,0 +1,54 @@
+package com.infinityraider.infinitylib.modules.blocknetworks;
+
+import com.infinityraider.infinitylib.capability.IInfSerializableCapabilityImplementation.Serializable;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.world.level.chunk.LevelChunk;
+
+import javax.annotation.Nullable;
+
+/**
+ * Persists the network nodes in a single chunk, while the chunk is loaded the nodes are owned by the BlockNetworkGraphs
+ */
+public class BlockNetworkChunk implements Serializable<BlockNetworkChunk> {
+    private final LevelChunk chunk;
+
+    /** Nodes which have been read from disk, or written when the chunk was unloaded */
+    private CompoundTag pending;
+
+    protected BlockNetworkChunk(LevelChunk chunk) {
+        this.chunk = chunk;
+    }
+
+    public LevelChunk getChunk() {
+        return this.chunk;
+    }
+
+    @Nullable
+    protected CompoundTag consumePending() {
+        CompoundTag pending = this.pending;
+        this.pending = null;
+        return pending;
+    }
+
+    protected void setPending(@Nullable CompoundTag pending) {
+        this.pending = pending == null || pending.isEmpty() ? null : pending;
+    }
+
+    @Override
+    public void copyDataFrom(BlockNetworkChunk from) {}
+
+    @Override
+    public CompoundTag serializeNBT() {
+        if(this.pending != null) {
+            return this.pending.copy();
+        }
+        CompoundTag tag = BlockNetworkManager.getInstance().writeChunk(this.chunk);
+        return tag == null ? new CompoundTag() : tag;
+    }
+
+    @Override
+    public void deserializeNBT(CompoundTag tag) {
+        // Chunks may be read off the main thread, nodes are added to the graphs once the chunk is loaded
+        this.setPending(tag);
+    }
+}
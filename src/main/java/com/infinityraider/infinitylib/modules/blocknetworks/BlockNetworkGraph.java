@@ -0,0 +1,570 @@
+package com.infinityraider.infinitylib.modules.blocknetworks;
+
+import com.infinityraider.infinitylib.reference.Names;
+import com.infinityraider.infinitylib.utility.DirectionalConnectivity;
+import it.unimi.dsi.fastutil.longs.*;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.Direction;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.ListTag;
+import net.minecraft.nbt.Tag;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.level.chunk.LevelChunk;
+
+import javax.annotation.Nullable;
+import java.util.Optional;
+
+/**
+ * The nodes and networks of a single NetworkType in a single level.
+ *
+ * Every node is labelled with a network id, and network ids form a union-find forest: merging two networks links the
+ * root of the smaller network to the root of the larger one, without touching any nodes.
+ * Removing a node or a connection runs interleaved breadth-first searches from the affected neighbours, which stop as
+ * soon as all searches have met, or relabel the nodes of a search which has exhausted its component.
+ * Both operations are therefore independent of the size of the network, except for actual splits, which cost the size
+ * of the smaller part.
+ *
+ * Labels are persisted per chunk, the union-find forest and the network data are persisted per level,
+ * so networks remain consistent while parts of them are unloaded. As unloaded nodes can not be searched, a split is only
+ * detected if the disconnected part is completely loaded, connections to unloaded nodes are merged once they are loaded.
+ * The number of nodes per label, loaded or not, is persisted as well, so ids which no node refers to anymore can be
+ * dropped from the forest.
+ */
+public class BlockNetworkGraph<D extends INetworkData<D>> {
+    private static final Direction[] DIRECTIONS = Direction.values();
+    private static final long NONE = 0;
+
+    private final ServerLevel world;
+    private final NetworkType<D> type;
+    private final LongSet loadedChunks;
+    private final Runnable onChanged;
+
+    private final Long2LongMap labels;
+    private final Long2ByteMap connections;
+    private final Long2ObjectMap<LongSet> chunks;
+
+    private final Long2LongMap parents;
+    private final Long2IntMap references;
+    private final Long2ObjectMap<BlockNetwork<D>> networks;
+    private long nextId;
+
+    protected BlockNetworkGraph(ServerLevel world, NetworkType<D> type, LongSet loadedChunks, Runnable onChanged) {
+        this.world = world;
+        this.type = type;
+        this.loadedChunks = loadedChunks;
+        this.onChanged = onChanged;
+        this.labels = new Long2LongOpenHashMap();
+        this.labels.defaultReturnValue(NONE);
+        this.connections = new Long2ByteOpenHashMap();
+        this.chunks = new Long2ObjectOpenHashMap<>();
+        this.parents = new Long2LongOpenHashMap();
+        this.parents.defaultReturnValue(NONE);
+        this.references = new Long2IntOpenHashMap();
+        this.networks = new Long2ObjectOpenHashMap<>();
+        this.nextId = 1;
+    }
+
+    public NetworkType<D> getType() {
+        return this.type;
+    }
+
+    public boolean hasNode(BlockPos pos) {
+        return this.labels.containsKey(pos.asLong());
+    }
+
+    public Optional<BlockNetwork<D>> getNetwork(BlockPos pos) {
+        return Optional.ofNullable(this.getNetwork(pos.asLong()));
+    }
+
+    public Optional<BlockNetwork<D>> getNetworkById(long id) {
+        return Optional.ofNullable(this.networks.get(this.find(id)));
+    }
+
+    @Nullable
+    protected BlockNetwork<D> getNetwork(long pos) {
+        long label = this.labels.get(pos);
+        return label == NONE ? null : this.networks.get(this.find(label));
+    }
+
+    /**
+     * Adds a node, merging all networks it connects to
+     * @param blockPos the position of the node
+     * @param connectivity the connections of the node
+     * @return the network of the node
+     */
+    public BlockNetwork<D> add(BlockPos blockPos, DirectionalConnectivity connectivity) {
+        long pos = blockPos.asLong();
+        if(this.labels.containsKey(pos)) {
+            return this.update(blockPos, connectivity);
+        }
+        byte mask = mask(connectivity);
+        BlockNetwork<D> network = null;
+        for(Direction dir : DIRECTIONS) {
+            if(this.isEdge(pos, mask, dir)) {
+                BlockNetwork<D> other = this.getNetwork(BlockPos.offset(pos, dir));
+                network = network == null ? other : this.union(network, other);
+            }
+        }
+        if(network == null) {
+            network = this.createNetwork(this.nextId++, this.type.createData());
+        }
+        this.insert(pos, mask, network.getId());
+        network.setSize(network.getSize() + 1, network.getLoadedSize() + 1);
+        network.getData().onNodeAdded(network, blockPos);
+        this.onChanged.run();
+        return network;
+    }
+
+    /**
+     * Removes a node, splitting its network if needed
+     * @param blockPos the position of the node
+     */
+    public void remove(BlockPos blockPos) {
+        long pos = blockPos.asLong();
+        BlockNetwork<D> network = this.getNetwork(pos);
+        if(network == null) {
+            return;
+        }
+        byte mask = this.connections.get(pos);
+        LongList neighbours = new LongArrayList(DIRECTIONS.length);
+        for(Direction dir : DIRECTIONS) {
+            if(this.isEdge(pos, mask, dir)) {
+                neighbours.add(BlockPos.offset(pos, dir));
+            }
+        }
+        this.erase(pos);
+        network.setSize(network.getSize() - 1, network.getLoadedSize() - 1);
+        network.getData().onNodeRemoved(network, blockPos);
+        if(network.getSize() <= 0) {
+            this.networks.remove(network.getId());
+            network.invalidate();
+        } else if(neighbours.size() > 1) {
+            this.split(network, neighbours);
+        }
+        this.onChanged.run();
+    }
+
+    /**
+     * Changes the connections of a node, merging networks for new connections and splitting for lost connections
+     * @param blockPos the position of the node
+     * @param connectivity the new connections of the node
+     * @return the network of the node
+     */
+    public BlockNetwork<D> update(BlockPos blockPos, DirectionalConnectivity connectivity) {
+        long pos = blockPos.asLong();
+        BlockNetwork<D> network = this.getNetwork(pos);
+        if(network == null) {
+            return this.add(blockPos, connectivity);
+        }
+        byte previous = this.connections.get(pos);
+        byte mask = mask(connectivity);
+        if(previous == mask) {
+            return network;
+        }
+        LongList lost = new LongArrayList(DIRECTIONS.length + 1);
+        lost.add(pos);
+        for(Direction dir : DIRECTIONS) {
+            boolean before = this.isEdge(pos, previous, dir);
+            boolean after = this.isEdge(pos, mask, dir);
+            if(before && !after) {
+                lost.add(BlockPos.offset(pos, dir));
+            } else if(after && !before) {
+                network = this.union(network, this.getNetwork(BlockPos.offset(pos, dir)));
+            }
+        }
+        this.connections.put(pos, mask);
+        if(lost.size() > 1) {
+            this.split(network, lost);
+        }
+        this.onChanged.run();
+        return this.getNetwork(pos);
+    }
+
+    protected boolean isEdge(long pos, byte mask, Direction dir) {
+        if((mask & bit(dir)) == 0) {
+            return false;
+        }
+        long neighbour = BlockPos.offset(pos, dir);
+        return this.labels.containsKey(neighbour) && (this.connections.get(neighbour) & bit(dir.getOpposite())) != 0;
+    }
+
+    protected long find(long id) {
+        long root = id;
+        long parent;
+        while((parent = this.parents.get(root)) != NONE) {
+            root = parent;
+        }
+        // Path compression
+        while(id != root) {
+            long next = this.parents.get(id);
+            this.parents.put(id, root);
+            id = next;
+        }
+        return root;
+    }
+
+    protected BlockNetwork<D> union(BlockNetwork<D> a, BlockNetwork<D> b) {
+        if(a == b) {
+            return a;
+        }
+        BlockNetwork<D> large = a.getSize() >= b.getSize() ? a : b;
+        BlockNetwork<D> small = large == a ? b : a;
+        this.parents.put(small.getId(), large.getId());
+        this.networks.remove(small.getId());
+        large.setSize(large.getSize() + small.getSize(), large.getLoadedSize() + small.getLoadedSize());
+        large.getData().merge(small.getData());
+        small.invalidate();
+        return large;
+    }
+
+    /**
+     * Checks if the nodes at the seed positions, which were connected through the network, are still connected.
+     * A search is run from every seed, one node at a time per search, and searches are grouped when they meet.
+     * The nodes of a group which runs out of nodes to visit form a separate network, unless the group reached an
+     * unloaded chunk. The last remaining group keeps the original network.
+     */
+    protected void split(BlockNetwork<D> network, LongList seeds) {
+        int count = seeds.size();
+        Search[] searches = new Search[count];
+        int[] groups = new int[count];
+        boolean[] unbounded = new boolean[count];
+        boolean[] settled = new boolean[count];
+        Long2IntMap visited = new Long2IntOpenHashMap();
+        visited.defaultReturnValue(-1);
+        int remaining = count;
+        for(int i = 0; i < count; i++) {
+            long seed = seeds.getLong(i);
+            groups[i] = i;
+            searches[i] = new Search();
+            int other = visited.putIfAbsent(seed, i);
+            if(other < 0) {
+                searches[i].visit(seed);
+            } else {
+                groups[i] = findGroup(groups, other);
+                remaining--;
+            }
+        }
+        while(remaining > 1) {
+            for(int i = 0; i < count && remaining > 1; i++) {
+                int group = findGroup(groups, i);
+                if(settled[group] || searches[i].queue.isEmpty()) {
+                    continue;
+                }
+                long pos = searches[i].queue.dequeueLong();
+                byte mask = this.connections.get(pos);
+                for(Direction dir : DIRECTIONS) {
+                    if((mask & bit(dir)) == 0) {
+                        continue;
+                    }
+                    long next = BlockPos.offset(pos, dir);
+                    if(!this.loadedChunks.contains(chunk(next))) {
+                        unbounded[group] = true;
+                        continue;
+                    }
+                    if(!this.isEdge(pos, mask, dir)) {
+                        continue;
+                    }
+                    int other = visited.putIfAbsent(next, i);
+                    if(other < 0) {
+                        searches[i].visit(next);
+                    } else {
+                        int otherGroup = findGroup(groups, other);
+                        if(otherGroup != group) {
+                            groups[otherGroup] = group;
+                            unbounded[group] |= unbounded[otherGroup];
+                            remaining--;
+                        }
+                    }
+                }
+                if(remaining > 1 && isExhausted(searches, groups, group)) {
+                    settled[group] = true;
+                    remaining--;
+                    if(!unbounded[group]) {
+                        this.detach(network, searches, groups, group);
+                    }
+                }
+            }
+        }
+    }
+
+    protected void detach(BlockNetwork<D> network, Search[] searches, int[] groups, int group) {
+        int size = 0;
+        for(int i = 0; i < searches.length; i++) {
+            if(findGroup(groups, i) == group) {
+                size += searches[i].nodes.size();
+            }
+        }
+        int total = network.getSize();
+        BlockNetwork<D> split = this.createNetwork(this.nextId++, network.getData().split(size, total));
+        split.setSize(size, size);
+        network.setSize(total - size, network.getLoadedSize() - size);
+        LongSet changed = new LongOpenHashSet();
+        for(int i = 0; i < searches.length; i++) {
+            if(findGroup(groups, i) == group) {
+                LongIterator nodes = searches[i].nodes.iterator();
+                while(nodes.hasNext()) {
+                    long pos = nodes.nextLong();
+                    this.relabel(pos, split.getId());
+                    changed.add(chunk(pos));
+                }
+            }
+        }
+        LongIterator it = changed.iterator();
+        while(it.hasNext()) {
+            long chunk = it.nextLong();
+            LevelChunk levelChunk = this.world.getChunkSource().getChunkNow(ChunkPos.getX(chunk), ChunkPos.getZ(chunk));
+            if(levelChunk != null) {
+                levelChunk.setUnsaved(true);
+            }
+        }
+    }
+
+    protected BlockNetwork<D> createNetwork(long id, D data) {
+        BlockNetwork<D> network = new BlockNetwork<>(this.type, id, data);
+        this.networks.put(id, network);
+        return network;
+    }
+
+    protected void insert(long pos, byte mask, long label) {
+        this.labels.put(pos, label);
+        this.reference(label, 1);
+        this.connections.put(pos, mask);
+        this.chunks.computeIfAbsent(chunk(pos), c -> new LongOpenHashSet()).add(pos);
+        this.loadedChunks.add(chunk(pos));
+    }
+
+    protected void erase(long pos) {
+        this.reference(this.labels.remove(pos), -1);
+        this.connections.remove(pos);
+        long chunk = chunk(pos);
+        LongSet nodes = this.chunks.get(chunk);
+        if(nodes != null) {
+            nodes.remove(pos);
+            if(nodes.isEmpty()) {
+                this.chunks.remove(chunk);
+            }
+        }
+    }
+
+    protected void relabel(long pos, long label) {
+        long previous = this.labels.put(pos, label);
+        if(previous != label) {
+            this.reference(previous, -1);
+            this.reference(label, 1);
+        }
+    }
+
+    protected void reference(long label, int delta) {
+        if(label == NONE) {
+            return;
+        }
+        int count = this.references.get(label) + delta;
+        if(count > 0) {
+            this.references.put(label, count);
+        } else {
+            this.references.remove(label);
+        }
+    }
+
+    /**
+     * Adds the nodes of a chunk which has been loaded, their labels are read from disk,
+     * only connections to nodes in neighbouring chunks which were unloaded when the connection was made are merged
+     */
+    protected void loadChunk(CompoundTag tag) {
+        long[] positions = tag.getLongArray(Names.NBT.LIST);
+        long[] labels = tag.getLongArray(Names.NBT.VALUE);
+        byte[] masks = tag.getByteArray(Names.NBT.DIRECTION);
+        if(positions.length != labels.length || positions.length != masks.length) {
+            return;
+        }
+        LongList loaded = new LongArrayList(positions.length);
+        for(int i = 0; i < positions.length; i++) {
+            // The persisted label is replaced with its root, or dropped
+            this.reference(labels[i], -1);
+            if(this.labels.containsKey(positions[i])) {
+                continue;
+            }
+            long root = this.find(labels[i]);
+            BlockNetwork<D> network = this.networks.get(root);
+            if(network == null) {
+                // The level data is missing, e.g. because it has been deleted
+                network = this.createNetwork(root, this.type.createData());
+                network.setSize(0, 0);
+                this.nextId = Math.max(this.nextId, root + 1);
+            }
+            this.insert(positions[i], masks[i], root);
+            network.setSize(Math.max(network.getSize(), network.getLoadedSize() + 1), network.getLoadedSize() + 1);
+            loaded.add(positions[i]);
+        }
+        boolean merged = false;
+        for(int i = 0; i < loaded.size(); i++) {
+            long pos = loaded.getLong(i);
+            byte mask = this.connections.get(pos);
+            for(Direction dir : DIRECTIONS) {
+                long neighbour = BlockPos.offset(pos, dir);
+                if(chunk(neighbour) != chunk(pos) && this.isEdge(pos, mask, dir)) {
+                    BlockNetwork<D> network = this.getNetwork(pos);
+                    BlockNetwork<D> other = this.getNetwork(neighbour);
+                    if(network != null && other != null && network != other) {
+                        this.union(network, other);
+                        merged = true;
+                    }
+                }
+            }
+        }
+        if(merged) {
+            this.onChanged.run();
+        }
+    }
+
+    /**
+     * Removes the nodes of a chunk which is unloaded, without splitting networks
+     * @return the nodes of the chunk, or null if there are none
+     */
+    @Nullable
+    protected CompoundTag unloadChunk(long chunk) {
+        CompoundTag tag = this.writeChunk(chunk);
+        LongSet nodes = this.chunks.remove(chunk);
+        if(nodes != null) {
+            LongIterator it = nodes.iterator();
+            while(it.hasNext()) {
+                long pos = it.nextLong();
+                BlockNetwork<D> network = this.getNetwork(pos);
+                if(network != null) {
+                    network.setSize(network.getSize(), network.getLoadedSize() - 1);
+                }
+                this.labels.remove(pos);
+                this.connections.remove(pos);
+            }
+        }
+        return tag;
+    }
+
+    @Nullable
+    protected CompoundTag writeChunk(long chunk) {
+        LongSet nodes = this.chunks.get(chunk);
+        if(nodes == null || nodes.isEmpty()) {
+            return null;
+        }
+        long[] positions = nodes.toLongArray();
+        long[] labels = new long[positions.length];
+        byte[] masks = new byte[positions.length];
+        for(int i = 0; i < positions.length; i++) {
+            // Write the roots, so the union-find forest stays shallow on disk
+            labels[i] = this.find(this.labels.get(positions[i]));
+            this.relabel(positions[i], labels[i]);
+            masks[i] = this.connections.get(positions[i]);
+        }
+        CompoundTag tag = new CompoundTag();
+        tag.putLongArray(Names.NBT.LIST, positions);
+        tag.putLongArray(Names.NBT.VALUE, labels);
+        tag.putByteArray(Names.NBT.DIRECTION, masks);
+        return tag;
+    }
+
+    protected CompoundTag write() {
+        this.prune();
+        CompoundTag tag = new CompoundTag();
+        tag.putLong(Names.NBT.COUNT, this.nextId);
+        long[] references = new long[2*this.references.size()];
+        int count = 0;
+        for(Long2IntMap.Entry entry : this.references.long2IntEntrySet()) {
+            references[count++] = entry.getLongKey();
+            references[count++] = entry.getIntValue();
+        }
+        tag.putLongArray(Names.NBT.FIELD, references);
+        long[] parents = new long[2*this.parents.size()];
+        int index = 0;
+        for(Long2LongMap.Entry entry : this.parents.long2LongEntrySet()) {
+            parents[index++] = entry.getLongKey();
+            parents[index++] = entry.getLongValue();
+        }
+        tag.putLongArray(Names.NBT.MULTI, parents);
+        ListTag list = new ListTag();
+        this.networks.values().forEach(network -> {
+            CompoundTag networkTag = new CompoundTag();
+            networkTag.putLong(Names.NBT.VALUE, network.getId());
+            networkTag.putInt(Names.NBT.COUNT, network.getSize());
+            networkTag.put(Names.NBT.DATA, network.getData().serializeNBT());
+            list.add(networkTag);
+        });
+        tag.put(Names.NBT.LIST, list);
+        return tag;
+    }
+
+    protected void read(CompoundTag tag) {
+        this.nextId = Math.max(1, tag.getLong(Names.NBT.COUNT));
+        long[] parents = tag.getLongArray(Names.NBT.MULTI);
+        for(int i = 0; i + 1 < parents.length; i += 2) {
+            this.parents.put(parents[i], parents[i + 1]);
+        }
+        long[] references = tag.getLongArray(Names.NBT.FIELD);
+        for(int i = 0; i + 1 < references.length; i += 2) {
+            this.references.put(references[i], (int) references[i + 1]);
+        }
+        ListTag list = tag.getList(Names.NBT.LIST, Tag.TAG_COMPOUND);
+        for(int i = 0; i < list.size(); i++) {
+            CompoundTag networkTag = list.getCompound(i);
+            D data = this.type.createData();
+            data.deserializeNBT(networkTag.getCompound(Names.NBT.DATA));
+            this.createNetwork(networkTag.getLong(Names.NBT.VALUE), data).setSize(networkTag.getInt(Names.NBT.COUNT), 0);
+        }
+    }
+
+    /**
+     * Drops the ids from the union-find forest which no node refers to, after linking every id directly to its root,
+     * so that no remaining id depends on a dropped one
+     */
+    protected void prune() {
+        LongIterator ids = new LongArrayList(this.parents.keySet()).iterator();
+        while(ids.hasNext()) {
+            this.find(ids.nextLong());
+        }
+        this.parents.keySet().removeIf((long id) -> !this.references.containsKey(id));
+    }
+
+    protected static byte mask(DirectionalConnectivity connectivity) {
+        return (byte) connectivity.getMask();
+    }
+
+    protected static int bit(Direction dir) {
+        return 1 << dir.get3DDataValue();
+    }
+
+    protected static long chunk(long pos) {
+        return ChunkPos.asLong(BlockPos.getX(pos) >> 4, BlockPos.getZ(pos) >> 4);
+    }
+
+    private static int findGroup(int[] groups, int i) {
+        while(groups[i] != i) {
+            groups[i] = groups[groups[i]];
+            i = groups[i];
+        }
+        return i;
+    }
+
+    private static boolean isExhausted(Search[] searches, int[] groups, int group) {
+        for(int i = 0; i < searches.length; i++) {
+            if(findGroup(groups, i) == group && !searches[i].queue.isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    protected static final class Search {
+        private final LongArrayFIFOQueue queue;
+        private final LongList nodes;
+
+        private Search() {
+            this.queue = new LongArrayFIFOQueue();
+            this.nodes = new LongArrayList();
+        }
+
+        private void visit(long pos) {
+            this.queue.enqueue(pos);
+            this.nodes.add(pos);
+        }
+    }
+}
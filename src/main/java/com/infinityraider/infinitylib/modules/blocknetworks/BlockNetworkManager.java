@@ -0,0 +1,250 @@
+package com.infinityraider.infinitylib.modules.blocknetworks;
+
+import com.google.common.collect.Maps;
+import com.infinityraider.infinitylib.reference.Reference;
+import com.infinityraider.infinitylib.utility.DirectionalConnectivity;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import net.minecraft.core.BlockPos;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.level.LevelAccessor;
+import net.minecraft.world.level.chunk.LevelChunk;
+import net.minecraft.world.level.saveddata.SavedData;
+import net.minecraftforge.event.world.ChunkEvent;
+import net.minecraftforge.event.world.WorldEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+
+import javax.annotation.Nullable;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Optional;
+import java.util.WeakHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Maintains the networks of connected nodes per level and NetworkType, on the server only.
+ *
+ * Blocks which are part of a network have to report their changes: addNode() when they are placed, removeNode()
+ * when they are removed, and updateNode() when their DirectionalConnectivity changes.
+ * Two nodes are connected if they are adjacent and both are connected towards each other.
+ */
+public class BlockNetworkManager {
+    private static final BlockNetworkManager INSTANCE = new BlockNetworkManager();
+
+    private static final String DATA_NAME = Reference.MOD_ID.toLowerCase() + "_block_networks";
+
+    public static BlockNetworkManager getInstance() {
+        return INSTANCE;
+    }
+
+    private final Map<ResourceLocation, NetworkType<?>> types;
+    private final Map<LevelAccessor, Entries> entries;
+
+    private BlockNetworkManager() {
+        this.types = Maps.newConcurrentMap();
+        this.entries = Collections.synchronizedMap(new WeakHashMap<>());
+    }
+
+    protected <D extends INetworkData<D>> NetworkType<D> registerType(ResourceLocation id, Supplier<D> dataFactory) {
+        NetworkType<D> type = new NetworkType<>(id, dataFactory);
+        if(this.types.putIfAbsent(id, type) != null) {
+            throw new IllegalArgumentException("Duplicate block network type: " + id);
+        }
+        return type;
+    }
+
+    public Optional<NetworkType<?>> getType(ResourceLocation id) {
+        return Optional.ofNullable(this.types.get(id));
+    }
+
+    /**
+     * Fetches the graph for a type of networks in a level
+     * @param world the level
+     * @param type the network type
+     * @return the graph, empty on the client
+     */
+    public <D extends INetworkData<D>> Optional<BlockNetworkGraph<D>> getGraph(Level world, NetworkType<D> type) {
+        if(!(world instanceof ServerLevel)) {
+            return Optional.empty();
+        }
+        return Optional.of(this.getEntries((ServerLevel) world).getGraph(type));
+    }
+
+    public <D extends INetworkData<D>> Optional<BlockNetwork<D>> getNetwork(Level world, NetworkType<D> type, BlockPos pos) {
+        return this.getGraph(world, type).flatMap(graph -> graph.getNetwork(pos));
+    }
+
+    /**
+     * Adds a node to the graph, to be called when a network block is placed
+     * @param world the level
+     * @param type the network type
+     * @param pos the position of the node
+     * @param connectivity the connections of the node
+     * @return the network of the node, empty on the client
+     */
+    public <D extends INetworkData<D>> Optional<BlockNetwork<D>> addNode(Level world, NetworkType<D> type, BlockPos pos, DirectionalConnectivity connectivity) {
+        return this.getGraph(world, type).map(graph -> graph.add(pos, connectivity));
+    }
+
+    /**
+     * Removes a node from the graph, to be called when a network block is removed
+     * @param world the level
+     * @param type the network type
+     * @param pos the position of the node
+     */
+    public void removeNode(Level world, NetworkType<?> type, BlockPos pos) {
+        this.getGraph(world, type).ifPresent(graph -> graph.remove(pos));
+    }
+
+    /**
+     * Updates the connections of a node, to be called when the DirectionalConnectivity of a network block changes
+     * @param world the level
+     * @param type the network type
+     * @param pos the position of the node
+     * @param connectivity the new connections of the node
+     * @return the network of the node, empty on the client
+     */
+    public <D extends INetworkData<D>> Optional<BlockNetwork<D>> updateNode(Level world, NetworkType<D> type, BlockPos pos, DirectionalConnectivity connectivity) {
+        return this.getGraph(world, type).map(graph -> graph.update(pos, connectivity));
+    }
+
+    protected Entries getEntries(ServerLevel world) {
+        return this.entries.computeIfAbsent(world, w -> new Entries(world));
+    }
+
+    @Nullable
+    protected CompoundTag writeChunk(LevelChunk chunk) {
+        Entries entries = this.entries.get(chunk.getLevel());
+        return entries == null ? null : entries.writeChunk(chunk.getPos().toLong());
+    }
+
+    @SubscribeEvent
+    @SuppressWarnings("unused")
+    public void onChunkLoad(ChunkEvent.Load event) {
+        if(!(event.getChunk() instanceof LevelChunk) || !(event.getWorld() instanceof ServerLevel)) {
+            return;
+        }
+        LevelChunk chunk = (LevelChunk) event.getChunk();
+        Entries entries = this.getEntries((ServerLevel) event.getWorld());
+        entries.loadedChunks.add(chunk.getPos().toLong());
+        BlockNetworkChunk networks = CapabilityBlockNetworks.getBlockNetworks(chunk);
+        CompoundTag pending = networks == null ? null : networks.consumePending();
+        if(pending != null) {
+            entries.loadChunk(pending);
+        }
+    }
+
+    @SubscribeEvent
+    @SuppressWarnings("unused")
+    public void onChunkUnload(ChunkEvent.Unload event) {
+        Entries entries = this.entries.get(event.getWorld());
+        if(entries == null || !(event.getChunk() instanceof LevelChunk)) {
+            return;
+        }
+        LevelChunk chunk = (LevelChunk) event.getChunk();
+        entries.loadedChunks.remove(chunk.getPos().toLong());
+        CompoundTag nodes = entries.unloadChunk(chunk.getPos().toLong());
+        BlockNetworkChunk networks = CapabilityBlockNetworks.getBlockNetworks(chunk);
+        if(networks != null) {
+            // The chunk may be saved after it has been unloaded
+            networks.setPending(nodes);
+        }
+    }
+
+    @SubscribeEvent
+    @SuppressWarnings("unused")
+    public void onWorldUnload(WorldEvent.Unload event) {
+        this.entries.remove(event.getWorld());
+    }
+
+    /**
+     * The graphs of a single level
+     */
+    protected final class Entries {
+        private final ServerLevel world;
+        private final LongSet loadedChunks;
+        private final Map<NetworkType<?>, BlockNetworkGraph<?>> graphs;
+        private final Storage storage;
+
+        private Entries(ServerLevel world) {
+            this.world = world;
+            this.loadedChunks = new LongOpenHashSet();
+            this.graphs = Maps.newIdentityHashMap();
+            this.storage = world.getDataStorage().computeIfAbsent(Storage::new, Storage::new, DATA_NAME);
+            this.storage.entries = this;
+        }
+
+        @SuppressWarnings("unchecked")
+        private <D extends INetworkData<D>> BlockNetworkGraph<D> getGraph(NetworkType<D> type) {
+            return (BlockNetworkGraph<D>) this.graphs.computeIfAbsent(type, t -> {
+                BlockNetworkGraph<D> graph = new BlockNetworkGraph<>(this.world, type, this.loadedChunks, this.storage::setDirty);
+                graph.read(this.storage.loaded.getCompound(type.getId().toString()));
+                return graph;
+            });
+        }
+
+        private void loadChunk(CompoundTag tag) {
+            for(String key : tag.getAllKeys()) {
+                NetworkType<?> type = BlockNetworkManager.this.types.get(new ResourceLocation(key));
+                if(type != null) {
+                    this.getGraph(type).loadChunk(tag.getCompound(key));
+                }
+            }
+        }
+
+        @Nullable
+        private CompoundTag unloadChunk(long chunk) {
+            CompoundTag tag = new CompoundTag();
+            this.graphs.forEach((type, graph) -> {
+                CompoundTag nodes = graph.unloadChunk(chunk);
+                if(nodes != null) {
+                    tag.put(type.getId().toString(), nodes);
+                }
+            });
+            return tag.isEmpty() ? null : tag;
+        }
+
+        @Nullable
+        private CompoundTag writeChunk(long chunk) {
+            CompoundTag tag = new CompoundTag();
+            this.graphs.forEach((type, graph) -> {
+                CompoundTag nodes = graph.writeChunk(chunk);
+                if(nodes != null) {
+                    tag.put(type.getId().toString(), nodes);
+                }
+            });
+            return tag.isEmpty() ? null : tag;
+        }
+
+        private CompoundTag write(CompoundTag tag) {
+            // Keep the data of types which have not been used yet in this session
+            this.storage.loaded.getAllKeys().forEach(key -> tag.put(key, this.storage.loaded.get(key).copy()));
+            this.graphs.forEach((type, graph) -> tag.put(type.getId().toString(), graph.write()));
+            return tag;
+        }
+    }
+
+    /**
+     * Persists the union-find forests and the network data of a level
+     */
+    protected static final class Storage extends SavedData {
+        private final CompoundTag loaded;
+        private Entries entries;
+
+        private Storage() {
+            this(new CompoundTag());
+        }
+
+        private Storage(CompoundTag tag) {
+            this.loaded = tag;
+        }
+
+        @Override
+        public CompoundTag save(CompoundTag tag) {
+            return this.entries == null ? this.loaded.copy() : this.entries.write(tag);
+        }
+    }
+}
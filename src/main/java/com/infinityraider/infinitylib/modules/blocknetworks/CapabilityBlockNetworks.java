@@ -0,0 +1,60 @@
+package com.infinityraider.infinitylib.modules.blocknetworks;
+
+import com.infinityraider.infinitylib.capability.IInfSerializableCapabilityImplementation;
+import com.infinityraider.infinitylib.reference.Reference;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.world.level.chunk.LevelChunk;
+import net.minecraftforge.common.capabilities.Capability;
+import net.minecraftforge.common.capabilities.CapabilityManager;
+import net.minecraftforge.common.capabilities.CapabilityToken;
+
+import javax.annotation.Nullable;
+
+public class CapabilityBlockNetworks implements IInfSerializableCapabilityImplementation<LevelChunk, BlockNetworkChunk> {
+    private static final CapabilityBlockNetworks INSTANCE = new CapabilityBlockNetworks();
+
+    public static CapabilityBlockNetworks getInstance() {
+        return INSTANCE;
+    }
+
+    public static ResourceLocation KEY = new ResourceLocation(Reference.MOD_ID.toLowerCase(), "block_networks");
+
+    public static Capability<BlockNetworkChunk> CAPABILITY_BLOCK_NETWORKS = CapabilityManager.get(new CapabilityToken<>(){});
+
+    private CapabilityBlockNetworks() {}
+
+    @Override
+    public Capability<BlockNetworkChunk> getCapability() {
+        return CAPABILITY_BLOCK_NETWORKS;
+    }
+
+    @Override
+    public boolean shouldApplyCapability(LevelChunk carrier) {
+        return true;
+    }
+
+    @Override
+    public BlockNetworkChunk createNewValue(LevelChunk carrier) {
+        return new BlockNetworkChunk(carrier);
+    }
+
+    @Override
+    public ResourceLocation getCapabilityKey() {
+        return KEY;
+    }
+
+    @Override
+    public Class<LevelChunk> getCarrierClass() {
+        return LevelChunk.class;
+    }
+
+    @Override
+    public Class<BlockNetworkChunk> getCapabilityClass() {
+        return BlockNetworkChunk.class;
+    }
+
+    @Nullable
+    public static BlockNetworkChunk getBlockNetworks(LevelChunk chunk) {
+        return chunk.getCapability(CAPABILITY_BLOCK_NETWORKS, null).orElse(null);
+    }
+}
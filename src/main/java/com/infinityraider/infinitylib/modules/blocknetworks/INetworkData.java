@@ -0,0 +1,40 @@
+package com.infinityraider.infinitylib.modules.blocknetworks;
+
+import net.minecraft.core.BlockPos;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraftforge.common.util.INBTSerializable;
+
+/**
+ * Aggregate data which is shared by all nodes of a BlockNetwork, e.g. a shared energy or fluid buffer.
+ * The data follows the network when networks are merged or split.
+ * @param <D> the type of the data
+ */
+public interface INetworkData<D extends INetworkData<D>> extends INBTSerializable<CompoundTag> {
+    /**
+     * Called when a node has been added to the network
+     * @param network the network
+     * @param pos the position of the node
+     */
+    default void onNodeAdded(BlockNetwork<D> network, BlockPos pos) {}
+
+    /**
+     * Called when a node has been removed from the network, before the network is split if needed
+     * @param network the network
+     * @param pos the position of the node
+     */
+    default void onNodeRemoved(BlockNetwork<D> network, BlockPos pos) {}
+
+    /**
+     * Called when another network has been merged into the network holding this data
+     * @param other the data of the other network, which is discarded afterwards
+     */
+    void merge(D other);
+
+    /**
+     * Called when part of the network holding this data has been disconnected, to divide the data
+     * @param size the number of nodes in the disconnected part
+     * @param total the number of nodes in the network before it was split
+     * @return the data for the disconnected part
+     */
+    D split(int size, int total);
+}
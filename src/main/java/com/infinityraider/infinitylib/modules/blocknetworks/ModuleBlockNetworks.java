@@ -0,0 +1,43 @@
+package com.infinityraider.infinitylib.modules.blocknetworks;
+
+import com.google.common.collect.ImmutableList;
+import com.infinityraider.infinitylib.capability.ICapabilityImplementation;
+import com.infinityraider.infinitylib.modules.Module;
+import net.minecraft.resources.ResourceLocation;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Module to maintain networks of connected blocks, e.g. pipes or cables, see BlockNetworkManager
+ */
+public class ModuleBlockNetworks extends Module {
+    private static final ModuleBlockNetworks INSTANCE = new ModuleBlockNetworks();
+
+    public static final CapabilityBlockNetworks CAPABILITY = CapabilityBlockNetworks.getInstance();
+    public static final BlockNetworkManager MANAGER = BlockNetworkManager.getInstance();
+
+    public static ModuleBlockNetworks getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Registers a new type of networks, must be called during mod construction
+     * @param id the unique id of the type, used to persist the networks
+     * @param dataFactory factory for the aggregate data of new networks
+     * @return the network type
+     */
+    public <D extends INetworkData<D>> NetworkType<D> registerNetworkType(ResourceLocation id, Supplier<D> dataFactory) {
+        return MANAGER.registerType(id, dataFactory);
+    }
+
+    @Override
+    public List<Object> getCommonEventHandlers() {
+        return ImmutableList.of(MANAGER);
+    }
+
+    @Override
+    public List<ICapabilityImplementation<?,?>> getCapabilities() {
+        return ImmutableList.of(CAPABILITY);
+    }
+}
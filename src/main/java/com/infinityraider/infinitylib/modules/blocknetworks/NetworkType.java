@@ -0,0 +1,33 @@
+package com.infinityraider.infinitylib.modules.blocknetworks;
+
+import net.minecraft.resources.ResourceLocation;
+
+import java.util.function.Supplier;
+
+/**
+ * A type of block networks, e.g. item pipes or power cables. Nodes of different types never connect to each other.
+ * Types are created through ModuleBlockNetworks.registerNetworkType()
+ * @param <D> the type of the aggregate data of the networks
+ */
+public final class NetworkType<D extends INetworkData<D>> {
+    private final ResourceLocation id;
+    private final Supplier<D> dataFactory;
+
+    NetworkType(ResourceLocation id, Supplier<D> dataFactory) {
+        this.id = id;
+        this.dataFactory = dataFactory;
+    }
+
+    public ResourceLocation getId() {
+        return this.id;
+    }
+
+    public D createData() {
+        return this.dataFactory.get();
+    }
+
+    @Override
+    public String toString() {
+        return this.id.toString();
+    }
+}
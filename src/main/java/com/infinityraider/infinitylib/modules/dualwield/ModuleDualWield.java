@@ -3,6 +3,7 @@ package com.infinityraider.infinitylib.modules.dualwield;
 import com.google.common.collect.ImmutableList;
 import com.infinityraider.infinitylib.modules.Module;
 import com.infinityraider.infinitylib.network.INetworkWrapper;
+import com.infinityraider.infinitylib.network.RateLimit;
 import net.minecraft.core.particles.ParticleTypes;
 import net.minecraft.network.protocol.game.ClientboundSetEntityMotionPacket;
 import net.minecraft.server.level.ServerLevel;
@@ -43,8 +44,9 @@ public class ModuleDualWield extends Module {
 
     @Override
     public void registerMessages(INetworkWrapper wrapper) {
-        wrapper.registerMessage(MessageAttackDualWielded.class);
-        wrapper.registerMessage(MessageMouseButtonPressed.class);
+        // Clicks are limited to one per tick on average, with some slack for network jitter
+        wrapper.registerMessage(MessageAttackDualWielded.class, RateLimit.perSecond(20, 10));
+        wrapper.registerMessage(MessageMouseButtonPressed.class, RateLimit.perSecond(20, 10));
         wrapper.registerMessage(MessageSwingArm.class);
     }
 
@@ -1,9 +1,10 @@
 package com.infinityraider.infinitylib.modules.entitytargeting;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import net.minecraft.world.entity.Entity;
 import net.minecraft.world.entity.Mob;
-import net.minecraft.world.entity.ai.goal.target.NearestAttackableTargetGoal;
-import net.minecraftforge.event.entity.living.LivingSpawnEvent;
+import net.minecraftforge.event.entity.EntityJoinWorldEvent;
 import net.minecraftforge.eventbus.api.SubscribeEvent;
 
 import java.util.ArrayList;
@@ -18,33 +19,88 @@ public class EntityTargetingHandler {
         return INSTANCE;
     }
 
-    private Map<Class<? extends Mob>, List<Class<? extends Entity>>> targetMap;
+    private final Map<Class<? extends Mob>, List<Class<? extends Entity>>> targetMap;
+
+    private volatile RuleCache rules;
 
     private EntityTargetingHandler() {
         this.targetMap = new HashMap<>();
+        this.rules = new RuleCache(ImmutableMap.of());
     }
 
     void registerEntityTargetingRule(Class<? extends Entity> target, Class<? extends Mob> aggressor) {
-        if(!this.targetMap.containsKey(aggressor)) {
-            this.targetMap.put(aggressor, new ArrayList<>());
+        synchronized (this.targetMap) {
+            if(!this.targetMap.containsKey(aggressor)) {
+                this.targetMap.put(aggressor, new ArrayList<>());
+            }
+            this.targetMap.get(aggressor).add(target);
+            // Rebuild the cache, as class values can not be invalidated
+            ImmutableMap.Builder<Class<? extends Mob>, List<Class<? extends Entity>>> builder = ImmutableMap.builder();
+            this.targetMap.forEach((key, value) -> builder.put(key, ImmutableList.copyOf(value)));
+            this.rules = new RuleCache(builder.build());
         }
-        this.targetMap.get(aggressor).add(target);
     }
 
+    /**
+     * Fetches the classes of entities which are targeted by a class of mobs
+     * @param aggressor the class of mobs
+     * @return the targeted classes, empty if the mob has no targeting rules
+     */
+    List<Class<? extends Entity>> getTargets(Class<?> aggressor) {
+        return this.rules.targets.get(aggressor);
+    }
+
+    /**
+     * Checks if a class of entities is targeted by any targeting rule
+     * @param clazz the class of entities
+     * @return true if entities of this class can be targeted
+     */
+    boolean isTarget(Class<?> clazz) {
+        return this.rules.candidates.get(clazz);
+    }
+
+    /**
+     * Mobs receive a single goal for all of their targeting rules, which queries the shared TargetAcquisitionService
+     */
     @SubscribeEvent
-    @SuppressWarnings({"unused", "unchecked"})
-    public void onZombieSpawn(LivingSpawnEvent event) {
-        if(!(event.getEntity() instanceof Mob)) {
+    @SuppressWarnings("unused")
+    public void onEntityJoinWorld(EntityJoinWorldEvent event) {
+        if(event.getWorld().isClientSide() || !(event.getEntity() instanceof Mob)) {
             return;
         }
         Mob mob = (Mob) event.getEntity();
-        //if i replace this with a stream it stops working for some reason >>
-        for(Map.Entry<Class<? extends Mob>, List<Class<? extends Entity>>> entry : this.targetMap.entrySet()) {
-            if (entry.getKey().isAssignableFrom(mob.getClass())) {
-                for (Class<? extends Entity> entityClass : entry.getValue()) {
-                    mob.targetSelector.addGoal(2, new NearestAttackableTargetGoal(mob, entityClass, true));
+        List<Class<? extends Entity>> targets = this.getTargets(mob.getClass());
+        if(!targets.isEmpty()) {
+            mob.targetSelector.addGoal(2, new SharedNearestTargetGoal(mob, targets, true));
+        }
+    }
+
+    /**
+     * Caches the rules which apply to a class, to avoid walking all rules for every mob
+     */
+    private static final class RuleCache {
+        private final ClassValue<List<Class<? extends Entity>>> targets;
+        private final ClassValue<Boolean> candidates;
+
+        private RuleCache(Map<Class<? extends Mob>, List<Class<? extends Entity>>> rules) {
+            this.targets = new ClassValue<>() {
+                @Override
+                protected List<Class<? extends Entity>> computeValue(Class<?> type) {
+                    ImmutableList.Builder<Class<? extends Entity>> builder = ImmutableList.builder();
+                    rules.forEach((aggressor, targets) -> {
+                        if(aggressor.isAssignableFrom(type)) {
+                            builder.addAll(targets);
+                        }
+                    });
+                    return builder.build();
                 }
-            }
+            };
+            this.candidates = new ClassValue<>() {
+                @Override
+                protected Boolean computeValue(Class<?> type) {
+                    return rules.values().stream().flatMap(List::stream).anyMatch(target -> target.isAssignableFrom(type));
+                }
+            };
         }
     }
 }
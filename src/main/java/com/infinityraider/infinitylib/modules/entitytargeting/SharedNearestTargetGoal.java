@@ -0,0 +1,52 @@
+package com.infinityraider.infinitylib.modules.entitytargeting;
+
+import net.minecraft.world.entity.Entity;
+import net.minecraft.world.entity.LivingEntity;
+import net.minecraft.world.entity.Mob;
+import net.minecraft.world.entity.ai.goal.Goal;
+import net.minecraft.world.entity.ai.goal.target.TargetGoal;
+import net.minecraft.world.entity.ai.targeting.TargetingConditions;
+
+import javax.annotation.Nullable;
+import java.util.EnumSet;
+import java.util.List;
+
+/**
+ * Equivalent of NearestAttackableTargetGoal for a set of target classes,
+ * which queries the TargetAcquisitionService rather than scanning the world on its own
+ */
+public class SharedNearestTargetGoal extends TargetGoal {
+    private static final int DEFAULT_RANDOM_INTERVAL = 10;
+
+    private final List<Class<? extends Entity>> targetClasses;
+    private final int randomInterval;
+    private final TargetingConditions targetConditions;
+
+    @Nullable
+    private LivingEntity target;
+
+    public SharedNearestTargetGoal(Mob mob, List<Class<? extends Entity>> targetClasses, boolean mustSee) {
+        super(mob, mustSee, false);
+        this.targetClasses = targetClasses;
+        this.randomInterval = reducedTickDelay(DEFAULT_RANDOM_INTERVAL);
+        this.targetConditions = TargetingConditions.forCombat().range(this.getFollowDistance());
+        this.setFlags(EnumSet.of(Goal.Flag.TARGET));
+    }
+
+    @Override
+    public boolean canUse() {
+        if(this.randomInterval > 0 && this.mob.getRandom().nextInt(this.randomInterval) != 0) {
+            return false;
+        }
+        this.target = TargetAcquisitionService.getInstance().findNearestTarget(this.mob, this.targetClasses,
+                this.mob.getBoundingBox().inflate(this.getFollowDistance(), 4.0D, this.getFollowDistance()),
+                this.targetConditions.range(this.getFollowDistance()));
+        return this.target != null;
+    }
+
+    @Override
+    public void start() {
+        this.mob.setTarget(this.target);
+        super.start();
+    }
+}
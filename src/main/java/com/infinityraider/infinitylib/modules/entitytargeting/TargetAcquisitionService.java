@@ -0,0 +1,134 @@
+package com.infinityraider.infinitylib.modules.entitytargeting;
+
+import com.google.common.collect.Lists;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.util.Mth;
+import net.minecraft.world.entity.Entity;
+import net.minecraft.world.entity.LivingEntity;
+import net.minecraft.world.entity.Mob;
+import net.minecraft.world.entity.ai.targeting.TargetingConditions;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.phys.AABB;
+
+import javax.annotation.Nullable;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Shared target acquisition for mobs with targeting rules.
+ * Once per tick and per dimension, all entities which can be targeted by any rule are indexed per chunk,
+ * target goals then query the index rather than each performing their own entity scan.
+ */
+public class TargetAcquisitionService {
+    private static final TargetAcquisitionService INSTANCE = new TargetAcquisitionService();
+
+    public static TargetAcquisitionService getInstance() {
+        return INSTANCE;
+    }
+
+    private final Map<Level, Index> indices;
+
+    private TargetAcquisitionService() {
+        this.indices = new WeakHashMap<>();
+    }
+
+    /**
+     * Finds the nearest valid target for a mob, called from the server thread
+     * @param mob the mob looking for a target
+     * @param targetClasses the classes of entities which the mob targets
+     * @param area the area in which to look for targets
+     * @param conditions the conditions which the target must satisfy
+     * @return the nearest target, or null if there is none
+     */
+    @Nullable
+    public LivingEntity findNearestTarget(Mob mob, List<Class<? extends Entity>> targetClasses, AABB area, TargetingConditions conditions) {
+        if(!(mob.getLevel() instanceof ServerLevel)) {
+            return null;
+        }
+        List<LivingEntity> candidates = this.getIndex((ServerLevel) mob.getLevel()).query(area, targetClasses);
+        if(candidates.isEmpty()) {
+            return null;
+        }
+        // Test conditions from near to far, as line of sight checks are expensive
+        candidates.sort(Comparator.comparingDouble(mob::distanceToSqr));
+        for(LivingEntity candidate : candidates) {
+            if(candidate != mob && conditions.test(mob, candidate)) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    private Index getIndex(ServerLevel world) {
+        Index index = this.indices.computeIfAbsent(world, w -> new Index());
+        long time = world.getGameTime();
+        if(index.time != time) {
+            index.build(world, time);
+        }
+        return index;
+    }
+
+    /**
+     * Candidate targets of a single dimension, grouped per chunk
+     */
+    private static final class Index {
+        private final Long2ObjectMap<List<LivingEntity>> entities;
+        private long time;
+
+        private Index() {
+            this.entities = new Long2ObjectOpenHashMap<>();
+            this.time = Long.MIN_VALUE;
+        }
+
+        private void build(ServerLevel world, long time) {
+            this.time = time;
+            this.entities.clear();
+            EntityTargetingHandler rules = EntityTargetingHandler.getInstance();
+            for(Entity entity : world.getAllEntities()) {
+                if(entity instanceof LivingEntity && entity.isAlive() && rules.isTarget(entity.getClass())) {
+                    long key = ChunkPos.asLong(entity.getBlockX() >> 4, entity.getBlockZ() >> 4);
+                    this.entities.computeIfAbsent(key, k -> Lists.newArrayList()).add((LivingEntity) entity);
+                }
+            }
+        }
+
+        private List<LivingEntity> query(AABB area, List<Class<? extends Entity>> targetClasses) {
+            List<LivingEntity> found = Lists.newArrayList();
+            if(this.entities.isEmpty()) {
+                return found;
+            }
+            int minX = Mth.floor(area.minX) >> 4;
+            int maxX = Mth.floor(area.maxX) >> 4;
+            int minZ = Mth.floor(area.minZ) >> 4;
+            int maxZ = Mth.floor(area.maxZ) >> 4;
+            for(int x = minX; x <= maxX; x++) {
+                for(int z = minZ; z <= maxZ; z++) {
+                    List<LivingEntity> entities = this.entities.get(ChunkPos.asLong(x, z));
+                    if(entities == null) {
+                        continue;
+                    }
+                    for(LivingEntity entity : entities) {
+                        if(entity.isAlive() && entity.getBoundingBox().intersects(area) && isInstance(entity, targetClasses)) {
+                            found.add(entity);
+                        }
+                    }
+                }
+            }
+            return found;
+        }
+
+        private static boolean isInstance(Entity entity, List<Class<? extends Entity>> classes) {
+            for(Class<? extends Entity> clazz : classes) {
+                if(clazz.isInstance(entity)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -1,32 +1,22 @@
 package com.infinityraider.infinitylib.modules.playerstate;
 
-import com.google.common.collect.Maps;
 import com.infinityraider.infinitylib.network.MessageBase;
 import net.minecraft.world.entity.player.Player;
 import net.minecraftforge.network.NetworkDirection;
 import net.minecraftforge.network.NetworkEvent;
 
-import java.util.Arrays;
-import java.util.EnumMap;
-import java.util.stream.Collectors;
-
 public class MessageSyncState extends MessageBase {
     private Player player;
-    private EnumMap<StatusEffect, Boolean> state;
+    private long active;
 
     public MessageSyncState() {
         super();
     }
 
-    public MessageSyncState(Player player, PlayerState state) {
+    public MessageSyncState(Player player, long active) {
         this();
         this.player = player;
-        this.state = Arrays.stream(StatusEffect.values()).collect(Collectors.toMap(
-                effect -> effect,
-                state::isActive,
-                (a, b) -> a == b ? a : true,
-                () -> Maps.newEnumMap(StatusEffect.class)
-        ));
+        this.active = active;
     }
 
     @Override
@@ -37,7 +27,7 @@ public class MessageSyncState extends MessageBase {
     @Override
     protected void processMessage(NetworkEvent.Context ctx) {
         if(this.player != null) {
-            ModulePlayerState.getInstance().getState(this.player).onSync(this.state);
+            ModulePlayerState.getInstance().getState(this.player).onSync(this.active);
         }
     }
 }
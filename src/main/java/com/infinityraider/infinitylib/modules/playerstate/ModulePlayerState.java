@@ -5,9 +5,7 @@ import com.infinityraider.infinitylib.modules.Module;
 import com.infinityraider.infinitylib.network.INetworkWrapper;
 import net.minecraft.world.entity.player.Player;
 
-import java.util.HashMap;
 import java.util.List;
-import java.util.UUID;
 
 public class ModulePlayerState extends Module {
     private static final ModulePlayerState INSTANCE = new ModulePlayerState();
@@ -17,17 +15,14 @@ public class ModulePlayerState extends Module {
         return INSTANCE;
     }
 
-    private final ThreadLocal<HashMap<UUID, PlayerState>> states;
+    private ModulePlayerState() {}
 
-    private ModulePlayerState() {
-        this.states = ThreadLocal.withInitial(HashMap::new);
+    PlayerState getState(Player player) {
+        return PlayerStateStore.get(player).getState(player);
     }
 
-    PlayerState getState(Player player) {
-        if(!states.get().containsKey(player.getUUID())) {
-            states.get().put(player.getUUID(), PlayerState.createState(player));
-        }
-        return states.get().get(player.getUUID());
+    public boolean isActive(Player player, StatusEffect effect) {
+        return PlayerStateStore.get(player).isActive(player, effect);
     }
 
     public void push(Player player, StatusEffect effect) {
@@ -9,7 +9,7 @@ import java.util.EnumMap;
 
 public abstract class PlayerState {
     public static PlayerState createState(Player player) {
-        return InfinityLib.instance.proxy().getLogicalSide().isClient() ? new Client(player) : new Server(player);
+        return player.getLevel().isClientSide() ? new Client(player) : new Server(player);
     }
 
     /** Player pointer */
@@ -23,7 +23,9 @@ public abstract class PlayerState {
         return this.player;
     }
 
-    public abstract boolean isActive(StatusEffect status);
+    public boolean isActive(StatusEffect status) {
+        return PlayerStateStore.get(this.getPlayer()).isActive(this.getPlayer(), status);
+    }
 
     public abstract void push(StatusEffect effect);
 
@@ -31,7 +33,9 @@ public abstract class PlayerState {
 
     public abstract void clear(StatusEffect effect);
 
-    protected abstract void onSync(EnumMap<StatusEffect, Boolean> map);
+    protected abstract void onSync(long active);
+
+    protected abstract void copyFrom(PlayerState state);
 
     private static class Server extends PlayerState {
         /** Statuses */
@@ -42,16 +46,12 @@ public abstract class PlayerState {
             this.statuses = Maps.newEnumMap(StatusEffect.class);
         }
 
-        @Override
-        public boolean isActive(StatusEffect status) {
-            return this.getTracker(status).isActive();
-        }
-
         @Override
         public void push(StatusEffect effect) {
             if(effect.isValid()) {
                 StatusTracker.Update update = this.getTracker(effect).push();
                 if(update.hasUpdated()) {
+                    this.updateActive();
                     update.callBack(effect, this.getPlayer());
                     this.syncToClient();
                 }
@@ -63,6 +63,7 @@ public abstract class PlayerState {
             if(effect.isValid()) {
                 StatusTracker.Update update = this.getTracker(effect).pop();
                 if(update.hasUpdated()) {
+                    this.updateActive();
                     update.callBack(effect, this.getPlayer());
                     this.syncToClient();
                 }
@@ -74,6 +75,7 @@ public abstract class PlayerState {
             if (effect.isValid()) {
                 StatusTracker.Update update = this.getTracker(effect).clear();
                 if(update.hasUpdated()) {
+                    this.updateActive();
                     update.callBack(effect, this.getPlayer());
                     this.syncToClient();
                 }
@@ -81,30 +83,42 @@ public abstract class PlayerState {
         }
 
         @Override
-        protected void onSync(EnumMap<StatusEffect, Boolean> map) {}
+        protected void onSync(long active) {}
+
+        @Override
+        protected void copyFrom(PlayerState state) {
+            if(state instanceof Server) {
+                this.statuses.clear();
+                ((Server) state).statuses.forEach((effect, tracker) -> this.getTracker(effect).copyFrom(tracker));
+                this.updateActive();
+                this.syncToClient();
+            }
+        }
 
         protected StatusTracker getTracker(StatusEffect effect) {
             return this.statuses.computeIfAbsent(effect,StatusTracker::new);
         }
 
+        private void updateActive() {
+            long active = 0;
+            for(StatusTracker tracker : this.statuses.values()) {
+                if(tracker.isActive()) {
+                    active |= PlayerStateStore.getMask(tracker.getHandler());
+                }
+            }
+            PlayerStateStore.get(this.getPlayer()).setActive(this.getPlayer(), active);
+        }
+
         private void syncToClient() {
             if(InfinityLib.instance.getEffectiveSide() == LogicalSide.SERVER) {
-                new MessageSyncState(getPlayer(), this).sendToAll();
+                new MessageSyncState(getPlayer(), PlayerStateStore.get(this.getPlayer()).getActive(this.getPlayer())).sendToAll();
             }
         }
     }
 
     private static class Client extends PlayerState {
-        private final EnumMap<StatusEffect, Boolean> status;
-
         private Client(Player player) {
             super(player);
-            this.status = Maps.newEnumMap(StatusEffect.class);
-        }
-
-        @Override
-        public boolean isActive(StatusEffect status) {
-            return this.status.computeIfAbsent(status, s -> false);
         }
 
         @Override
@@ -117,9 +131,11 @@ public abstract class PlayerState {
         public void clear(StatusEffect effect) {}
 
         @Override
-        protected void onSync(EnumMap<StatusEffect, Boolean> map) {
-            this.status.clear();
-            this.status.putAll(map);
+        protected void onSync(long active) {
+            PlayerStateStore.get(this.getPlayer()).setActive(this.getPlayer(), active);
         }
+
+        @Override
+        protected void copyFrom(PlayerState state) {}
     }
 }
@@ -1,5 +1,6 @@
 package com.infinityraider.infinitylib.modules.playerstate;
 
+import net.minecraft.server.level.ServerPlayer;
 import net.minecraft.world.entity.Entity;
 import net.minecraft.world.entity.LivingEntity;
 import net.minecraft.world.entity.Mob;
@@ -8,10 +9,12 @@ import net.minecraft.world.phys.EntityHitResult;
 import net.minecraft.world.phys.HitResult;
 import net.minecraftforge.api.distmarker.Dist;
 import net.minecraftforge.api.distmarker.OnlyIn;
+import net.minecraftforge.client.event.ClientPlayerNetworkEvent;
 import net.minecraftforge.client.event.RenderPlayerEvent;
 import net.minecraftforge.event.entity.ProjectileImpactEvent;
 import net.minecraftforge.event.entity.living.LivingHurtEvent;
 import net.minecraftforge.event.entity.living.LivingSetAttackTargetEvent;
+import net.minecraftforge.event.entity.player.PlayerEvent;
 import net.minecraftforge.eventbus.api.Event;
 import net.minecraftforge.eventbus.api.EventPriority;
 import net.minecraftforge.eventbus.api.SubscribeEvent;
@@ -76,6 +79,45 @@ public class PlayerStateHandler {
         }
     }
 
+    @SubscribeEvent
+    @SuppressWarnings("unused")
+    public void onPlayerLogin(PlayerEvent.PlayerLoggedInEvent event) {
+        // Send the states of the other players, the bitfields are keyed by entity id, which does not change while logged in
+        if(event.getPlayer() instanceof ServerPlayer && event.getPlayer().getServer() != null) {
+            PlayerStateStore store = PlayerStateStore.getServer();
+            event.getPlayer().getServer().getPlayerList().getPlayers().forEach(player -> {
+                long active = store.getActive(player);
+                if(active != 0) {
+                    new MessageSyncState(player, active).sendTo((ServerPlayer) event.getPlayer());
+                }
+            });
+        }
+    }
+
+    @SubscribeEvent
+    @SuppressWarnings("unused")
+    public void onPlayerLogout(PlayerEvent.PlayerLoggedOutEvent event) {
+        if(!event.getPlayer().getLevel().isClientSide()) {
+            PlayerStateStore.getServer().remove(event.getPlayer());
+        }
+    }
+
+    @SubscribeEvent
+    @SuppressWarnings("unused")
+    public void onPlayerRespawn(PlayerEvent.PlayerRespawnEvent event) {
+        // Respawned players only take over the id of the original after cloning, so carry the state over once respawned
+        if(!event.getPlayer().getLevel().isClientSide()) {
+            PlayerStateStore.getServer().getState(event.getPlayer());
+        }
+    }
+
+    @SubscribeEvent
+    @OnlyIn(Dist.CLIENT)
+    @SuppressWarnings("unused")
+    public void onClientLogout(ClientPlayerNetworkEvent.LoggedOutEvent event) {
+        PlayerStateStore.getClient().clear();
+    }
+
     @SubscribeEvent
     @SuppressWarnings("unused")
     public void onEntityTargetingEvent(LivingSetAttackTargetEvent event) {
@@ -0,0 +1,151 @@
+package com.infinityraider.infinitylib.modules.playerstate;
+
+import it.unimi.dsi.fastutil.HashCommon;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import net.minecraft.world.entity.player.Player;
+
+import java.util.Arrays;
+
+/**
+ * Stores the player states of a single logical side, keyed by entity id.
+ *
+ * The active StatusEffects of each player are stored as a bitfield in an open addressing hash table made of two
+ * primitive arrays, so that checking if an effect is active is a lock-free array read and a bit test.
+ * Writes are rare compared to reads: they replace the whole table, which is published atomically.
+ */
+final class PlayerStateStore {
+    private static final PlayerStateStore SERVER = new PlayerStateStore();
+    private static final PlayerStateStore CLIENT = new PlayerStateStore();
+
+    static PlayerStateStore get(Player player) {
+        return player.getLevel().isClientSide() ? CLIENT : SERVER;
+    }
+
+    static PlayerStateStore getServer() {
+        return SERVER;
+    }
+
+    static PlayerStateStore getClient() {
+        return CLIENT;
+    }
+
+    /**
+     * @return the bit of an effect in the bitfield
+     * @throws IllegalStateException if StatusEffect has been extended past the size of the bitfield
+     */
+    static long getMask(StatusEffect effect) {
+        if(effect.ordinal() >= Long.SIZE) {
+            throw new IllegalStateException("At most " + Long.SIZE + " StatusEffects are supported, " + effect.getId() + " does not fit");
+        }
+        return 1L << effect.ordinal();
+    }
+
+    private final Int2ObjectMap<PlayerState> states;
+    private volatile Table table;
+
+    private PlayerStateStore() {
+        this.states = new Int2ObjectOpenHashMap<>();
+        this.table = Table.EMPTY;
+    }
+
+    boolean isActive(Player player, StatusEffect effect) {
+        return (this.table.get(player.getId()) & getMask(effect)) != 0;
+    }
+
+    long getActive(Player player) {
+        return this.table.get(player.getId());
+    }
+
+    /**
+     * Respawned players are new entities which take over the id of the original, their state is carried over
+     */
+    synchronized PlayerState getState(Player player) {
+        PlayerState previous = this.states.get(player.getId());
+        if(previous != null && previous.getPlayer() == player) {
+            return previous;
+        }
+        PlayerState state = PlayerState.createState(player);
+        this.states.put(player.getId(), state);
+        if(previous != null) {
+            state.copyFrom(previous);
+        }
+        return state;
+    }
+
+    synchronized void setActive(Player player, long active) {
+        this.table = this.table.with(player.getId(), active);
+    }
+
+    synchronized void remove(Player player) {
+        this.states.remove(player.getId());
+        this.table = this.table.with(player.getId(), 0);
+    }
+
+    synchronized void clear() {
+        this.states.clear();
+        this.table = Table.EMPTY;
+    }
+
+    /**
+     * Immutable open addressing hash table of entity ids to bitfields, only non-zero bitfields are stored
+     */
+    private static final class Table {
+        private static final int FREE = Integer.MIN_VALUE;
+        private static final Table EMPTY = new Table(new int[] {FREE}, new long[1], 0);
+
+        private final int[] keys;
+        private final long[] values;
+        private final int mask;
+        private final int size;
+
+        private Table(int[] keys, long[] values, int size) {
+            this.keys = keys;
+            this.values = values;
+            this.mask = keys.length - 1;
+            this.size = size;
+        }
+
+        private long get(int id) {
+            int index = HashCommon.mix(id) & this.mask;
+            int key;
+            while((key = this.keys[index]) != FREE) {
+                if(key == id) {
+                    return this.values[index];
+                }
+                index = (index + 1) & this.mask;
+            }
+            return 0;
+        }
+
+        private Table with(int id, long value) {
+            // Keep the load factor below one half
+            int capacity = HashCommon.nextPowerOfTwo(2 * (this.size + 1));
+            int[] keys = new int[capacity];
+            long[] values = new long[capacity];
+            Arrays.fill(keys, FREE);
+            int size = 0;
+            for(int i = 0; i < this.keys.length; i++) {
+                if(this.keys[i] != FREE && this.keys[i] != id) {
+                    insert(keys, values, this.keys[i], this.values[i]);
+                    size++;
+                }
+            }
+            if(value != 0) {
+                insert(keys, values, id, value);
+                size++;
+            }
+            return size == 0 ? EMPTY : new Table(keys, values, size);
+        }
+
+        private static void insert(int[] keys, long[] values, int id, long value) {
+            int mask = keys.length - 1;
+            int index = HashCommon.mix(id) & mask;
+            while(keys[index] != FREE) {
+                index = (index + 1) & mask;
+            }
+            keys[index] = id;
+            values[index] = value;
+        }
+    }
+}
@@ -31,7 +31,7 @@ public enum StatusEffect implements IExtensibleEnum {
     }
 
     public final boolean isActive(Player player) {
-        return ModulePlayerState.getInstance().getState(player).isActive(this);
+        return ModulePlayerState.getInstance().isActive(player, this);
     }
 
     public void push(Player player) {
@@ -27,6 +27,11 @@ public class StatusTracker {
         return this.permanent || this.layers > 0;
     }
 
+    protected void copyFrom(StatusTracker tracker) {
+        this.layers = tracker.layers;
+        this.permanent = tracker.permanent;
+    }
+
     protected Update push() {
         boolean before = this.isActive();
         this.layers = this.layers + 1;
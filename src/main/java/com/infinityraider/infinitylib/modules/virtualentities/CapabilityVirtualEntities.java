@@ -0,0 +1,60 @@
+package com.infinityraider.infinitylib.modules.virtualentities;
+
+import com.infinityraider.infinitylib.capability.IInfSerializableCapabilityImplementation;
+import com.infinityraider.infinitylib.reference.Reference;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.world.level.chunk.LevelChunk;
+import net.minecraftforge.common.capabilities.Capability;
+import net.minecraftforge.common.capabilities.CapabilityManager;
+import net.minecraftforge.common.capabilities.CapabilityToken;
+
+import javax.annotation.Nullable;
+
+public class CapabilityVirtualEntities implements IInfSerializableCapabilityImplementation<LevelChunk, VirtualEntityChunk> {
+    private static final CapabilityVirtualEntities INSTANCE = new CapabilityVirtualEntities();
+
+    public static CapabilityVirtualEntities getInstance() {
+        return INSTANCE;
+    }
+
+    public static ResourceLocation KEY = new ResourceLocation(Reference.MOD_ID.toLowerCase(), "virtual_entities");
+
+    public static Capability<VirtualEntityChunk> CAPABILITY_VIRTUAL_ENTITIES = CapabilityManager.get(new CapabilityToken<>(){});
+
+    private CapabilityVirtualEntities() {}
+
+    @Override
+    public Capability<VirtualEntityChunk> getCapability() {
+        return CAPABILITY_VIRTUAL_ENTITIES;
+    }
+
+    @Override
+    public boolean shouldApplyCapability(LevelChunk carrier) {
+        return true;
+    }
+
+    @Override
+    public VirtualEntityChunk createNewValue(LevelChunk carrier) {
+        return new VirtualEntityChunk(carrier);
+    }
+
+    @Override
+    public ResourceLocation getCapabilityKey() {
+        return KEY;
+    }
+
+    @Override
+    public Class<LevelChunk> getCarrierClass() {
+        return LevelChunk.class;
+    }
+
+    @Override
+    public Class<VirtualEntityChunk> getCapabilityClass() {
+        return VirtualEntityChunk.class;
+    }
+
+    @Nullable
+    public static VirtualEntityChunk getVirtualEntities(LevelChunk chunk) {
+        return chunk.getCapability(CAPABILITY_VIRTUAL_ENTITIES, null).orElse(null);
+    }
+}
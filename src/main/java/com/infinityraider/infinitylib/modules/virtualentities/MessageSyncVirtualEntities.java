@@ -0,0 +1,84 @@
+package com.infinityraider.infinitylib.modules.virtualentities;
+
+import com.google.common.collect.Lists;
+import com.infinityraider.infinitylib.InfinityLib;
+import com.infinityraider.infinitylib.entity.AbstractEntityFrozen;
+import com.infinityraider.infinitylib.network.MessageBase;
+import net.minecraft.core.Registry;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.level.chunk.LevelChunk;
+import net.minecraftforge.network.NetworkDirection;
+import net.minecraftforge.network.NetworkEvent;
+
+import java.util.List;
+
+/**
+ * Bulk message containing all virtual entities in a chunk,
+ * positions are sent relative to the chunk origin to keep the message compact
+ */
+public class MessageSyncVirtualEntities extends MessageBase {
+    private ResourceKey<Level> dimension;
+    private int chunkX;
+    private int chunkZ;
+    private int[] types;
+    private float[] positions;
+    private CompoundTag[] data;
+
+    public MessageSyncVirtualEntities() {
+        super();
+    }
+
+    public MessageSyncVirtualEntities(VirtualEntityChunk entities) {
+        this();
+        LevelChunk chunk = entities.getChunk();
+        this.dimension = chunk.getLevel().dimension();
+        this.chunkX = chunk.getPos().x;
+        this.chunkZ = chunk.getPos().z;
+        this.types = new int[entities.size()];
+        this.positions = new float[3*entities.size()];
+        this.data = new CompoundTag[entities.size()];
+        for(int i = 0; i < entities.size(); i++) {
+            AbstractEntityFrozen entity = entities.get(i);
+            this.types[i] = Registry.ENTITY_TYPE.getId(entity.getType());
+            this.positions[3*i] = (float) (entity.position().x - chunk.getPos().getMinBlockX());
+            this.positions[3*i + 1] = (float) entity.position().y;
+            this.positions[3*i + 2] = (float) (entity.position().z - chunk.getPos().getMinBlockZ());
+            this.data[i] = entity.writeFrozenData();
+        }
+    }
+
+    @Override
+    public NetworkDirection getMessageDirection() {
+        return NetworkDirection.PLAY_TO_CLIENT;
+    }
+
+    @Override
+    protected void processMessage(NetworkEvent.Context ctx) {
+        Level world = InfinityLib.instance.getClientWorld();
+        if(world == null || this.types == null || !world.dimension().equals(this.dimension)) {
+            return;
+        }
+        LevelChunk chunk = world.getChunkSource().getChunkNow(this.chunkX, this.chunkZ);
+        VirtualEntityChunk virtualEntities = chunk == null ? null : CapabilityVirtualEntities.getVirtualEntities(chunk);
+        if(virtualEntities == null) {
+            return;
+        }
+        ChunkPos pos = chunk.getPos();
+        List<AbstractEntityFrozen> entities = Lists.newArrayListWithCapacity(this.types.length);
+        for(int i = 0; i < this.types.length; i++) {
+            AbstractEntityFrozen entity = VirtualEntityChunk.create(world, Registry.ENTITY_TYPE.byId(this.types[i]));
+            if(entity != null) {
+                entity.setFrozenPosition(
+                        pos.getMinBlockX() + this.positions[3*i],
+                        this.positions[3*i + 1],
+                        pos.getMinBlockZ() + this.positions[3*i + 2]);
+                entity.readFrozenData(this.data[i], true);
+                entities.add(entity);
+            }
+        }
+        VirtualEntityManager.getInstance().onClientSync(world, virtualEntities, entities);
+    }
+}
@@ -0,0 +1,47 @@
+package com.infinityraider.infinitylib.modules.virtualentities;
+
+import com.google.common.collect.ImmutableList;
+import com.infinityraider.infinitylib.capability.ICapabilityImplementation;
+import com.infinityraider.infinitylib.modules.Module;
+import com.infinityraider.infinitylib.network.INetworkWrapper;
+import net.minecraftforge.api.distmarker.Dist;
+import net.minecraftforge.api.distmarker.OnlyIn;
+
+import java.util.List;
+
+/**
+ * Module to store large amounts of static AbstractEntityFrozen instances as virtual entities, see VirtualEntityManager
+ */
+public class ModuleVirtualEntities extends Module {
+    private static final ModuleVirtualEntities INSTANCE = new ModuleVirtualEntities();
+
+    public static final CapabilityVirtualEntities CAPABILITY = CapabilityVirtualEntities.getInstance();
+    public static final VirtualEntityManager MANAGER = VirtualEntityManager.getInstance();
+
+    public static ModuleVirtualEntities getInstance() {
+        return INSTANCE;
+    }
+
+    private ModuleVirtualEntities() {}
+
+    @Override
+    public void registerMessages(INetworkWrapper wrapper) {
+        wrapper.registerMessage(MessageSyncVirtualEntities.class);
+    }
+
+    @Override
+    public List<Object> getCommonEventHandlers() {
+        return ImmutableList.of(MANAGER);
+    }
+
+    @Override
+    @OnlyIn(Dist.CLIENT)
+    public List<Object> getClientEventHandlers() {
+        return ImmutableList.of(VirtualEntityRenderer.getInstance());
+    }
+
+    @Override
+    public List<ICapabilityImplementation<?,?>> getCapabilities() {
+        return ImmutableList.of(CAPABILITY);
+    }
+}
@@ -0,0 +1,189 @@
+package com.infinityraider.infinitylib.modules.virtualentities;
+
+import com.google.common.collect.ImmutableList;
+import com.infinityraider.infinitylib.InfinityLib;
+import com.infinityraider.infinitylib.capability.IInfSerializableCapabilityImplementation.Serializable;
+import com.infinityraider.infinitylib.entity.AbstractEntityFrozen;
+import com.infinityraider.infinitylib.reference.Names;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.ListTag;
+import net.minecraft.nbt.Tag;
+import net.minecraft.world.entity.Entity;
+import net.minecraft.world.entity.EntityType;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.level.chunk.LevelChunk;
+
+import javax.annotation.Nullable;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * The virtual entities in a single chunk, stored in a flat array
+ */
+public class VirtualEntityChunk implements Serializable<VirtualEntityChunk> {
+    private static final AbstractEntityFrozen[] EMPTY = new AbstractEntityFrozen[0];
+
+    private final LevelChunk chunk;
+
+    private AbstractEntityFrozen[] entities;
+    private int size;
+
+    /** Entities which have been read from disk, but which are instantiated only once the chunk is loaded */
+    private ListTag pending;
+
+    private boolean dirty;
+
+    protected VirtualEntityChunk(LevelChunk chunk) {
+        this.chunk = chunk;
+        this.entities = EMPTY;
+    }
+
+    public LevelChunk getChunk() {
+        return this.chunk;
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    public AbstractEntityFrozen get(int index) {
+        return this.entities[index];
+    }
+
+    public List<AbstractEntityFrozen> getEntities() {
+        return ImmutableList.copyOf(Arrays.asList(this.entities).subList(0, this.size));
+    }
+
+    public void forEach(Consumer<AbstractEntityFrozen> action) {
+        for(int i = 0; i < this.size; i++) {
+            action.accept(this.entities[i]);
+        }
+    }
+
+    protected void add(AbstractEntityFrozen entity) {
+        if(this.size == this.entities.length) {
+            this.entities = Arrays.copyOf(this.entities, Math.max(4, this.size * 2));
+        }
+        this.entities[this.size] = entity;
+        this.size++;
+        entity.setVirtual(true);
+        this.markDirty();
+    }
+
+    protected boolean remove(AbstractEntityFrozen entity) {
+        for(int i = 0; i < this.size; i++) {
+            if(this.entities[i] == entity) {
+                // Swap with the last entity, order does not matter
+                this.size--;
+                this.entities[i] = this.entities[this.size];
+                this.entities[this.size] = null;
+                entity.setVirtual(false);
+                this.markDirty();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    protected void replace(List<AbstractEntityFrozen> entities) {
+        Arrays.fill(this.entities, 0, this.size, null);
+        this.size = 0;
+        entities.forEach(this::add);
+        this.dirty = false;
+    }
+
+    /**
+     * Ticks all entities, entities are allowed to remove themselves while being ticked
+     */
+    protected void tick() {
+        // Iterate backwards, as removing an entity moves the last one into its slot
+        for(int i = this.size - 1; i >= 0; i--) {
+            if(i < this.size) {
+                this.entities[i].tickVirtual();
+            }
+        }
+    }
+
+    protected void markDirty() {
+        this.dirty = true;
+        this.chunk.setUnsaved(true);
+    }
+
+    protected boolean isDirty() {
+        return this.dirty;
+    }
+
+    protected void clearDirty() {
+        this.dirty = false;
+    }
+
+    /**
+     * Instantiates the entities which have been read from disk, called on the main thread when the chunk is loaded
+     */
+    protected void instantiate(Level world) {
+        ListTag pending = this.pending;
+        this.pending = null;
+        if(pending == null) {
+            return;
+        }
+        for(int i = 0; i < pending.size(); i++) {
+            CompoundTag tag = pending.getCompound(i);
+            AbstractEntityFrozen entity = create(world, EntityType.byString(tag.getString(Names.NBT.VALUE)).orElse(null));
+            if(entity == null) {
+                InfinityLib.instance.getLogger().error("Skipping unknown virtual entity " + tag.getString(Names.NBT.VALUE));
+                continue;
+            }
+            entity.setFrozenPosition(tag.getDouble(Names.NBT.X), tag.getDouble(Names.NBT.Y), tag.getDouble(Names.NBT.Z));
+            entity.readFrozenData(tag.getCompound(Names.NBT.DATA), false);
+            this.add(entity);
+        }
+        this.dirty = false;
+    }
+
+    @Nullable
+    protected static AbstractEntityFrozen create(Level world, @Nullable EntityType<?> type) {
+        Entity entity = type == null ? null : type.create(world);
+        return entity instanceof AbstractEntityFrozen ? (AbstractEntityFrozen) entity : null;
+    }
+
+    @Override
+    public void copyDataFrom(VirtualEntityChunk from) {}
+
+    @Override
+    public CompoundTag serializeNBT() {
+        CompoundTag tag = new CompoundTag();
+        if(this.pending != null) {
+            // The chunk has never been loaded completely
+            tag.put(Names.NBT.LIST, this.pending.copy());
+            return tag;
+        }
+        if(this.isEmpty()) {
+            // Most chunks do not have virtual entities, do not bloat their data with an empty list
+            return tag;
+        }
+        ListTag list = new ListTag();
+        this.forEach(entity -> {
+            CompoundTag entityTag = new CompoundTag();
+            entityTag.putString(Names.NBT.VALUE, EntityType.getKey(entity.getType()).toString());
+            entityTag.putDouble(Names.NBT.X, entity.position().x);
+            entityTag.putDouble(Names.NBT.Y, entity.position().y);
+            entityTag.putDouble(Names.NBT.Z, entity.position().z);
+            entityTag.put(Names.NBT.DATA, entity.writeFrozenData());
+            list.add(entityTag);
+        });
+        tag.put(Names.NBT.LIST, list);
+        return tag;
+    }
+
+    @Override
+    public void deserializeNBT(CompoundTag tag) {
+        // Chunks may be read off the main thread, entities are instantiated once the chunk is loaded
+        ListTag list = tag.getList(Names.NBT.LIST, Tag.TAG_COMPOUND);
+        this.pending = list.isEmpty() ? null : list;
+    }
+}
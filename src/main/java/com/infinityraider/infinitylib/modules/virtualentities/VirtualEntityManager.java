@@ -0,0 +1,292 @@
+package com.infinityraider.infinitylib.modules.virtualentities;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.infinityraider.infinitylib.entity.AbstractEntityFrozen;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.util.Mth;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.level.LevelAccessor;
+import net.minecraft.world.level.chunk.LevelChunk;
+import net.minecraft.world.phys.AABB;
+import net.minecraftforge.event.TickEvent;
+import net.minecraftforge.event.world.ChunkEvent;
+import net.minecraftforge.event.world.ChunkWatchEvent;
+import net.minecraftforge.event.world.WorldEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+
+import javax.annotation.Nullable;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Manages virtual entities: AbstractEntityFrozen instances which are not added to the level, but are stored in arrays
+ * per chunk, are saved with the chunk, and are ticked in one batch per level.
+ * Virtual entities do not take up an entity slot, are not tracked by the entity tracker, and are synced to clients
+ * with one bulk message per chunk when a player starts watching the chunk, or at the end of a tick in which they changed.
+ *
+ * Virtual entities can be materialized into real entities when something needs the vanilla Entity API,
+ * e.g. interaction, and real frozen entities can be virtualized again. On the client, VirtualEntityRenderer renders them.
+ */
+public class VirtualEntityManager {
+    private static final VirtualEntityManager INSTANCE = new VirtualEntityManager();
+
+    public static VirtualEntityManager getInstance() {
+        return INSTANCE;
+    }
+
+    private final Map<LevelAccessor, Entries> entries;
+
+    private VirtualEntityManager() {
+        this.entries = Collections.synchronizedMap(new WeakHashMap<>());
+    }
+
+    /**
+     * Adds a virtual entity, which must not have been added to the level, to the chunk at its position
+     * @param entity the entity
+     * @return false if the chunk at the position of the entity is not loaded
+     */
+    public boolean add(AbstractEntityFrozen entity) {
+        if(entity.isVirtual()) {
+            return true;
+        }
+        VirtualEntityChunk chunk = this.getChunk(entity.getLevel(), entity.chunkPosition());
+        if(chunk == null) {
+            return false;
+        }
+        chunk.add(entity);
+        this.getEntries(entity.getLevel()).onChanged(chunk);
+        return true;
+    }
+
+    /**
+     * Removes a virtual entity
+     * @param entity the entity
+     * @return true if the entity was removed
+     */
+    public boolean remove(AbstractEntityFrozen entity) {
+        if(!entity.isVirtual()) {
+            return false;
+        }
+        VirtualEntityChunk chunk = this.getChunk(entity.getLevel(), entity.chunkPosition());
+        if(chunk != null && chunk.remove(entity)) {
+            this.getEntries(entity.getLevel()).onChanged(chunk);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Turns a virtual entity into a real entity by adding it to the level, only works on the server
+     * @param entity the virtual entity
+     * @return true if the entity has been added to the level
+     */
+    public boolean materialize(AbstractEntityFrozen entity) {
+        if(entity.getLevel().isClientSide() || !this.remove(entity)) {
+            return false;
+        }
+        return entity.getLevel().addFreshEntity(entity);
+    }
+
+    /**
+     * Turns a real frozen entity into a virtual entity, the real entity is discarded and replaced with a copy
+     * @param entity the real entity
+     * @return the virtual copy, or null if it could not be created
+     */
+    @Nullable
+    public AbstractEntityFrozen virtualize(AbstractEntityFrozen entity) {
+        if(entity.isVirtual() || entity.getLevel().isClientSide()) {
+            return null;
+        }
+        AbstractEntityFrozen copy = VirtualEntityChunk.create(entity.getLevel(), entity.getType());
+        if(copy == null) {
+            return null;
+        }
+        copy.setFrozenPosition(entity.position().x, entity.position().y, entity.position().z);
+        copy.readFrozenData(entity.writeFrozenData(), false);
+        if(!this.add(copy)) {
+            return null;
+        }
+        entity.discard();
+        return copy;
+    }
+
+    /**
+     * Fetches the virtual entities in a chunk
+     * @param world the level
+     * @param pos the position of the chunk
+     * @return the virtual entities, empty if the chunk is not loaded
+     */
+    public List<AbstractEntityFrozen> getEntities(Level world, ChunkPos pos) {
+        VirtualEntityChunk chunk = this.getChunk(world, pos);
+        return chunk == null ? ImmutableList.of() : chunk.getEntities();
+    }
+
+    /**
+     * Fetches the virtual entities of a type within an area
+     * @param world the level
+     * @param area the area
+     * @param clazz the type of entities
+     * @return the virtual entities
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends AbstractEntityFrozen> List<T> getEntities(Level world, AABB area, Class<T> clazz) {
+        List<T> found = Lists.newArrayList();
+        int minX = Mth.floor(area.minX) >> 4;
+        int maxX = Mth.floor(area.maxX) >> 4;
+        int minZ = Mth.floor(area.minZ) >> 4;
+        int maxZ = Mth.floor(area.maxZ) >> 4;
+        for(int x = minX; x <= maxX; x++) {
+            for(int z = minZ; z <= maxZ; z++) {
+                VirtualEntityChunk chunk = this.getChunk(world, new ChunkPos(x, z));
+                if(chunk != null) {
+                    chunk.forEach(entity -> {
+                        if(clazz.isInstance(entity) && area.contains(entity.position())) {
+                            found.add((T) entity);
+                        }
+                    });
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Iterates over the loaded chunks of a level which contain virtual entities, must be called on the thread of the level
+     * @param world the level
+     * @param action the action to perform for each chunk
+     */
+    public void forEachChunk(Level world, Consumer<VirtualEntityChunk> action) {
+        Entries entries = this.entries.get(world);
+        if(entries != null) {
+            entries.active.forEach(action);
+        }
+    }
+
+    @Nullable
+    protected VirtualEntityChunk getChunk(Level world, ChunkPos pos) {
+        LevelChunk chunk = world.getChunkSource().getChunkNow(pos.x, pos.z);
+        return chunk == null ? null : CapabilityVirtualEntities.getVirtualEntities(chunk);
+    }
+
+    protected Entries getEntries(LevelAccessor world) {
+        return this.entries.computeIfAbsent(world, w -> new Entries());
+    }
+
+    protected void onClientSync(Level world, VirtualEntityChunk chunk, List<AbstractEntityFrozen> entities) {
+        chunk.replace(entities);
+        if(!chunk.isEmpty()) {
+            this.getEntries(world).active.add(chunk);
+        }
+    }
+
+    @SubscribeEvent
+    @SuppressWarnings("unused")
+    public void onChunkLoad(ChunkEvent.Load event) {
+        if(!(event.getChunk() instanceof LevelChunk) || !(event.getWorld() instanceof Level)) {
+            return;
+        }
+        VirtualEntityChunk chunk = CapabilityVirtualEntities.getVirtualEntities((LevelChunk) event.getChunk());
+        if(chunk != null) {
+            chunk.instantiate((Level) event.getWorld());
+            if(!chunk.isEmpty()) {
+                this.getEntries(event.getWorld()).active.add(chunk);
+            }
+        }
+    }
+
+    @SubscribeEvent
+    @SuppressWarnings("unused")
+    public void onChunkUnload(ChunkEvent.Unload event) {
+        Entries entries = this.entries.get(event.getWorld());
+        if(entries != null && event.getChunk() instanceof LevelChunk) {
+            VirtualEntityChunk chunk = CapabilityVirtualEntities.getVirtualEntities((LevelChunk) event.getChunk());
+            if(chunk != null) {
+                entries.active.remove(chunk);
+                entries.dirty.remove(chunk);
+            }
+        }
+    }
+
+    @SubscribeEvent
+    @SuppressWarnings("unused")
+    public void onWorldUnload(WorldEvent.Unload event) {
+        this.entries.remove(event.getWorld());
+    }
+
+    @SubscribeEvent
+    @SuppressWarnings("unused")
+    public void onChunkWatch(ChunkWatchEvent.Watch event) {
+        VirtualEntityChunk chunk = this.getChunk(event.getWorld(), event.getPos());
+        if(chunk != null && !chunk.isEmpty()) {
+            new MessageSyncVirtualEntities(chunk).sendTo(event.getPlayer());
+        }
+    }
+
+    @SubscribeEvent
+    @SuppressWarnings("unused")
+    public void onWorldTick(TickEvent.WorldTickEvent event) {
+        if(event.phase != TickEvent.Phase.END) {
+            return;
+        }
+        Entries entries = this.entries.get(event.world);
+        if(entries != null) {
+            entries.tick(event.world);
+            if(event.world instanceof ServerLevel) {
+                entries.sync((ServerLevel) event.world);
+            }
+        }
+    }
+
+    /**
+     * The chunks with virtual entities of a single level
+     */
+    protected static final class Entries {
+        private final Set<VirtualEntityChunk> active;
+        private final Set<VirtualEntityChunk> dirty;
+
+        private Entries() {
+            this.active = Sets.newIdentityHashSet();
+            this.dirty = Sets.newIdentityHashSet();
+        }
+
+        private void onChanged(VirtualEntityChunk chunk) {
+            this.active.add(chunk);
+            this.dirty.add(chunk);
+        }
+
+        private void tick(Level world) {
+            if(this.active.isEmpty()) {
+                return;
+            }
+            // Copy, as entities may add or remove other virtual entities while ticking
+            for(VirtualEntityChunk chunk : this.active.toArray(new VirtualEntityChunk[0])) {
+                if(chunk.isEmpty()) {
+                    this.active.remove(chunk);
+                } else if(world.shouldTickBlocksAt(chunk.getChunk().getPos().toLong())) {
+                    chunk.tick();
+                }
+            }
+        }
+
+        private void sync(ServerLevel world) {
+            if(this.dirty.isEmpty()) {
+                return;
+            }
+            for(VirtualEntityChunk chunk : this.dirty) {
+                if(chunk.isDirty()) {
+                    chunk.clearDirty();
+                    MessageSyncVirtualEntities message = new MessageSyncVirtualEntities(chunk);
+                    world.getChunkSource().chunkMap.getPlayers(chunk.getChunk().getPos(), false).forEach(message::sendTo);
+                }
+            }
+            this.dirty.clear();
+        }
+    }
+}
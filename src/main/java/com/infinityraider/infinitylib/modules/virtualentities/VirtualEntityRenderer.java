@@ -0,0 +1,69 @@
+package com.infinityraider.infinitylib.modules.virtualentities;
+
+import com.mojang.blaze3d.vertex.PoseStack;
+import net.minecraft.client.Camera;
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.multiplayer.ClientLevel;
+import net.minecraft.client.renderer.MultiBufferSource;
+import net.minecraft.client.renderer.culling.Frustum;
+import net.minecraft.client.renderer.entity.EntityRenderDispatcher;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.phys.AABB;
+import net.minecraft.world.phys.Vec3;
+import net.minecraftforge.api.distmarker.Dist;
+import net.minecraftforge.api.distmarker.OnlyIn;
+import net.minecraftforge.client.event.RenderLevelLastEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+
+/**
+ * Renders the virtual entities in the loaded chunks of the client level, as they are not part of the level's entity list.
+ * Chunks are culled against the view frustum and the render distance, the entities themselves are drawn with their
+ * regular EntityRenderer.
+ */
+@OnlyIn(Dist.CLIENT)
+public class VirtualEntityRenderer {
+    private static final VirtualEntityRenderer INSTANCE = new VirtualEntityRenderer();
+
+    public static VirtualEntityRenderer getInstance() {
+        return INSTANCE;
+    }
+
+    private VirtualEntityRenderer() {}
+
+    @SubscribeEvent
+    @SuppressWarnings("unused")
+    public void onRenderLevel(RenderLevelLastEvent event) {
+        Minecraft minecraft = Minecraft.getInstance();
+        ClientLevel world = minecraft.level;
+        if(world == null) {
+            return;
+        }
+        Camera camera = minecraft.gameRenderer.getMainCamera();
+        Vec3 cam = camera.getPosition();
+        PoseStack transforms = event.getPoseStack();
+        Frustum frustum = new Frustum(transforms.last().pose(), event.getProjectionMatrix());
+        frustum.prepare(cam.x, cam.y, cam.z);
+        double maxDistance = minecraft.options.getEffectiveRenderDistance() * 16.0D;
+        double maxDistanceSq = maxDistance * maxDistance;
+        EntityRenderDispatcher dispatcher = minecraft.getEntityRenderDispatcher();
+        MultiBufferSource.BufferSource buffers = minecraft.renderBuffers().bufferSource();
+        float partialTick = event.getPartialTick();
+        VirtualEntityManager.getInstance().forEachChunk(world, chunk -> {
+            ChunkPos pos = chunk.getChunk().getPos();
+            AABB bounds = new AABB(pos.getMinBlockX(), world.getMinBuildHeight(), pos.getMinBlockZ(),
+                    pos.getMaxBlockX() + 1, world.getMaxBuildHeight(), pos.getMaxBlockZ() + 1);
+            if(!frustum.isVisible(bounds)) {
+                return;
+            }
+            chunk.forEach(entity -> {
+                if(entity.position().distanceToSqr(cam) <= maxDistanceSq) {
+                    dispatcher.render(entity,
+                            entity.getX() - cam.x, entity.getY() - cam.y, entity.getZ() - cam.z,
+                            entity.getYRot(), partialTick, transforms, buffers,
+                            dispatcher.getPackedLightCoords(entity, partialTick));
+                }
+            });
+        });
+        buffers.endBatch();
+    }
+}
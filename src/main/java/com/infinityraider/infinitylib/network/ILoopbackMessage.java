@@ -0,0 +1,24 @@
+package com.infinityraider.infinitylib.network;
+
+/**
+ * Marker for MessageBase implementations which can skip serialization when they are sent within the same JVM,
+ * i.e. between an integrated server and its host client.
+ * The message object is then handed directly to the receiving side instead of being encoded and decoded.
+ *
+ * Messages should only implement this if their fields are valid on both logical sides:
+ * references to server side objects such as Entities, BlockEntities or Levels must not be handed to the client,
+ * and mutable fields such as ItemStacks or CompoundTags must be copied in copyForLoopback() if the sender might modify them afterwards.
+ * Loopback messages are passed along the memory connection, after any bundled messages to the same connection,
+ * so they stay in order with respect to messages sent before them.
+ */
+public interface ILoopbackMessage {
+    /**
+     * Called on the sending side to create the instance which is handed to the receiving side.
+     * Override to make defensive copies of mutable fields.
+     *
+     * @return the message to process on the receiving side
+     */
+    default MessageBase copyForLoopback() {
+        return (MessageBase) this;
+    }
+}
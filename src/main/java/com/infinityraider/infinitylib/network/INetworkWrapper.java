@@ -8,6 +8,8 @@ import net.minecraft.server.level.ServerPlayer;
 import net.minecraft.world.level.Level;
 import net.minecraftforge.network.PacketDistributor;
 
+import java.util.Collections;
+import java.util.Map;
 import java.util.function.Supplier;
 
 @SuppressWarnings("unused")
@@ -61,6 +63,37 @@ public interface INetworkWrapper {
      */
     void sendToServer(MessageBase message);
 
+    /**
+     * Checks if messages implementing ILoopbackMessage are handed directly to the receiving side when they are sent
+     * between an integrated server and its host client, instead of being serialized
+     * @return true if the loopback is enabled, NetworkWrapper enables it by default
+     */
+    default boolean isLoopbackEnabled() {
+        return false;
+    }
+
+    /**
+     * Enables or disables the integrated server loopback, can be disabled to test message serialization in single player
+     * @param enabled true to enable the loopback
+     */
+    default void setLoopbackEnabled(boolean enabled) {}
+
+    /**
+     * Checks if client bound messages which opt in to bundling (see MessageBase.isBundled()) are buffered per client
+     * during a server tick and sent as a single payload at the end of the tick
+     * @return true if bundling is enabled, NetworkWrapper enables it by default
+     */
+    default boolean isBundlingEnabled() {
+        return false;
+    }
+
+    /**
+     * Enables or disables bundling of client bound messages, pending messages are sent when bundling is disabled.
+     * Bundled messages can arrive after vanilla packets which were sent later in the same tick.
+     * @param enabled true to enable bundling
+     */
+    default void setBundlingEnabled(boolean enabled) {}
+
     /**
      * Registers a MessageBase to this wrapper
      * @param message a constructor of the message to register
@@ -68,6 +101,23 @@ public interface INetworkWrapper {
      */
     <REQ extends MessageBase> void registerMessage(Class<REQ> message);
 
+    /**
+     * Registers a MessageBase to this wrapper with a rate limit, which is applied per player for server bound messages
+     * @param message a constructor of the message to register
+     * @param limit the rate limit
+     * @param <REQ> the generic type of the message
+     */
+    default <REQ extends MessageBase> void registerMessage(Class<REQ> message, RateLimit limit) {
+        this.registerMessage(message);
+    }
+
+    /**
+     * @return the counters of accepted, dropped and coalesced messages for all rate limited messages
+     */
+    default Map<Class<? extends MessageBase>, MessageRateLimiter.Counters> getRateLimitCounters() {
+        return Collections.emptyMap();
+    }
+
     /**
      * Registers a serializer for a class type, this method will also register the array type for this type (unless the type is an array itself).
      * By default the following classes (and their arrays) are registered:
@@ -4,6 +4,7 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.infinityraider.infinitylib.InfinityLib;
+import com.infinityraider.infinitylib.network.serialization.IdentifierDictionary;
 import com.infinityraider.infinitylib.network.serialization.IMessageSerializer;
 import com.infinityraider.infinitylib.network.serialization.MessageElement;
 import net.minecraft.client.Minecraft;
@@ -25,6 +26,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Supplier;
 
 /**
@@ -108,6 +110,40 @@ public abstract class MessageBase {
      */
     protected abstract void processMessage(NetworkEvent.Context ctx);
 
+    /**
+     * Defines on which thread processMessage() is called, by default this is the main thread of the receiving side.
+     * Messages which do not interact with the world can be processed on the network thread or on a worker thread instead,
+     * from where follow-up work can be posted to the main thread with runOnMainThread().
+     *
+     * @return the execution mode for this message
+     */
+    public Execution getExecution() {
+        return Execution.MAIN_THREAD;
+    }
+
+    /**
+     * Queues a task on the main thread of the receiving side, can be called from processMessage() regardless of the execution mode
+     *
+     * @param ctx the message context
+     * @param task the task
+     * @return a future which completes once the task has run
+     */
+    protected final CompletableFuture<Void> runOnMainThread(NetworkEvent.Context ctx, Runnable task) {
+        return ctx.enqueueWork(task);
+    }
+
+    /**
+     * Override to opt in to bundling: the client bound message is then held until the end of the server tick and sent
+     * together with the other bundled messages to the same client.
+     * Bundled messages stay in order with respect to other messages of the same wrapper, but not with respect to vanilla
+     * packets sent later in the same tick, e.g. block updates or entity removals, only opt in if that does not matter.
+     *
+     * @return true to bundle this message
+     */
+    public boolean isBundled() {
+        return false;
+    }
+
     /**
      * Called to register required missing serializers for this class,
      * For a list of default registered serializers, see the list in the javadoc for this class
@@ -120,10 +156,15 @@ public abstract class MessageBase {
     @SuppressWarnings("unchecked")
     public final <REQ extends MessageBase> REQ fromBytes(FriendlyByteBuf buf) {
         Map<Class<? extends MessageBase>, List<MessageElement<?>>> map = ELEMENT_MAP;
-        if (ELEMENT_MAP.containsKey(this.getClass())) {
-            for (MessageElement<?> element : ELEMENT_MAP.get(this.getClass())) {
-                element.readFromByteBuf(buf, this);
+        IdentifierDictionary previous = IdentifierDictionary.enter(this.getMessageDirection(), false);
+        try {
+            if (ELEMENT_MAP.containsKey(this.getClass())) {
+                for (MessageElement<?> element : ELEMENT_MAP.get(this.getClass())) {
+                    element.readFromByteBuf(buf, this);
+                }
             }
+        } finally {
+            IdentifierDictionary.exit(previous);
         }
         return (REQ) this;
     }
@@ -131,10 +172,15 @@ public abstract class MessageBase {
     @SuppressWarnings("unchecked")
     public final void toBytes(FriendlyByteBuf buf) {
         Map<Class<? extends MessageBase>, List<MessageElement<?>>> map = ELEMENT_MAP;
-        if (ELEMENT_MAP.containsKey(this.getClass())) {
-            for (MessageElement<?> element : ELEMENT_MAP.get(this.getClass())) {
-                element.writeToByteBuf(buf, this);
+        IdentifierDictionary previous = IdentifierDictionary.enter(this.getMessageDirection(), true);
+        try {
+            if (ELEMENT_MAP.containsKey(this.getClass())) {
+                for (MessageElement<?> element : ELEMENT_MAP.get(this.getClass())) {
+                    element.writeToByteBuf(buf, this);
+                }
             }
+        } finally {
+            IdentifierDictionary.exit(previous);
         }
     }
 
@@ -276,4 +322,13 @@ public abstract class MessageBase {
         builder.add(clazz.getDeclaredFields());
         return fetchFieldsRecursively(clazz.getSuperclass(), builder);
     }
+
+    public enum Execution {
+        /** Processed on the main server or client thread, required to interact with the world */
+        MAIN_THREAD,
+        /** Processed immediately on the network thread, in the order in which messages are received, must be fast and must not interact with the world */
+        NETWORK_THREAD,
+        /** Processed on a shared bounded worker pool, for heavy work which does not interact with the world, order is not guaranteed */
+        WORKER_POOL
+    }
 }
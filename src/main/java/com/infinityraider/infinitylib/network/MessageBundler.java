@@ -0,0 +1,151 @@
+package com.infinityraider.infinitylib.network;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import io.netty.buffer.Unpooled;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntList;
+import net.minecraft.network.Connection;
+import net.minecraft.network.FriendlyByteBuf;
+import net.minecraftforge.network.NetworkEvent;
+import net.minecraftforge.network.PacketDistributor;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Buffers the client bound messages of a NetworkWrapper which opt in to bundling per connection during a server tick,
+ * and sends them as a single length-prefixed payload per connection at the end of the tick.
+ * Messages are encoded once, regardless of the number of recipients, and are unpacked and processed in order on the client.
+ */
+public final class MessageBundler {
+    /** Bundles are sent early once they would exceed this size in bytes */
+    public static final int MAX_BUNDLE_SIZE = 32768;
+
+    private final NetworkWrapper wrapper;
+    private final Map<Connection, Bundle> pending;
+
+    MessageBundler(NetworkWrapper wrapper) {
+        this.wrapper = wrapper;
+        this.pending = Maps.newIdentityHashMap();
+    }
+
+    /**
+     * Queues a message for a set of connections
+     * @param message the message
+     * @param id the id of the message in the channel of the wrapper
+     * @param connections the recipients
+     */
+    void queue(MessageBase message, int id, Collection<Connection> connections) {
+        if(connections.isEmpty()) {
+            return;
+        }
+        FriendlyByteBuf buf = new FriendlyByteBuf(Unpooled.buffer());
+        MessageCompression.getInstance().encode(message, buf);
+        byte[] data = new byte[buf.readableBytes()];
+        buf.readBytes(data);
+        synchronized (this.pending) {
+            for(Connection connection : connections) {
+                Bundle bundle = this.pending.computeIfAbsent(connection, c -> new Bundle());
+                if(!bundle.isEmpty() && bundle.getSize() + data.length > MAX_BUNDLE_SIZE) {
+                    this.send(connection, bundle);
+                    bundle = new Bundle();
+                    this.pending.put(connection, bundle);
+                }
+                bundle.add(id, data);
+            }
+        }
+    }
+
+    /**
+     * Sends the pending messages for a set of connections right away
+     * @param connections the connections
+     */
+    void flush(Collection<Connection> connections) {
+        synchronized (this.pending) {
+            for(Connection connection : connections) {
+                Bundle bundle = this.pending.remove(connection);
+                if(bundle != null) {
+                    this.send(connection, bundle);
+                }
+            }
+        }
+    }
+
+    /**
+     * Sends all pending messages
+     */
+    void flush() {
+        synchronized (this.pending) {
+            this.pending.forEach(this::send);
+            this.pending.clear();
+        }
+    }
+
+    private void send(Connection connection, Bundle bundle) {
+        if(connection.isConnected() && !bundle.isEmpty()) {
+            this.wrapper.getChannel().send(PacketDistributor.NMLIST.with(() -> Collections.singletonList(connection)), bundle);
+        }
+    }
+
+    /**
+     * Unpacks a received bundle, the messages are decoded and handled one by one,
+     * so that each message is decoded after the messages before it which are processed on the network thread have run
+     */
+    static void handle(Bundle bundle, NetworkWrapper wrapper, NetworkEvent.Context ctx) {
+        for(int i = 0; i < bundle.ids.size(); i++) {
+            MessageBase message = wrapper.decodeMessage(bundle.ids.getInt(i), new FriendlyByteBuf(Unpooled.wrappedBuffer(bundle.data.get(i))));
+            if(message != null) {
+                NetworkWrapper.handleMessage(message, ctx);
+            }
+        }
+        ctx.setPacketHandled(true);
+    }
+
+    /**
+     * A bundle of encoded messages
+     */
+    static final class Bundle {
+        private final IntList ids;
+        private final List<byte[]> data;
+        private int size;
+
+        private Bundle() {
+            this.ids = new IntArrayList();
+            this.data = Lists.newArrayList();
+        }
+
+        private void add(int id, byte[] data) {
+            this.ids.add(id);
+            this.data.add(data);
+            this.size += data.length;
+        }
+
+        private boolean isEmpty() {
+            return this.ids.isEmpty();
+        }
+
+        private int getSize() {
+            return this.size;
+        }
+
+        void encode(FriendlyByteBuf buf) {
+            buf.writeVarInt(this.ids.size());
+            for(int i = 0; i < this.ids.size(); i++) {
+                buf.writeVarInt(this.ids.getInt(i));
+                buf.writeByteArray(this.data.get(i));
+            }
+        }
+
+        static Bundle decode(FriendlyByteBuf buf) {
+            Bundle bundle = new Bundle();
+            int count = buf.readVarInt();
+            for(int i = 0; i < count; i++) {
+                bundle.add(buf.readVarInt(), buf.readByteArray());
+            }
+            return bundle;
+        }
+    }
+}
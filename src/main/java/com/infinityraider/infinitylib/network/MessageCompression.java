@@ -0,0 +1,274 @@
+package com.infinityraider.infinitylib.network;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import com.infinityraider.infinitylib.reference.Names;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.DecoderException;
+import net.minecraft.network.FriendlyByteBuf;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Frames the payload of every MessageBase: payloads larger than a threshold are deflated if that makes them smaller.
+ * The frame starts with a flag marking if the payload is compressed, compressed payloads are followed by their raw length.
+ *
+ * Compression uses a preset dictionary of common NBT keys, as CompoundTags and ItemStacks make up most large payloads,
+ * and reuses a Deflater, Inflater and buffers per thread.
+ * Raw and sent sizes are tracked per message class.
+ */
+public final class MessageCompression {
+    private static final MessageCompression INSTANCE = new MessageCompression();
+
+    /** Payloads smaller than this (in bytes) are never compressed */
+    public static final int THRESHOLD = 256;
+
+    /** Upper bound for the raw length of compressed payloads, guards against malicious payloads */
+    public static final int MAX_RAW_LENGTH = 8 * 1024 * 1024;
+
+    /** Buffers which grow larger than this are discarded after use */
+    private static final int MAX_RETAINED_CAPACITY = 1024 * 1024;
+
+    public static MessageCompression getInstance() {
+        return INSTANCE;
+    }
+
+    private final byte[] dictionary;
+    private final ThreadLocal<Buffers> buffers;
+    private final Map<Class<? extends MessageBase>, Statistics> statistics;
+
+    private MessageCompression() {
+        this.dictionary = buildDictionary();
+        this.buffers = ThreadLocal.withInitial(Buffers::new);
+        this.statistics = Maps.newConcurrentMap();
+    }
+
+    /**
+     * Fetches the statistics for all message classes which have been sent so far
+     * @return map of message classes to their statistics
+     */
+    public Map<Class<? extends MessageBase>, Statistics> getStatistics() {
+        return ImmutableMap.copyOf(this.statistics);
+    }
+
+    /**
+     * Fetches the statistics for a message class
+     * @param clazz the message class
+     * @return the statistics
+     */
+    public Statistics getStatistics(Class<? extends MessageBase> clazz) {
+        return this.statistics.computeIfAbsent(clazz, c -> new Statistics());
+    }
+
+    void encode(MessageBase message, FriendlyByteBuf out) {
+        Buffers buffers = this.buffers.get();
+        ByteBuf raw = buffers.acquire();
+        try {
+            message.toBytes(new FriendlyByteBuf(raw));
+            int length = raw.readableBytes();
+            if(length >= THRESHOLD) {
+                byte[] input = buffers.input(length);
+                raw.getBytes(raw.readerIndex(), input, 0, length);
+                byte[] output = buffers.output(length);
+                Deflater deflater = buffers.deflater;
+                deflater.reset();
+                deflater.setDictionary(this.dictionary);
+                deflater.setInput(input, 0, length);
+                deflater.finish();
+                // The output buffer has the size of the raw payload, if it is not sufficient, compression is not worth it
+                int compressed = deflater.deflate(output, 0, output.length);
+                int header = FriendlyByteBuf.getVarIntSize(length);
+                if(deflater.finished() && compressed + header < length) {
+                    out.writeBoolean(true);
+                    out.writeVarInt(length);
+                    out.writeBytes(output, 0, compressed);
+                    this.getStatistics(message.getClass()).record(length, 1 + header + compressed, true);
+                    return;
+                }
+            }
+            out.writeBoolean(false);
+            out.writeBytes(raw, raw.readerIndex(), length);
+            this.getStatistics(message.getClass()).record(length, 1 + length, false);
+        } finally {
+            buffers.release(raw);
+        }
+    }
+
+    <MSG extends MessageBase> MSG decode(MSG message, FriendlyByteBuf in) {
+        if(!in.readBoolean()) {
+            return message.fromBytes(in);
+        }
+        int length = in.readVarInt();
+        if(length < 0 || length > MAX_RAW_LENGTH) {
+            throw new DecoderException("Invalid raw length " + length + " for compressed message " + message.getClass().getName());
+        }
+        Buffers buffers = this.buffers.get();
+        try {
+            int available = in.readableBytes();
+            byte[] input = buffers.input(available);
+            in.readBytes(input, 0, available);
+            byte[] output = buffers.output(length);
+            Inflater inflater = buffers.inflater;
+            inflater.reset();
+            inflater.setInput(input, 0, available);
+            int read = 0;
+            while(read < length) {
+                int count = inflater.inflate(output, read, length - read);
+                if(count == 0) {
+                    if(inflater.needsDictionary()) {
+                        inflater.setDictionary(this.dictionary);
+                    } else {
+                        throw new DecoderException("Truncated compressed message " + message.getClass().getName());
+                    }
+                }
+                read += count;
+            }
+            return message.fromBytes(new FriendlyByteBuf(Unpooled.wrappedBuffer(output, 0, length)));
+        } catch (DataFormatException e) {
+            throw new DecoderException("Malformed compressed message " + message.getClass().getName(), e);
+        } finally {
+            buffers.trim();
+        }
+    }
+
+    /**
+     * Builds the preset dictionary from NBT keys as they are written in a CompoundTag (length prefixed UTF),
+     * Deflate favours matches near the end of the dictionary, so the most common keys come last
+     */
+    private static byte[] buildDictionary() {
+        List<String> keys = ImmutableList.of(
+                Names.NBT.MATERIAL, Names.NBT.EFFECTS, Names.NBT.LIST, Names.NBT.FLAG, Names.NBT.MULTI, Names.NBT.FIELD, Names.NBT.PACKED_FIELDS,
+                Names.NBT.DIRECTION, Names.NBT.COUNT, Names.NBT.X1, Names.NBT.Y1, Names.NBT.Z1, Names.NBT.X2, Names.NBT.Y2,
+                Names.NBT.Z2, Names.NBT.X, Names.NBT.Y, Names.NBT.Z, Names.NBT.VALUE,
+                "CustomName", "Lore", "Name", "display", "Enchantments", "StoredEnchantments", "lvl", "RepairCost",
+                "Fluid", "FluidName", "Amount", "Energy", "Parent", "Size", "Slot", "Items", "Inventory",
+                "ForgeData", "ForgeCaps", "Damage", "tag", "Count", "id", "x", "y", "z", "minecraft:");
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            for(String key : keys) {
+                out.writeUTF(key);
+            }
+        } catch (IOException e) {
+            // Can not happen for in-memory streams
+        }
+        return bytes.toByteArray();
+    }
+
+    private static final class Buffers {
+        private final Deflater deflater;
+        private final Inflater inflater;
+        private ByteBuf raw;
+        private byte[] input;
+        private byte[] output;
+
+        /** Encodes can nest, e.g. when a message sends another message while it is written, only the outermost reuses raw */
+        private int depth;
+
+        private Buffers() {
+            this.deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+            this.inflater = new Inflater();
+            this.raw = Unpooled.buffer(THRESHOLD);
+            this.input = new byte[THRESHOLD];
+            this.output = new byte[THRESHOLD];
+        }
+
+        private ByteBuf acquire() {
+            if(this.depth++ > 0) {
+                return Unpooled.buffer(THRESHOLD);
+            }
+            this.raw.clear();
+            return this.raw;
+        }
+
+        private byte[] input(int size) {
+            if(this.input.length < size) {
+                this.input = new byte[size];
+            }
+            return this.input;
+        }
+
+        private byte[] output(int size) {
+            if(this.output.length < size) {
+                this.output = new byte[size];
+            }
+            return this.output;
+        }
+
+        private void release(ByteBuf buffer) {
+            this.depth--;
+            if(buffer != this.raw) {
+                buffer.release();
+            }
+            this.trim();
+        }
+
+        private void trim() {
+            if(this.depth == 0 && this.raw.capacity() > MAX_RETAINED_CAPACITY) {
+                this.raw = Unpooled.buffer(THRESHOLD);
+            }
+            if(this.input.length > MAX_RETAINED_CAPACITY) {
+                this.input = new byte[THRESHOLD];
+            }
+            if(this.output.length > MAX_RETAINED_CAPACITY) {
+                this.output = new byte[THRESHOLD];
+            }
+        }
+    }
+
+    public static final class Statistics {
+        private final LongAdder messages;
+        private final LongAdder compressedMessages;
+        private final LongAdder rawBytes;
+        private final LongAdder sentBytes;
+
+        private Statistics() {
+            this.messages = new LongAdder();
+            this.compressedMessages = new LongAdder();
+            this.rawBytes = new LongAdder();
+            this.sentBytes = new LongAdder();
+        }
+
+        private void record(int raw, int sent, boolean compressed) {
+            this.messages.increment();
+            if(compressed) {
+                this.compressedMessages.increment();
+            }
+            this.rawBytes.add(raw);
+            this.sentBytes.add(sent);
+        }
+
+        public long getMessageCount() {
+            return this.messages.sum();
+        }
+
+        public long getCompressedMessageCount() {
+            return this.compressedMessages.sum();
+        }
+
+        public long getRawBytes() {
+            return this.rawBytes.sum();
+        }
+
+        public long getSentBytes() {
+            return this.sentBytes.sum();
+        }
+
+        /**
+         * @return the ratio of sent bytes over raw bytes
+         */
+        public double getRatio() {
+            long raw = this.getRawBytes();
+            return raw == 0 ? 1 : ((double) this.getSentBytes()) / raw;
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.infinityraider.infinitylib.network;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import net.minecraft.network.Connection;
+import net.minecraftforge.network.NetworkEvent;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Applies the RateLimits of server bound messages on the network thread, before the messages are queued for processing.
+ * Buckets are tracked per connection and per message class, counters are tracked per message class.
+ */
+public final class MessageRateLimiter {
+    private final Map<Class<? extends MessageBase>, RateLimit> limits;
+    private final Map<Class<? extends MessageBase>, Counters> counters;
+    private final Map<Connection, Map<Class<? extends MessageBase>, Bucket>> buckets;
+
+    MessageRateLimiter() {
+        this.limits = Maps.newConcurrentMap();
+        this.counters = Maps.newConcurrentMap();
+        this.buckets = Collections.synchronizedMap(new WeakHashMap<>());
+    }
+
+    void setLimit(Class<? extends MessageBase> clazz, RateLimit limit) {
+        if(limit.isLimited()) {
+            this.limits.put(clazz, limit);
+        } else {
+            this.limits.remove(clazz);
+        }
+    }
+
+    /**
+     * Fetches the counters for all rate limited message classes
+     * @return map of message classes to their counters
+     */
+    public Map<Class<? extends MessageBase>, Counters> getCounters() {
+        return ImmutableMap.copyOf(this.counters);
+    }
+
+    /**
+     * Fetches the counters for a message class
+     * @param clazz the message class
+     * @return the counters
+     */
+    public Counters getCounters(Class<? extends MessageBase> clazz) {
+        return this.counters.computeIfAbsent(clazz, c -> new Counters());
+    }
+
+    /**
+     * Called on the network thread when a message is received
+     * @param message the message
+     * @param ctx the message context
+     * @return true if the message may be handled now, false if it was dropped or coalesced
+     */
+    boolean tryAccept(MessageBase message, NetworkEvent.Context ctx) {
+        RateLimit limit = this.limits.get(message.getClass());
+        if(limit == null) {
+            return true;
+        }
+        Bucket bucket = this.getBucket(ctx.getNetworkManager(), message.getClass(), limit);
+        Counters counters = this.getCounters(message.getClass());
+        synchronized (bucket) {
+            if(bucket.pending == null && bucket.tryConsume(System.nanoTime())) {
+                counters.accepted.increment();
+                return true;
+            }
+            if(limit.getPolicy() == RateLimit.Policy.COALESCE) {
+                if(bucket.pending != null) {
+                    // The previous pending message is replaced by the new one
+                    counters.coalesced.increment();
+                }
+                bucket.pending = message;
+                bucket.pendingContext = ctx;
+            } else {
+                counters.dropped.increment();
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Called every server tick to handle coalesced messages for which budget is available again
+     */
+    void handlePending() {
+        long now = System.nanoTime();
+        synchronized (this.buckets) {
+            this.buckets.values().forEach(map -> map.values().forEach(bucket -> {
+                synchronized (bucket) {
+                    if(bucket.pending != null && bucket.tryConsume(now)) {
+                        this.getCounters(bucket.pending.getClass()).accepted.increment();
+                        NetworkWrapper.handleMessage(bucket.pending, bucket.pendingContext);
+                        bucket.pending = null;
+                        bucket.pendingContext = null;
+                    }
+                }
+            }));
+        }
+    }
+
+    private Bucket getBucket(Connection connection, Class<? extends MessageBase> clazz, RateLimit limit) {
+        synchronized (this.buckets) {
+            return this.buckets.computeIfAbsent(connection, c -> Maps.newIdentityHashMap()).computeIfAbsent(clazz, c -> new Bucket(limit));
+        }
+    }
+
+    private static final class Bucket {
+        private final RateLimit limit;
+        private double tokens;
+        private long lastRefill;
+
+        private MessageBase pending;
+        private NetworkEvent.Context pendingContext;
+
+        private Bucket(RateLimit limit) {
+            this.limit = limit;
+            this.tokens = limit.getBurst();
+            this.lastRefill = System.nanoTime();
+        }
+
+        private boolean tryConsume(long now) {
+            this.tokens = Math.min(this.limit.getBurst(), this.tokens + (now - this.lastRefill) * this.limit.getRate() / 1_000_000_000D);
+            this.lastRefill = now;
+            if(this.tokens >= 1) {
+                this.tokens -= 1;
+                return true;
+            }
+            return false;
+        }
+    }
+
+    public static final class Counters {
+        private final LongAdder accepted;
+        private final LongAdder dropped;
+        private final LongAdder coalesced;
+
+        private Counters() {
+            this.accepted = new LongAdder();
+            this.dropped = new LongAdder();
+            this.coalesced = new LongAdder();
+        }
+
+        /**
+         * @return the number of messages which were handled
+         */
+        public long getAccepted() {
+            return this.accepted.sum();
+        }
+
+        /**
+         * @return the number of messages which were dropped because they were over budget
+         */
+        public long getDropped() {
+            return this.dropped.sum();
+        }
+
+        /**
+         * @return the number of messages which were discarded in favour of a newer message because they were over budget
+         */
+        public long getCoalesced() {
+            return this.coalesced.sum();
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.infinityraider.infinitylib.network;
+
+import com.infinityraider.infinitylib.block.tile.TileEntityBase;
+import net.minecraft.core.BlockPos;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.level.block.entity.BlockEntity;
+import net.minecraftforge.network.NetworkDirection;
+import net.minecraftforge.network.NetworkEvent;
+
+/**
+ * Sent by a client which received a tile sync delta it can not apply, requests a full sync of the tile
+ */
+public class MessageRequestTileSync extends MessageBase {
+    /** Tiles further away than this are not synced */
+    private static final double MAX_DISTANCE = 128;
+
+    private BlockPos pos;
+
+    public MessageRequestTileSync() {
+        super();
+    }
+
+    public MessageRequestTileSync(BlockPos pos) {
+        this();
+        this.pos = pos;
+    }
+
+    @Override
+    public NetworkDirection getMessageDirection() {
+        return NetworkDirection.PLAY_TO_SERVER;
+    }
+
+    @Override
+    protected void processMessage(NetworkEvent.Context ctx) {
+        ServerPlayer player = ctx.getSender();
+        if (player == null || this.pos == null || !player.getLevel().isLoaded(this.pos)) {
+            return;
+        }
+        if (player.distanceToSqr(this.pos.getX() + 0.5, this.pos.getY() + 0.5, this.pos.getZ() + 0.5) > MAX_DISTANCE * MAX_DISTANCE) {
+            return;
+        }
+        BlockEntity tile = player.getLevel().getBlockEntity(this.pos);
+        if (tile instanceof TileEntityBase) {
+            ((TileEntityBase) tile).syncToClient(player);
+        }
+    }
+}
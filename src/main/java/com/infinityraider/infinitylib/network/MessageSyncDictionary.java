@@ -0,0 +1,40 @@
+package com.infinityraider.infinitylib.network;
+
+import com.infinityraider.infinitylib.network.serialization.IdentifierDictionary;
+import net.minecraftforge.network.NetworkDirection;
+import net.minecraftforge.network.NetworkEvent;
+
+public class MessageSyncDictionary extends MessageBase implements ILoopbackMessage {
+    private int offset;
+    private String[] identifiers;
+    private boolean reset;
+
+    public MessageSyncDictionary() {
+        super();
+    }
+
+    public MessageSyncDictionary(int offset, String[] identifiers, boolean reset) {
+        this();
+        this.offset = offset;
+        this.identifiers = identifiers;
+        this.reset = reset;
+    }
+
+    @Override
+    public NetworkDirection getMessageDirection() {
+        return NetworkDirection.PLAY_TO_CLIENT;
+    }
+
+    @Override
+    public Execution getExecution() {
+        // Must be applied immediately on the network thread, as the next messages are decoded there as well
+        return Execution.NETWORK_THREAD;
+    }
+
+    @Override
+    protected void processMessage(NetworkEvent.Context ctx) {
+        if(this.identifiers != null) {
+            IdentifierDictionary.getClientInstance().receive(this.offset, this.identifiers, this.reset);
+        }
+    }
+}
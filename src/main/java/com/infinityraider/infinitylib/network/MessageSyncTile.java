@@ -1,34 +1,69 @@
 package com.infinityraider.infinitylib.network;
 
 import com.infinityraider.infinitylib.InfinityLib;
+import com.infinityraider.infinitylib.block.tile.TileEntityBase;
 import net.minecraft.core.BlockPos;
+import net.minecraft.core.Registry;
 import net.minecraft.nbt.CompoundTag;
+import net.minecraft.resources.ResourceKey;
 import net.minecraft.world.level.Level;
 import net.minecraft.world.level.block.entity.BlockEntity;
 import net.minecraft.world.level.block.state.BlockState;
 import net.minecraftforge.network.NetworkDirection;
 import net.minecraftforge.network.NetworkEvent;
 
+/**
+ * Syncs a tile to the client, either in full, or as a delta containing only the keys which changed since the previous sync.
+ * Deltas can only be applied on top of the sync they are based on, if a client is missing it, it requests a full sync.
+ */
 public class MessageSyncTile extends MessageBase {
-    private String className;
-    private BlockEntity tile;
-    private CompoundTag tag;
+    private ResourceKey<Level> dimension;
     private BlockPos pos;
+    private int type;
+    private boolean full;
+    private int baseVersion;
+    private int version;
+    private CompoundTag tag;
+    private String[] removed;
     private boolean renderUpdate;
 
     public MessageSyncTile() {
         super();
     }
 
+    /**
+     * Creates a full sync, for TileEntityBase instances this is the base for the following delta syncs
+     */
     public MessageSyncTile(BlockEntity tile, boolean renderUpdate) {
+        this(tile, tile instanceof TileEntityBase ? ((TileEntityBase) tile).getSyncBase() : tile.saveWithFullMetadata(), renderUpdate);
+    }
+
+    private MessageSyncTile(BlockEntity tile, CompoundTag tag, boolean renderUpdate) {
+        // The tag is fetched first, as fetching the sync base can advance the version
+        this(tile, true, getSyncVersion(tile), getSyncVersion(tile), tag, new String[0], renderUpdate);
+    }
+
+    private MessageSyncTile(BlockEntity tile, boolean full, int baseVersion, int version, CompoundTag tag, String[] removed, boolean renderUpdate) {
         this();
-        this.className = tile.getClass().getName();
-        this.tile = tile;
+        this.dimension = tile.getLevel() == null ? Level.OVERWORLD : tile.getLevel().dimension();
         this.pos = tile.getBlockPos();
-        this.tag = tile.saveWithFullMetadata();
+        this.type = getTypeId(tile);
+        this.full = full;
+        this.baseVersion = baseVersion;
+        this.version = version;
+        this.tag = tag;
+        this.removed = removed;
         this.renderUpdate = renderUpdate;
     }
 
+    public static MessageSyncTile full(TileEntityBase tile, CompoundTag tag, int version, boolean renderUpdate) {
+        return new MessageSyncTile(tile, true, version, version, tag, new String[0], renderUpdate);
+    }
+
+    public static MessageSyncTile delta(TileEntityBase tile, CompoundTag changed, String[] removed, int baseVersion, int version, boolean renderUpdate) {
+        return new MessageSyncTile(tile, false, baseVersion, version, changed, removed, renderUpdate);
+    }
+
     @Override
     public NetworkDirection getMessageDirection() {
         return NetworkDirection.PLAY_TO_CLIENT;
@@ -37,12 +72,32 @@ public class MessageSyncTile extends MessageBase {
     @Override
     protected void processMessage(NetworkEvent.Context ctx) {
         Level world = InfinityLib.instance.getClientWorld();
-        if (this.tile != null && this.tile.getClass().toString().equals(this.className)) {
-            BlockState pre = world.getBlockState(this.pos);
-            this.tile.load(this.tag);
-            if (this.renderUpdate) {
-                world.setBlocksDirty(this.tile.getBlockPos(), pre, world.getBlockState(this.pos));
+        if (world == null || this.pos == null || this.tag == null || !world.dimension().equals(this.dimension)) {
+            return;
+        }
+        BlockEntity tile = world.getBlockEntity(this.pos);
+        if (tile == null || getTypeId(tile) != this.type) {
+            return;
+        }
+        BlockState pre = world.getBlockState(this.pos);
+        if (tile instanceof TileEntityBase) {
+            if (!((TileEntityBase) tile).onClientSync(this.full, this.baseVersion, this.version, this.tag, this.removed)) {
+                return;
             }
+        } else if (this.full) {
+            tile.load(this.tag);
+        }
+        if (this.renderUpdate) {
+            world.setBlocksDirty(this.pos, pre, world.getBlockState(this.pos));
         }
     }
+
+    private static int getSyncVersion(BlockEntity tile) {
+        return tile instanceof TileEntityBase ? ((TileEntityBase) tile).getSyncVersion() : 0;
+    }
+
+    private static int getTypeId(BlockEntity tile) {
+        // Registry ids are synced to the client
+        return Registry.BLOCK_ENTITY_TYPE.getId(tile.getType());
+    }
 }
@@ -0,0 +1,57 @@
+package com.infinityraider.infinitylib.network;
+
+import com.infinityraider.infinitylib.InfinityLib;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded thread pool shared by all messages which are processed off the main thread (MessageBase.Execution.WORKER_POOL).
+ * When the queue is full, messages are processed on the network thread which received them, slowing down the network
+ * thread rather than dropping messages.
+ */
+final class MessageWorkerPool {
+    private static final MessageWorkerPool INSTANCE = new MessageWorkerPool();
+
+    /** Maximum number of messages waiting to be processed */
+    private static final int QUEUE_SIZE = 1024;
+
+    static MessageWorkerPool getInstance() {
+        return INSTANCE;
+    }
+
+    private final ThreadPoolExecutor executor;
+
+    private MessageWorkerPool() {
+        int threads = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+        this.executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(QUEUE_SIZE),
+                new WorkerThreadFactory(),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    void execute(Runnable task) {
+        this.executor.execute(() -> {
+            try {
+                task.run();
+            } catch (Exception e) {
+                InfinityLib.instance.getLogger().printStackTrace(e);
+            }
+        });
+    }
+
+    private static final class WorkerThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger(0);
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "InfinityLib Message Worker #" + this.count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
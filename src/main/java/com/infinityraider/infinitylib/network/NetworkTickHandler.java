@@ -0,0 +1,39 @@
+package com.infinityraider.infinitylib.network;
+
+import com.google.common.collect.Lists;
+import com.infinityraider.infinitylib.network.serialization.IdentifierDictionary;
+import net.minecraftforge.event.TickEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+
+import java.util.List;
+
+/**
+ * Runs the per tick work of all NetworkWrappers at the end of every server tick:
+ * broadcasting new identifier dictionary entries, handling coalesced messages and sending bundled messages
+ */
+public final class NetworkTickHandler {
+    private static final NetworkTickHandler INSTANCE = new NetworkTickHandler();
+
+    public static NetworkTickHandler getInstance() {
+        return INSTANCE;
+    }
+
+    private final List<NetworkWrapper> wrappers;
+
+    private NetworkTickHandler() {
+        this.wrappers = Lists.newCopyOnWriteArrayList();
+    }
+
+    void register(NetworkWrapper wrapper) {
+        this.wrappers.add(wrapper);
+    }
+
+    @SubscribeEvent
+    @SuppressWarnings("unused")
+    public void onServerTick(TickEvent.ServerTickEvent event) {
+        if(event.phase == TickEvent.Phase.END) {
+            IdentifierDictionary.getServerInstance().flush();
+            this.wrappers.forEach(NetworkWrapper::onServerTick);
+        }
+    }
+}
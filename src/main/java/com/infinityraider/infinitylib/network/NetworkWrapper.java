@@ -1,39 +1,64 @@
 package com.infinityraider.infinitylib.network;
 
+import com.google.common.collect.Maps;
 import com.infinityraider.infinitylib.InfinityLib;
 import com.infinityraider.infinitylib.InfinityMod;
 import com.infinityraider.infinitylib.network.serialization.IMessageReader;
 import com.infinityraider.infinitylib.network.serialization.IMessageSerializer;
 import com.infinityraider.infinitylib.network.serialization.IMessageWriter;
 import com.infinityraider.infinitylib.network.serialization.MessageSerializerStore;
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.multiplayer.ClientPacketListener;
+import net.minecraft.network.Connection;
 import net.minecraft.network.FriendlyByteBuf;
 import net.minecraft.resources.ResourceKey;
 import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.MinecraftServer;
 import net.minecraft.server.level.ServerPlayer;
 import net.minecraft.world.level.Level;
+import net.minecraftforge.api.distmarker.Dist;
+import net.minecraftforge.api.distmarker.OnlyIn;
+import net.minecraftforge.fml.DistExecutor;
 import net.minecraftforge.network.NetworkDirection;
 import net.minecraftforge.network.NetworkEvent;
 import net.minecraftforge.network.NetworkRegistry;
 import net.minecraftforge.network.PacketDistributor;
 import net.minecraftforge.network.simple.SimpleChannel;
+import net.minecraftforge.server.ServerLifecycleHooks;
 
+import javax.annotation.Nullable;
 import java.lang.reflect.Constructor;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.function.BiConsumer;
 import java.util.function.Function;
+import java.util.function.Predicate;
 import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 @SuppressWarnings("unused")
 public class NetworkWrapper implements INetworkWrapper {
-    private static final String PROTOCOL_VERSION = "1";
+    private static final String PROTOCOL_VERSION = "3";
 
     private final InfinityMod<?,?> mod;
+    private final MessageBundler bundler;
+    private final MessageRateLimiter rateLimiter;
+    private final Map<Class<? extends MessageBase>, Integer> ids;
+    private final Map<Integer, MessageDecoder<?>> decoders;
 
     private SimpleChannel channel;
     private int nextId = 0;
+    private boolean loopback = true;
+    private boolean bundling = true;
 
     public NetworkWrapper(InfinityMod<?,?> mod) {
         this.mod = mod;
+        this.bundler = new MessageBundler(this);
+        this.rateLimiter = new MessageRateLimiter();
+        this.ids = Maps.newIdentityHashMap();
+        this.decoders = Maps.newHashMap();
     }
 
     public void init() {
@@ -42,20 +67,45 @@ public class NetworkWrapper implements INetworkWrapper {
                 () -> PROTOCOL_VERSION,
                 PROTOCOL_VERSION::equals,
                 PROTOCOL_VERSION::equals);
+        this.channel.registerMessage(nextId,
+                MessageBundler.Bundle.class,
+                MessageBundler.Bundle::encode,
+                MessageBundler.Bundle::decode,
+                (bundle, ctx) -> MessageBundler.handle(bundle, this, ctx.get()),
+                Optional.of(NetworkDirection.PLAY_TO_CLIENT)
+        );
+        nextId = nextId + 1;
         this.mod.registerMessages(this);
+        NetworkTickHandler.getInstance().register(this);
+    }
+
+    SimpleChannel getChannel() {
+        return this.channel;
+    }
+
+    void onServerTick() {
+        this.rateLimiter.handlePending();
+        this.bundler.flush();
     }
 
     @Override
     public void sendToAll(MessageBase message) {
         if(message.getMessageDirection() == NetworkDirection.PLAY_TO_CLIENT) {
-            this.channel.send(PacketDistributor.ALL.noArg(), message);
+            this.sendToClients(message, PacketDistributor.ALL.noArg(), player -> true);
         }
     }
 
     @Override
     public void sendTo(MessageBase message, ServerPlayer player) {
         if(message.getMessageDirection() == NetworkDirection.PLAY_TO_CLIENT) {
-            this.channel.send(PacketDistributor.PLAYER.with(() -> player), message);
+            if(this.canLoopback(message) && isLocal(player) && this.deliverToLocalClient(message, player)) {
+                return;
+            }
+            if(player.connection == null) {
+                this.channel.send(PacketDistributor.PLAYER.with(() -> player), message);
+            } else {
+                this.sendToConnections(message, PacketDistributor.PLAYER.with(() -> player), Collections.singletonList(player.connection.getConnection()));
+            }
         }
     }
 
@@ -74,7 +124,12 @@ public class NetworkWrapper implements INetworkWrapper {
     @Override
     public void sendToAllAround(MessageBase message, Supplier<PacketDistributor.TargetPoint> point) {
         if(message.getMessageDirection() == NetworkDirection.PLAY_TO_CLIENT) {
-            this.channel.send(PacketDistributor.NEAR.with(point), message);
+            PacketDistributor.TargetPoint target = point.get();
+            // Same criteria as PlayerList.broadcast(), the radius is stored in the r2 field
+            this.sendToClients(message, PacketDistributor.NEAR.with(() -> target), player ->
+                    player != target.excluded
+                            && player.level.dimension() == target.dim
+                            && player.distanceToSqr(target.x, target.y, target.z) < target.r2 * target.r2);
         }
     }
 
@@ -86,19 +141,177 @@ public class NetworkWrapper implements INetworkWrapper {
     @Override
     public void sendToDimension(MessageBase message, ResourceKey<Level> dimension) {
         if(message.getMessageDirection() == NetworkDirection.PLAY_TO_CLIENT) {
-            this.channel.send(PacketDistributor.DIMENSION.with(() -> dimension), message);
+            this.sendToClients(message, PacketDistributor.DIMENSION.with(() -> dimension), player -> player.level.dimension() == dimension);
         }
     }
 
     @Override
     public void sendToServer(MessageBase message) {
         if(message.getMessageDirection() == NetworkDirection.PLAY_TO_SERVER) {
+            if(this.canLoopback(message) && this.deliverToLocalServer(message)) {
+                return;
+            }
             this.channel.send(PacketDistributor.SERVER.noArg(), message);
         }
     }
 
+    @Override
+    public boolean isLoopbackEnabled() {
+        return this.loopback;
+    }
+
+    @Override
+    public void setLoopbackEnabled(boolean enabled) {
+        this.loopback = enabled;
+    }
+
+    @Override
+    public Map<Class<? extends MessageBase>, MessageRateLimiter.Counters> getRateLimitCounters() {
+        return this.rateLimiter.getCounters();
+    }
+
+    @Override
+    public boolean isBundlingEnabled() {
+        return this.bundling;
+    }
+
+    @Override
+    public void setBundlingEnabled(boolean enabled) {
+        if(this.bundling && !enabled) {
+            this.bundler.flush();
+        }
+        this.bundling = enabled;
+    }
+
+    protected boolean canLoopback(MessageBase message) {
+        return this.isLoopbackEnabled() && message instanceof ILoopbackMessage;
+    }
+
+    /**
+     * Sends a message to a set of clients, if one of them is the host of an integrated server,
+     * the message is delivered to it directly and only the remote clients receive the serialized message
+     */
+    private void sendToClients(MessageBase message, PacketDistributor.PacketTarget target, Predicate<ServerPlayer> recipients) {
+        boolean loopback = this.canLoopback(message);
+        MinecraftServer server = ServerLifecycleHooks.getCurrentServer();
+        if(server != null && (loopback || this.isBundlingEnabled())) {
+            List<ServerPlayer> players = server.getPlayerList().getPlayers().stream()
+                    .filter(recipients)
+                    .filter(player -> player.connection != null)
+                    .collect(Collectors.toList());
+            if(loopback && !server.isDedicatedServer()) {
+                Optional<ServerPlayer> local = players.stream().filter(NetworkWrapper::isLocal).findAny();
+                if(local.isPresent() && this.deliverToLocalClient(message, local.get())) {
+                    players.remove(local.get());
+                    this.sendToConnections(message, null, getConnections(players));
+                    return;
+                }
+            }
+            if(this.isBundlingEnabled()) {
+                this.sendToConnections(message, target, getConnections(players));
+                return;
+            }
+        }
+        this.channel.send(target, message);
+    }
+
+    /**
+     * Sends a message to a list of connections, through the bundler if bundling is enabled and the message opts in to it
+     */
+    private void sendToConnections(MessageBase message, @Nullable PacketDistributor.PacketTarget target, List<Connection> connections) {
+        if(connections.isEmpty()) {
+            return;
+        }
+        Integer id = this.ids.get(message.getClass());
+        if(this.isBundlingEnabled() && id != null) {
+            if(message.isBundled()) {
+                this.bundler.queue(message, id, connections);
+                return;
+            }
+            // Send the pending messages first, to preserve the order
+            this.bundler.flush(connections);
+        }
+        this.channel.send(target == null ? PacketDistributor.NMLIST.with(() -> connections) : target, message);
+    }
+
+    private static List<Connection> getConnections(List<ServerPlayer> players) {
+        return players.stream().map(player -> player.connection.getConnection()).collect(Collectors.toList());
+    }
+
+    /**
+     * Hands a message from an integrated server directly to its host client, bypassing the encoder and decoder.
+     * The pending bundle of the host is sent first, so the message does not overtake messages sent before it.
+     * @return false if the message could not be delivered, in which case it must be sent regularly
+     */
+    private boolean deliverToLocalClient(MessageBase message, ServerPlayer player) {
+        Connection server = player.connection.getConnection();
+        Connection client = getClientConnection();
+        if(client == null || !LoopbackContext.isAvailable()) {
+            return false;
+        }
+        this.bundler.flush(Collections.singletonList(server));
+        return this.deliverLocally(message, server, client, NetworkDirection.PLAY_TO_CLIENT);
+    }
+
+    /**
+     * Hands a message from the host client of an integrated server directly to the server, bypassing the encoder and decoder.
+     * @return false if the message could not be delivered, in which case it must be sent regularly
+     */
+    private boolean deliverToLocalServer(MessageBase message) {
+        return this.deliverLocally(message, getClientConnection(), getLocalServerConnection(), NetworkDirection.PLAY_TO_SERVER);
+    }
+
+    /**
+     * Passes a message through the event loops of both ends of a memory connection, as serialized messages are,
+     * so it does not overtake messages which are still in flight, and is handled on the network thread of the receiving end.
+     * Server bound messages are rate limited like any other message.
+     * @return false if the message could not be delivered, in which case it must be sent regularly
+     */
+    private boolean deliverLocally(MessageBase message, @Nullable Connection sender, @Nullable Connection receiver, NetworkDirection direction) {
+        if(sender == null || receiver == null || !sender.isMemoryConnection() || !LoopbackContext.isAvailable()) {
+            return false;
+        }
+        MessageBase copy = ((ILoopbackMessage) message).copyForLoopback();
+        sender.channel().eventLoop().execute(() -> receiver.channel().eventLoop().execute(() ->
+                LoopbackContext.create(receiver, direction).ifPresent(ctx -> {
+                    if(direction != NetworkDirection.PLAY_TO_SERVER || this.rateLimiter.tryAccept(copy, ctx)) {
+                        handleMessage(copy, ctx);
+                    }
+                })));
+        return true;
+    }
+
+    private static boolean isLocal(ServerPlayer player) {
+        return player.connection != null && player.connection.getConnection().isMemoryConnection();
+    }
+
+    /**
+     * @return the server side end of the memory connection of the host client of an integrated server, or null if there is none
+     */
+    @Nullable
+    private static Connection getLocalServerConnection() {
+        MinecraftServer server = ServerLifecycleHooks.getCurrentServer();
+        if(server == null || server.isDedicatedServer() || server.getConnection() == null) {
+            return null;
+        }
+        List<Connection> connections = server.getConnection().getConnections();
+        synchronized (connections) {
+            return connections.stream().filter(Connection::isMemoryConnection).findAny().orElse(null);
+        }
+    }
+
+    @Nullable
+    private static Connection getClientConnection() {
+        return DistExecutor.unsafeCallWhenOn(Dist.CLIENT, () -> ClientConnection::get);
+    }
+
     @Override
     public <MSG extends MessageBase> void registerMessage(Class<MSG> msgClass) {
+        this.registerMessage(msgClass, RateLimit.NONE);
+    }
+
+    @Override
+    public <MSG extends MessageBase> void registerMessage(Class<MSG> msgClass, RateLimit limit) {
         try {
             // Fetch constructor and create an instance
             Constructor<MSG> msgConstructor = msgClass.getDeclaredConstructor();
@@ -106,13 +319,23 @@ public class NetworkWrapper implements INetworkWrapper {
             // Register required data serializers
             msg.getNecessarySerializers().stream().forEach(this::registerDataSerializer);
             // Register the message
+            MessageDecoder<MSG> decoder = new MessageDecoder<>(msgConstructor);
             channel.registerMessage(nextId,
                     msgClass,
                     new MessageEncoder<>(),
-                    new MessageDecoder<>(msgConstructor),
-                    new MessageHandler<>(),
+                    decoder,
+                    new MessageHandler<>(this.rateLimiter),
                     Optional.ofNullable(msg.getMessageDirection())
             );
+            this.ids.put(msgClass, nextId);
+            if(limit.isLimited()) {
+                if(msg.getMessageDirection() == NetworkDirection.PLAY_TO_SERVER) {
+                    this.rateLimiter.setLimit(msgClass, limit);
+                } else {
+                    InfinityLib.instance.getLogger().error("Rate limits are only supported for server bound messages, ignoring the limit for \"" + msgClass.getName() + "\"");
+                }
+            }
+            this.decoders.put(nextId, decoder);
             InfinityLib.instance.getLogger().debug("Registered message \"" + msgClass.getName() + "\" with id " + nextId);
             // Increment ID
             nextId = nextId + 1;
@@ -132,12 +355,42 @@ public class NetworkWrapper implements INetworkWrapper {
         MessageSerializerStore.registerMessageSerializer(serializer);
     }
 
+    /**
+     * Decodes a message from its channel id, used to unpack bundles
+     */
+    @Nullable
+    MessageBase decodeMessage(int id, FriendlyByteBuf buf) {
+        MessageDecoder<?> decoder = this.decoders.get(id);
+        if(decoder == null) {
+            InfinityLib.instance.getLogger().error("Received bundled message with unknown id " + id);
+            return null;
+        }
+        return decoder.apply(buf);
+    }
+
+    /**
+     * Handles a received message: processes it on the thread defined by its execution mode
+     */
+    static void handleMessage(MessageBase msg, NetworkEvent.Context ctx) {
+        MessageTask task = new MessageTask(msg, ctx);
+        switch (msg.getExecution()) {
+            case NETWORK_THREAD:
+                task.run();
+                break;
+            case WORKER_POOL:
+                MessageWorkerPool.getInstance().execute(task);
+                break;
+            default:
+                ctx.enqueueWork(task);
+        }
+    }
+
     private static class MessageEncoder<MSG extends MessageBase> implements BiConsumer<MSG, FriendlyByteBuf> {
         private MessageEncoder() {}
 
         @Override
         public void accept(MSG req, FriendlyByteBuf packetBuffer) {
-            req.toBytes(packetBuffer);
+            MessageCompression.getInstance().encode(req, packetBuffer);
         }
     }
 
@@ -151,7 +404,7 @@ public class NetworkWrapper implements INetworkWrapper {
         @Override
         public MSG apply(FriendlyByteBuf buf) {
             try {
-                return this.msgConstructor.newInstance().fromBytes(buf);
+                return MessageCompression.getInstance().decode(this.msgConstructor.newInstance(), buf);
             } catch (Exception e) {
                 InfinityLib.instance.getLogger().printStackTrace(e);
             }
@@ -160,12 +413,21 @@ public class NetworkWrapper implements INetworkWrapper {
     }
 
     private static final class MessageHandler<MSG extends MessageBase> implements BiConsumer<MSG, Supplier<NetworkEvent.Context>> {
-        private MessageHandler() {}
+        private final MessageRateLimiter rateLimiter;
+
+        private MessageHandler(MessageRateLimiter rateLimiter) {
+            this.rateLimiter = rateLimiter;
+        }
 
         @Override
         public void accept(MSG msg, Supplier<NetworkEvent.Context> ctxSupplier) {
             NetworkEvent.Context ctx = ctxSupplier.get();
-            ctx.enqueueWork(new MessageTask(msg, ctxSupplier.get()));
+            if(ctx.getDirection() == NetworkDirection.PLAY_TO_SERVER && !this.rateLimiter.tryAccept(msg, ctx)) {
+                // Dropped or coalesced, coalesced messages are handled from the server tick
+                ctx.setPacketHandled(true);
+                return;
+            }
+            handleMessage(msg, ctx);
         }
     }
 
@@ -186,4 +448,47 @@ public class NetworkWrapper implements INetworkWrapper {
             ctx.setPacketHandled(true);
         }
     }
+
+    @OnlyIn(Dist.CLIENT)
+    private static final class ClientConnection {
+        @Nullable
+        private static Connection get() {
+            ClientPacketListener listener = Minecraft.getInstance().getConnection();
+            return listener == null ? null : listener.getConnection();
+        }
+    }
+
+    /**
+     * Forge does not expose a constructor for message contexts, it is accessed reflectively once on first use
+     */
+    private static final class LoopbackContext {
+        private static final Constructor<NetworkEvent.Context> CONSTRUCTOR = findConstructor();
+
+        private static boolean isAvailable() {
+            return CONSTRUCTOR != null;
+        }
+
+        private static Optional<NetworkEvent.Context> create(Connection connection, NetworkDirection direction) {
+            if(CONSTRUCTOR == null) {
+                return Optional.empty();
+            }
+            try {
+                return Optional.of(CONSTRUCTOR.newInstance(connection, direction, -1));
+            } catch (Exception e) {
+                return Optional.empty();
+            }
+        }
+
+        @Nullable
+        private static Constructor<NetworkEvent.Context> findConstructor() {
+            try {
+                Constructor<NetworkEvent.Context> constructor = NetworkEvent.Context.class.getDeclaredConstructor(Connection.class, NetworkDirection.class, int.class);
+                constructor.setAccessible(true);
+                return constructor;
+            } catch (Exception e) {
+                InfinityLib.instance.getLogger().error("Failed to access the network context constructor, messages will not bypass serialization on integrated servers");
+                return null;
+            }
+        }
+    }
 }
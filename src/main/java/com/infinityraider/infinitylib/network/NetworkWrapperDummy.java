@@ -10,6 +10,8 @@ import net.minecraft.server.level.ServerPlayer;
 import net.minecraft.world.level.Level;
 import net.minecraftforge.network.PacketDistributor;
 
+import java.util.Collections;
+import java.util.Map;
 import java.util.function.Supplier;
 
 public final class NetworkWrapperDummy implements INetworkWrapper {
@@ -66,11 +68,37 @@ public final class NetworkWrapperDummy implements INetworkWrapper {
         this.logErrorMessage(message);
     }
 
+    @Override
+    public final boolean isLoopbackEnabled() {
+        return false;
+    }
+
+    @Override
+    public final void setLoopbackEnabled(boolean enabled) {}
+
+    @Override
+    public final boolean isBundlingEnabled() {
+        return false;
+    }
+
+    @Override
+    public final void setBundlingEnabled(boolean enabled) {}
+
     @Override
     public final <REQ extends MessageBase> void registerMessage(Class<REQ> message) {
         // > . >
     }
 
+    @Override
+    public final <REQ extends MessageBase> void registerMessage(Class<REQ> message, RateLimit limit) {
+        // > . >
+    }
+
+    @Override
+    public final Map<Class<? extends MessageBase>, MessageRateLimiter.Counters> getRateLimitCounters() {
+        return Collections.emptyMap();
+    }
+
     @Override
     public final <T> void registerDataSerializer(Class<T> clazz, IMessageWriter<T> writer, IMessageReader<T> reader) {
         MessageSerializerStore.registerMessageSerializer(clazz, writer, reader);
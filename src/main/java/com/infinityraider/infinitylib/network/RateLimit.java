@@ -0,0 +1,62 @@
+package com.infinityraider.infinitylib.network;
+
+/**
+ * Token bucket rate limit for server bound messages, applied per player and per message class.
+ * A bucket holds at most burst tokens and is refilled at a fixed rate, every received message consumes a token.
+ * Messages received while the bucket is empty are dropped, or coalesced: only the latest one is kept,
+ * and processed as soon as a token becomes available.
+ */
+public final class RateLimit {
+    /** No rate limit */
+    public static final RateLimit NONE = new RateLimit(Double.POSITIVE_INFINITY, Integer.MAX_VALUE, Policy.DROP);
+
+    /**
+     * Creates a rate limit which drops messages over budget
+     * @param rate the number of messages per second which are allowed on average
+     * @param burst the maximum number of messages which are allowed at once
+     * @return the rate limit
+     */
+    public static RateLimit perSecond(double rate, int burst) {
+        return new RateLimit(rate, burst, Policy.DROP);
+    }
+
+    private final double rate;
+    private final int burst;
+    private final Policy policy;
+
+    private RateLimit(double rate, int burst, Policy policy) {
+        this.rate = rate;
+        this.burst = Math.max(1, burst);
+        this.policy = policy;
+    }
+
+    /**
+     * @return a copy of this rate limit which coalesces messages over budget instead of dropping them
+     */
+    public RateLimit coalescing() {
+        return new RateLimit(this.rate, this.burst, Policy.COALESCE);
+    }
+
+    public double getRate() {
+        return this.rate;
+    }
+
+    public int getBurst() {
+        return this.burst;
+    }
+
+    public Policy getPolicy() {
+        return this.policy;
+    }
+
+    public boolean isLimited() {
+        return this != NONE && Double.isFinite(this.rate);
+    }
+
+    public enum Policy {
+        /** Messages over budget are discarded */
+        DROP,
+        /** Only the latest message over budget is kept, and processed once the budget allows it */
+        COALESCE
+    }
+}
@@ -0,0 +1,273 @@
+package com.infinityraider.infinitylib.network.serialization;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.infinityraider.infinitylib.InfinityLib;
+import com.infinityraider.infinitylib.network.MessageSyncDictionary;
+import net.minecraft.network.FriendlyByteBuf;
+import net.minecraft.network.Connection;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.level.Level;
+import net.minecraftforge.event.entity.EntityJoinWorldEvent;
+import net.minecraftforge.event.server.ServerStartedEvent;
+import net.minecraftforge.event.server.ServerStoppedEvent;
+import net.minecraftforge.eventbus.api.EventPriority;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.util.thread.EffectiveSide;
+import net.minecraftforge.network.NetworkDirection;
+import net.minecraftforge.server.ServerLifecycleHooks;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * Session dictionary to send repeated identifiers (dimension keys, registry names, ...) as a VarInt index instead of a full string.
+ *
+ * The server owns the dictionary: identifiers are interned the first time they are written on the server, new entries are
+ * broadcast to all clients at the end of the server tick and only used in messages from then on.
+ * The full dictionary is sent to clients when they join.
+ * Identifiers which are not (yet) known are written in full, the index 0 is reserved to mark these.
+ *
+ * Forge encodes a broadcast message only once for all recipients, therefore the dictionary is shared by all connections
+ * of the session rather than being negotiated per connection.
+ */
+public final class IdentifierDictionary {
+    private static final IdentifierDictionary SERVER = new IdentifierDictionary(true);
+    private static final IdentifierDictionary CLIENT = new IdentifierDictionary(false);
+
+    /** Maximum number of entries, identifiers beyond this are always written in full */
+    public static final int MAX_SIZE = 4096;
+
+    /** The dictionary for the message which is currently being serialized on this thread */
+    private static final ThreadLocal<IdentifierDictionary> CURRENT = new ThreadLocal<>();
+
+    /**
+     * @return the dictionary for the message which is currently being serialized, or the dictionary of the effective side
+     */
+    public static IdentifierDictionary getInstance() {
+        IdentifierDictionary current = CURRENT.get();
+        if(current != null) {
+            return current;
+        }
+        return EffectiveSide.get().isServer() ? SERVER : CLIENT;
+    }
+
+    /**
+     * Selects the dictionary for a message which is about to be written or read on this thread,
+     * which depends on the direction of the message rather than on the thread, as messages can be serialized on any thread
+     * @param direction the direction of the message
+     * @param writing true if the message is written, false if it is read
+     * @return the previously selected dictionary, to be restored through exit()
+     */
+    public static IdentifierDictionary enter(NetworkDirection direction, boolean writing) {
+        IdentifierDictionary previous = CURRENT.get();
+        CURRENT.set(direction.getReceptionSide().isClient() == writing ? SERVER : CLIENT);
+        return previous;
+    }
+
+    public static void exit(IdentifierDictionary previous) {
+        if(previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+
+    public static IdentifierDictionary getServerInstance() {
+        return SERVER;
+    }
+
+    public static IdentifierDictionary getClientInstance() {
+        return CLIENT;
+    }
+
+    private final boolean server;
+    private final List<String> ordered;
+    private final Set<String> interned;
+    private final Set<Connection> synced;
+
+    /** Replaced as a whole when the dictionary is reset, so concurrent readers never see a partially filled dictionary */
+    private volatile Map<String, Integer> indices;
+    private volatile Map<Integer, String> entries;
+
+    /** Server side: the index of the first entry which has not been broadcast yet */
+    private int published;
+
+    private IdentifierDictionary(boolean server) {
+        this.server = server;
+        this.indices = Maps.newConcurrentMap();
+        this.entries = Maps.newConcurrentMap();
+        this.ordered = Lists.newArrayList();
+        this.interned = Sets.newHashSet();
+        this.synced = Collections.newSetFromMap(new WeakHashMap<>());
+    }
+
+    /**
+     * Writes an identifier, as a reference if it is known in the dictionary, or in full otherwise
+     * @param buf the buffer to write to
+     * @param identifier the identifier
+     */
+    public void write(FriendlyByteBuf buf, String identifier) {
+        Integer index = this.indices.get(identifier);
+        if(index == null && this.server) {
+            // Intern the identifier for next time, this message still has to contain it in full
+            this.intern(identifier);
+        }
+        if(index == null) {
+            buf.writeVarInt(0);
+            buf.writeUtf(identifier);
+        } else {
+            buf.writeVarInt(index + 1);
+        }
+    }
+
+    /**
+     * Reads an identifier written by the dictionary on the other side
+     * @param buf the buffer to read from
+     * @return the identifier
+     */
+    public String read(FriendlyByteBuf buf) {
+        int index = buf.readVarInt();
+        if(index == 0) {
+            return buf.readUtf(32767);
+        }
+        String identifier = this.entries.get(index - 1);
+        if(identifier == null) {
+            throw new IllegalStateException("Received unknown identifier dictionary index " + (index - 1));
+        }
+        return identifier;
+    }
+
+    /**
+     * Interns an identifier on the server, the entry is broadcast to all clients by the next flush
+     * @param identifier the identifier
+     */
+    public void intern(String identifier) {
+        if(!this.server) {
+            return;
+        }
+        synchronized (this.ordered) {
+            if(this.entries.size() >= MAX_SIZE || !this.interned.add(identifier)) {
+                return;
+            }
+            int index = this.ordered.size();
+            this.ordered.add(identifier);
+            this.entries.put(index, identifier);
+        }
+    }
+
+    /**
+     * Broadcasts the entries which have been interned since the last flush, and only then uses them to write identifiers,
+     * called at the end of every server tick. The entries are not broadcast while a message is being written,
+     * as that would nest a send inside the encoding of another message.
+     */
+    public void flush() {
+        if(!this.server) {
+            return;
+        }
+        int offset;
+        String[] identifiers;
+        synchronized (this.ordered) {
+            if(this.published >= this.ordered.size()) {
+                return;
+            }
+            offset = this.published;
+            identifiers = this.ordered.subList(offset, this.ordered.size()).toArray(new String[0]);
+            this.published = this.ordered.size();
+        }
+        MinecraftServer server = ServerLifecycleHooks.getCurrentServer();
+        if(server != null && server.getPlayerList().getPlayerCount() > 0) {
+            new MessageSyncDictionary(offset, identifiers, false).sendToAll();
+        }
+        // The sync is flushed immediately, so every message which is sent from now on arrives after it
+        for(int i = 0; i < identifiers.length; i++) {
+            this.indices.put(identifiers[i], offset + i);
+        }
+    }
+
+    /**
+     * Called on the client to receive entries from the server
+     * @param offset the index of the first entry
+     * @param identifiers the entries
+     * @param reset if the dictionary should be cleared first
+     */
+    public void receive(int offset, String[] identifiers, boolean reset) {
+        if(this.server) {
+            return;
+        }
+        Map<String, Integer> indices = reset ? Maps.newConcurrentMap() : this.indices;
+        Map<Integer, String> entries = reset ? Maps.newConcurrentMap() : this.entries;
+        for(int i = 0; i < identifiers.length; i++) {
+            entries.put(offset + i, identifiers[i]);
+            indices.put(identifiers[i], offset + i);
+        }
+        if(reset) {
+            this.entries = entries;
+            this.indices = indices;
+        }
+    }
+
+    public int size() {
+        return this.entries.size();
+    }
+
+    private void clear() {
+        synchronized (this.ordered) {
+            this.ordered.clear();
+            this.interned.clear();
+            this.entries = Maps.newConcurrentMap();
+            this.indices = Maps.newConcurrentMap();
+            this.synced.clear();
+            this.published = 0;
+        }
+    }
+
+    private void syncTo(ServerPlayer player) {
+        String[] identifiers;
+        synchronized (this.ordered) {
+            if(!this.synced.add(player.connection.getConnection())) {
+                return;
+            }
+            identifiers = this.ordered.toArray(new String[0]);
+        }
+        new MessageSyncDictionary(0, identifiers, true).sendTo(player);
+    }
+
+    @SubscribeEvent
+    @SuppressWarnings("unused")
+    public void onServerStarted(ServerStartedEvent event) {
+        this.clear();
+        // Pre-populate with the dimensions, as these are referenced by every entity and tile message
+        for(ResourceKey<Level> key : event.getServer().levelKeys()) {
+            this.intern(key.getRegistryName().toString());
+            this.intern(key.location().toString());
+        }
+        InfinityLib.instance.getLogger().debug("Initialized identifier dictionary with " + this.size() + " entries");
+    }
+
+    @SubscribeEvent
+    @SuppressWarnings("unused")
+    public void onServerStopped(ServerStoppedEvent event) {
+        this.clear();
+    }
+
+    /**
+     * The dictionary is sent as soon as the player joins a world, before other messages referencing it can be sent
+     */
+    @SubscribeEvent(priority = EventPriority.HIGHEST)
+    @SuppressWarnings("unused")
+    public void onPlayerJoin(EntityJoinWorldEvent event) {
+        if(event.getEntity() instanceof ServerPlayer) {
+            ServerPlayer player = (ServerPlayer) event.getEntity();
+            if(player.connection != null) {
+                this.syncTo(player);
+            }
+        }
+    }
+}
@@ -118,17 +118,29 @@ public class PacketBufferUtil {
         return buf.readResourceLocation();
     }
 
+    /**
+     * Writes a ResourceLocation which is expected to be sent often, through the session's IdentifierDictionary
+     */
+    public static FriendlyByteBuf writeIdentifier(FriendlyByteBuf buf, ResourceLocation rl) {
+        IdentifierDictionary.getInstance().write(buf, rl.toString());
+        return buf;
+    }
+
+    public static ResourceLocation readIdentifier(FriendlyByteBuf buf) {
+        return new ResourceLocation(IdentifierDictionary.getInstance().read(buf));
+    }
+
     public static <T> FriendlyByteBuf writeRegistryKey(FriendlyByteBuf buf, ResourceKey<T> key) {
         ResourceLocation parent = key.getRegistryName();
         ResourceLocation name = key.location();
-        writeResourceLocation(buf, parent);
-        writeResourceLocation(buf, name);
+        writeIdentifier(buf, parent);
+        writeIdentifier(buf, name);
         return buf;
     }
 
     public static <T> ResourceKey<T> readRegistryKey(FriendlyByteBuf buf) {
-        ResourceLocation parent = readResourceLocation(buf);
-        ResourceLocation name = readResourceLocation(buf);
+        ResourceLocation parent = readIdentifier(buf);
+        ResourceLocation name = readIdentifier(buf);
         return ResourceKey.create(ResourceKey.createRegistryKey(parent), name);
     }
 
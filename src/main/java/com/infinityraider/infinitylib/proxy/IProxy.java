@@ -7,8 +7,12 @@ import com.infinityraider.infinitylib.container.IInfinityContainerMenuType;
 import com.infinityraider.infinitylib.crafting.IngredientSerializerRegistrar;
 import com.infinityraider.infinitylib.entity.EntityHandler;
 import com.infinityraider.infinitylib.modules.Module;
+import com.infinityraider.infinitylib.network.NetworkTickHandler;
+import com.infinityraider.infinitylib.network.serialization.IdentifierDictionary;
 import com.infinityraider.infinitylib.particle.IInfinityParticleType;
 import com.infinityraider.infinitylib.proxy.base.IProxyBase;
+import com.infinityraider.infinitylib.utility.TagReloadTracker;
+import com.infinityraider.infinitylib.utility.TileReferenceRegistry;
 import com.infinityraider.infinitylib.world.StructureRegistry;
 import net.minecraft.core.BlockPos;
 import net.minecraft.core.particles.ParticleOptions;
@@ -37,6 +41,10 @@ public interface IProxy extends IProxyBase<Config> {
     default void registerEventHandlers() {
         Module.getActiveModules().forEach(module -> module.getCommonEventHandlers().forEach(this::registerEventHandler));
         this.registerEventHandler(EntityHandler.getInstance());
+        this.registerEventHandler(TagReloadTracker.getInstance());
+        this.registerEventHandler(IdentifierDictionary.getServerInstance());
+        this.registerEventHandler(NetworkTickHandler.getInstance());
+        this.registerEventHandler(TileReferenceRegistry.getInstance());
     }
 
     @Override
@@ -15,11 +15,14 @@ public final class Names {
         public static final String COUNT = "IL_Count";
         public static final String DIRECTION = "IL_DIR";
         public static final String FIELD = "IL_FIELD";
+        public static final String PACKED_FIELDS = "IL_FIELDS";
         public static final String MULTI = "IL_MULTI";
         public static final String FLAG = "IL_FLAG";
         public static final String LIST = "IL_LIST";
+        public static final String DATA = "IL_DATA";
         public static final String EFFECTS = "IL_EFFECTS";
         public static final String MATERIAL = "IL_MATERIAL";
+        public static final String VERSION = "IL_VERSION";
     }
 
     public static final class Entities {
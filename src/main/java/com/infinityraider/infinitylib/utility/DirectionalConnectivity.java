@@ -1,63 +1,85 @@
 package com.infinityraider.infinitylib.utility;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
-import com.google.common.collect.Maps;
-import com.google.common.collect.Sets;
-import com.mojang.datafixers.util.Either;
 import net.minecraft.core.Direction;
-import net.minecraft.util.Tuple;
+import net.minecraft.world.level.block.Mirror;
+import net.minecraft.world.level.block.Rotation;
 
 import java.util.*;
-import java.util.function.Function;
-import java.util.stream.Collectors;
+import java.util.function.UnaryOperator;
 
+/**
+ * Immutable set of connected Directions, backed by a 6-bit mask indexed by Direction.get3DDataValue().
+ * All 64 possible values are canonical instances, so they can be compared by identity,
+ * and all transitions, rotations and mirrors are bit operations or table lookups.
+ */
 public class DirectionalConnectivity implements Comparable<DirectionalConnectivity> {
-    public static final List<DirectionalConnectivity>[] MAP = init();
-    public static final DirectionalConnectivity NONE = MAP[0].get(0);   // Per definition the first list (combination of 0 out of n) always contains only one object)
-    public static final Set<DirectionalConnectivity> ALL = Arrays.stream(MAP).flatMap(Collection::stream).collect(Collectors.toSet());
+    private static final Direction[] DIRECTIONS = Direction.values();
+    private static final int SIZE = 1 << DIRECTIONS.length;
+    private static final int FULL_MASK = SIZE - 1;
+
+    private static final DirectionalConnectivity[] VALUES = init();
+    private static final byte[][] ROTATIONS = initRotations();
+    private static final byte[][] MIRRORS = initMirrors();
+
+    /** The values grouped by their number of connections */
+    public static final List<DirectionalConnectivity>[] MAP = initMap();
+    public static final DirectionalConnectivity NONE = VALUES[0];
+    public static final DirectionalConnectivity FULL = VALUES[FULL_MASK];
+    public static final Set<DirectionalConnectivity> ALL = ImmutableSet.copyOf(Arrays.stream(MAP).flatMap(Collection::stream).iterator());
+
+    /**
+     * @param mask a bit mask of connected directions, indexed by Direction.get3DDataValue()
+     * @return the canonical instance for the mask, bits above the sixth are ignored
+     */
+    public static DirectionalConnectivity fromMask(int mask) {
+        return VALUES[mask & FULL_MASK];
+    }
+
+    public static DirectionalConnectivity fromDirections(Direction... directions) {
+        int mask = 0;
+        for(Direction dir : directions) {
+            mask |= bit(dir);
+        }
+        return fromMask(mask);
+    }
 
     public static Optional<DirectionalConnectivity> fromString(String string) {
-        String[] split = string.split("_");
-        int connections = split.length;
-        int counter = 0;
-        for(String text : split) {
+        if(NONE.toString().equals(string)) {
+            return Optional.of(NONE);
+        }
+        int mask = 0;
+        for(String text : string.split("_")) {
             Direction dir = Direction.byName(text);
             if(dir == null) {
-                connections--;
-            } else {
-                counter += dir.get3DDataValue();
+                return Optional.empty();
             }
+            mask |= bit(dir);
         }
-        final int order = counter;
-        return MAP[connections].stream().filter(c -> c.order == order).findFirst();
+        return Optional.of(fromMask(mask));
     }
 
-    private final Set<Direction> connections;
-    private final Function<Direction, DirectionalConnectivity> adds;
-    private final Function<Direction, DirectionalConnectivity> removes;
-
-    private final int order;
+    private final int mask;
+    private final int connections;
     private final String id;
 
-    private DirectionalConnectivity(Set<Direction> connections, Function<Direction, DirectionalConnectivity> adds, Function<Direction, DirectionalConnectivity> removes) {
-        this.connections = ImmutableSet.copyOf(connections);
-        this.adds = adds;
-        this.removes = removes;
-        int order = 0;
-        StringBuilder builder = new StringBuilder();
-        for(Direction dir : this.connections) {
-            order += dir.get3DDataValue();
-            builder.append(dir.name() + "_");
+    private DirectionalConnectivity(int mask) {
+        this.mask = mask;
+        this.connections = Integer.bitCount(mask);
+        StringJoiner joiner = new StringJoiner("_");
+        for(Direction dir : DIRECTIONS) {
+            if((mask & bit(dir)) != 0) {
+                joiner.add(dir.getName());
+            }
         }
-        builder.deleteCharAt(builder.length() - 1);
-        this.order = order;
-        this.id = builder.toString();
+        this.id = mask == 0 ? "none" : joiner.toString();
     }
 
     @Override
     public int compareTo(DirectionalConnectivity o) {
         int d = this.connections() - o.connections();
-        return d == 0 ? this.order - o.order : d;
+        return d == 0 ? this.mask - o.mask : d;
     }
 
     @Override
@@ -65,132 +87,89 @@ public class DirectionalConnectivity implements Comparable<DirectionalConnectivi
         return this.id;
     }
 
+    public int getMask() {
+        return this.mask;
+    }
+
     public boolean isConnected(Direction direction) {
-        return this.connections.contains(direction);
+        return (this.mask & bit(direction)) != 0;
     }
 
     public int connections() {
-        return this.connections.size();
+        return this.connections;
     }
 
     public DirectionalConnectivity toggleConnection(Direction dir) {
-        if(this.isConnected(dir)) {
-            return this.addConnection(dir);
-        } else {
-            return this.removeConnection(dir);
-        }
+        return VALUES[this.mask ^ bit(dir)];
     }
 
     public DirectionalConnectivity addConnection(Direction dir) {
-        return this.isConnected(dir) ? this : this.adds.apply(dir);
+        return VALUES[this.mask | bit(dir)];
     }
 
     public DirectionalConnectivity removeConnection(Direction dir) {
-        return this.isConnected(dir) ? this.removes.apply(dir) : this;
+        return VALUES[this.mask & ~bit(dir)];
     }
 
-    @SuppressWarnings("unchecked")
-    private static List<DirectionalConnectivity>[] init() {
-        // Initialize all possible combinations
-        List<Builder>[] nodes = Combinatorics.combineAsObject(Direction.values().length, (array) -> new Builder().addDirections(array));
-        // Add links
-        for(int i = 0; i < nodes.length - 1; i++) {
-            List<Builder> forwards = nodes[i + 1];
-            nodes[0].forEach(builder -> linkForwards(builder, forwards));
-        }
-        // Build the network
-        List<DirectionalConnectivity>[] connections = new List[nodes.length];
-        for(int i = 0; i < nodes.length; i++) {
-            connections[i] = nodes[i].stream().map(Builder::build).collect(Collectors.toList());
-        }
-        // Clean the network
-        for(int i = 0; i < nodes.length; i++) {
-            nodes[i].stream().forEach(Builder::clean);
-        }
-        return connections;
+    public DirectionalConnectivity rotate(Rotation rotation) {
+        return VALUES[ROTATIONS[rotation.ordinal()][this.mask]];
     }
 
-    private static void linkForwards(Builder builder, List<Builder> forwards) {
-        for(Direction direction : Direction.values()) {
-            if(builder.hasConnection(direction)) {
-                continue;
-            }
-            for(Builder forward : forwards) {
-                if(forward.hasConnection(direction)) {
-                    builder.linkForwards(forward, direction);
-                }
-            }
-        }
+    public DirectionalConnectivity mirror(Mirror mirror) {
+        return VALUES[MIRRORS[mirror.ordinal()][this.mask]];
     }
-    private static class Builder {
-        private final Set<Direction> connections;
-        private final Map<Direction, Either<Builder, DirectionalConnectivity>> adds;
-        private final Map<Direction, Either<Builder, DirectionalConnectivity>> removes;
-
-        private DirectionalConnectivity built;
-
-        private Builder() {
-            this.connections = Sets.newEnumSet(Collections.emptyList(), Direction.class);
-            this.adds = Maps.newEnumMap(Direction.class);
-            this.removes = Maps.newEnumMap(Direction.class);
-            Arrays.stream(Direction.values()).forEach(dir -> {
-                this.adds.put(dir, Either.left(this));
-                this.removes.put(dir, Either.left(this));
-            });
-        }
-
-        private DirectionalConnectivity build() {
-            if(this.isBuilt()) {
-                this.built = new DirectionalConnectivity(
-                        this.connections,
-                        dir -> this.adds.get(dir).map(Builder::build, d -> d),
-                        dir -> this.removes.get(dir).map(Builder::build, d -> d)
-                );
-            }
-            return this.built;
-        }
-
-
-        private boolean isBuilt() {
-            return this.built != null;
-        }
-
-        private boolean hasConnection(Direction direction) {
-            return this.connections.contains(direction);
-        }
 
-        private Builder addDirections(int[] ordinals) {
-            Arrays.stream(ordinals).forEach(this::addDirection);
-            return this;
-        }
+    private static int bit(Direction dir) {
+        return 1 << dir.get3DDataValue();
+    }
 
-        private Builder addDirection(int ordinal) {
-            return this.addDirection(Direction.from3DDataValue(ordinal));
+    private static DirectionalConnectivity[] init() {
+        DirectionalConnectivity[] values = new DirectionalConnectivity[SIZE];
+        for(int mask = 0; mask < SIZE; mask++) {
+            values[mask] = new DirectionalConnectivity(mask);
         }
+        return values;
+    }
 
-        private Builder addDirection(Direction connection) {
-            this.connections.add(connection);
-            this.adds.put(connection, Either.left(this));
-            return this;
+    private static byte[][] initRotations() {
+        Rotation[] rotations = Rotation.values();
+        byte[][] table = new byte[rotations.length][];
+        for(Rotation rotation : rotations) {
+            table[rotation.ordinal()] = initTransform(rotation::rotate);
         }
+        return table;
+    }
 
-        private Builder linkForwards(Builder other, Direction direction) {
-            this.adds.put(direction, Either.left(other));
-            other.removes.put(direction, Either.left(this));
-            return this;
+    private static byte[][] initMirrors() {
+        Mirror[] mirrors = Mirror.values();
+        byte[][] table = new byte[mirrors.length][];
+        for(Mirror mirror : mirrors) {
+            table[mirror.ordinal()] = initTransform(mirror::mirror);
         }
+        return table;
+    }
 
-        private void clean() {
-            cleanMap(this.adds);
-            cleanMap(this.removes);
+    private static byte[] initTransform(UnaryOperator<Direction> transform) {
+        byte[] table = new byte[SIZE];
+        for(int mask = 0; mask < SIZE; mask++) {
+            int transformed = 0;
+            for(Direction dir : DIRECTIONS) {
+                if((mask & bit(dir)) != 0) {
+                    transformed |= bit(transform.apply(dir));
+                }
+            }
+            table[mask] = (byte) transformed;
         }
+        return table;
+    }
 
-        private static void cleanMap(Map<Direction, Either<Builder, DirectionalConnectivity>> map) {
-            map.entrySet().stream().filter(e -> e.getValue().left().map(Builder::isBuilt).orElse(false))
-                    .map(e -> e.getValue().left().map(b -> new Tuple<>(e, b)))
-                    .filter(Optional::isPresent)
-                    .map(Optional::get)
-                    .forEach(t -> t.getA().setValue(Either.right(t.getB().build())));
+    @SuppressWarnings("unchecked")
+    private static List<DirectionalConnectivity>[] initMap() {
+        List<DirectionalConnectivity>[] map = new List[DIRECTIONS.length + 1];
+        for(int i = 0; i < map.length; i++) {
+            final int connections = i;
+            map[i] = Arrays.stream(VALUES).filter(value -> value.connections() == connections).collect(ImmutableList.toImmutableList());
         }
+        return map;
     }
 }
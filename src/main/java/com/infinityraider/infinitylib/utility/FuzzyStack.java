@@ -82,6 +82,18 @@ public class FuzzyStack {
                 .map(s -> new FuzzyStack(s.getItem(), s.getTag()));
     }
 
+    public Optional<Item> getItem() {
+        return this.item.left();
+    }
+
+    public Optional<ITag<Item>> getTag() {
+        return this.item.right();
+    }
+
+    public List<String> getIgnoredNbt() {
+        return Collections.unmodifiableList(this.ignoredNbt);
+    }
+
     public Stream<Item> stream() {
         return this.item.map(Stream::of, ITag::stream);
     }
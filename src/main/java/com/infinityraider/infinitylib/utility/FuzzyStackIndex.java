@@ -0,0 +1,224 @@
+package com.infinityraider.infinitylib.utility;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ListMultimap;
+import net.minecraft.MethodsReturnNonnullByDefault;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.Tag;
+import net.minecraft.world.item.Item;
+import net.minecraft.world.item.ItemStack;
+import net.minecraftforge.registries.ForgeRegistries;
+import net.minecraftforge.registries.tags.ITag;
+import net.minecraftforge.registries.tags.ITagManager;
+
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Index to match ItemStacks against a large collection of FuzzyStacks.
+ * The FuzzyStacks are compiled into an Item to candidates multimap, with the tags expanded, so that only the
+ * candidates for the item of the stack have to be checked. The nbt of each candidate is reduced to a fingerprint of
+ * its keys and value hashes, so that nbt can be compared without copying or stripping the stack's nbt.
+ * The tag expansion is rebuilt lazily after every tag reload.
+ *
+ * Matching is equivalent to FuzzyStack.matches(ItemStack).
+ *
+ * @param <T> the type of the indexed entries
+ */
+@ParametersAreNonnullByDefault
+@MethodsReturnNonnullByDefault
+public class FuzzyStackIndex<T> {
+    private final List<Entry<T>> entries;
+
+    private volatile ListMultimap<Item, Entry<T>> index;
+    private volatile int generation;
+
+    public static FuzzyStackIndex<FuzzyStack> of(Collection<FuzzyStack> stacks) {
+        return new FuzzyStackIndex<>(stacks, Function.identity());
+    }
+
+    public static <T> FuzzyStackIndex<T> of(Collection<T> entries, Function<T, FuzzyStack> stackFunction) {
+        return new FuzzyStackIndex<>(entries, stackFunction);
+    }
+
+    protected FuzzyStackIndex(Collection<T> entries, Function<T, FuzzyStack> stackFunction) {
+        ImmutableList.Builder<Entry<T>> builder = ImmutableList.builder();
+        int order = 0;
+        for(T value : entries) {
+            builder.add(new Entry<>(value, stackFunction.apply(value), order++));
+        }
+        this.entries = builder.build();
+        this.generation = -1;
+    }
+
+    /**
+     * @param stack the stack to match
+     * @return all entries matching the stack, in the order in which they were indexed
+     */
+    public List<T> getMatches(@Nullable ItemStack stack) {
+        if(stack == null || stack.isEmpty()) {
+            return ImmutableList.of();
+        }
+        return this.getCandidates(stack.getItem()).stream()
+                .filter(entry -> entry.matchesNbt(stack.getTag()))
+                .map(Entry::getValue)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * @param stack the stack to match
+     * @return the first entry matching the stack, in the order in which they were indexed
+     */
+    public Optional<T> getFirstMatch(@Nullable ItemStack stack) {
+        if(stack == null || stack.isEmpty()) {
+            return Optional.empty();
+        }
+        for(Entry<T> entry : this.getCandidates(stack.getItem())) {
+            if(entry.matchesNbt(stack.getTag())) {
+                return Optional.of(entry.getValue());
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * @param stack the stack to match
+     * @return true if any entry matches the stack
+     */
+    public boolean matchesAny(@Nullable ItemStack stack) {
+        return this.getFirstMatch(stack).isPresent();
+    }
+
+    /**
+     * @param item the item to match, without nbt
+     * @return all entries matching the item, in the order in which they were indexed
+     */
+    public List<T> getMatches(Item item) {
+        return this.getCandidates(item).stream()
+                .filter(entry -> entry.matchesNbt(null))
+                .map(Entry::getValue)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * @return all indexed entries
+     */
+    public List<T> getEntries() {
+        return this.entries.stream().map(Entry::getValue).collect(Collectors.toList());
+    }
+
+    public int size() {
+        return this.entries.size();
+    }
+
+    protected List<Entry<T>> getCandidates(Item item) {
+        return this.getIndex().get(item);
+    }
+
+    protected ListMultimap<Item, Entry<T>> getIndex() {
+        int generation = TagReloadTracker.getInstance().getGeneration();
+        ListMultimap<Item, Entry<T>> index = this.index;
+        if(index == null || this.generation != generation) {
+            index = this.buildIndex();
+            this.index = index;
+            this.generation = generation;
+        }
+        return index;
+    }
+
+    private ListMultimap<Item, Entry<T>> buildIndex() {
+        // Entries are added in order, so the candidates for each item are sorted as well
+        ImmutableListMultimap.Builder<Item, Entry<T>> builder = ImmutableListMultimap.builder();
+        this.entries.forEach(entry -> entry.streamItems().distinct().forEach(item -> builder.put(item, entry)));
+        return builder.build();
+    }
+
+    protected static final class Entry<T> {
+        private final T value;
+        private final FuzzyStack stack;
+        private final int order;
+
+        private final boolean ignoreAll;
+        private final Set<String> ignored;
+        private final String[] keys;
+        private final Tag[] values;
+        private final int[] hashes;
+
+        private Entry(T value, FuzzyStack stack, int order) {
+            this.value = value;
+            this.stack = stack;
+            this.order = order;
+            this.ignoreAll = stack.getIgnoredNbt().contains("*");
+            this.ignored = ImmutableSet.copyOf(stack.getIgnoredNbt());
+            CompoundTag nbt = stack.getNbt();
+            this.keys = nbt.getAllKeys().toArray(new String[0]);
+            this.values = new Tag[this.keys.length];
+            this.hashes = new int[this.keys.length];
+            for(int i = 0; i < this.keys.length; i++) {
+                this.values[i] = nbt.get(this.keys[i]);
+                this.hashes[i] = this.values[i] == null ? 0 : this.values[i].hashCode();
+            }
+        }
+
+        public T getValue() {
+            return this.value;
+        }
+
+        public FuzzyStack getStack() {
+            return this.stack;
+        }
+
+        public int getOrder() {
+            return this.order;
+        }
+
+        private Stream<Item> streamItems() {
+            Optional<ITag<Item>> tag = this.stack.getTag();
+            if(tag.isPresent()) {
+                // Resolve the tag again, as the tag object from the FuzzyStack might have been unbound on a reload
+                ITagManager<Item> tags = ForgeRegistries.ITEMS.tags();
+                return tags == null ? tag.get().stream() : tags.getTag(tag.get().getKey()).stream();
+            }
+            return this.stack.stream();
+        }
+
+        /**
+         * Equivalent to comparing the stripped nbt of the stack to the nbt of this entry, without copying the stack nbt
+         */
+        private boolean matchesNbt(@Nullable CompoundTag nbt) {
+            if(this.ignoreAll) {
+                return true;
+            }
+            if(nbt == null) {
+                return this.keys.length == 0;
+            }
+            // Quick check on the number of relevant keys
+            int count = 0;
+            for(String key : nbt.getAllKeys()) {
+                if(!this.ignored.contains(key)) {
+                    count++;
+                }
+            }
+            if(count != this.keys.length) {
+                return false;
+            }
+            // Compare the values, on hash first
+            for(int i = 0; i < this.keys.length; i++) {
+                Tag other = nbt.get(this.keys[i]);
+                if(other == null || other.hashCode() != this.hashes[i] || !other.equals(this.values[i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.infinityraider.infinitylib.utility;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.SectionPos;
+import net.minecraft.util.Tuple;
+import net.minecraft.world.level.BlockGetter;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.level.block.Blocks;
+import net.minecraft.world.level.block.entity.BlockEntity;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.chunk.LevelChunk;
+import net.minecraft.world.level.chunk.LevelChunkSection;
+import net.minecraft.world.level.chunk.PalettedContainer;
+import net.minecraft.world.level.material.FluidState;
+import net.minecraft.world.phys.Vec3;
+
+import javax.annotation.Nullable;
+import java.util.Collection;
+
+/**
+ * Read-only copy of the block palettes of a set of chunk sections, which can safely be read from any thread.
+ *
+ * Only block states are copied: block entities are not available, and sections in chunks which are not loaded,
+ * or which contain only air, read as air.
+ */
+public class LevelSnapshot implements BlockGetter {
+    private static final BlockState AIR = Blocks.AIR.defaultBlockState();
+
+    private final int minBuildHeight;
+    private final int height;
+    private final Long2ObjectMap<PalettedContainer<BlockState>> sections;
+
+    private LevelSnapshot(Level world) {
+        this.minBuildHeight = world.getMinBuildHeight();
+        this.height = world.getHeight();
+        this.sections = new Long2ObjectOpenHashMap<>();
+    }
+
+    /**
+     * Creates a snapshot of all sections covered by the bounding boxes of a set of rays,
+     * must be called from the thread owning the level
+     * @param world the level
+     * @param rays the rays
+     * @return the snapshot
+     */
+    public static LevelSnapshot of(Level world, Collection<Tuple<Vec3, Vec3>> rays) {
+        LevelSnapshot snapshot = new LevelSnapshot(world);
+        for(Tuple<Vec3, Vec3> ray : rays) {
+            snapshot.addSections(world, new BlockPos(ray.getA()), new BlockPos(ray.getB()));
+        }
+        return snapshot;
+    }
+
+    /**
+     * Creates a snapshot of all sections covered by a box, must be called from the thread owning the level
+     * @param world the level
+     * @param from a corner of the box
+     * @param to the opposite corner of the box
+     * @return the snapshot
+     */
+    public static LevelSnapshot of(Level world, BlockPos from, BlockPos to) {
+        LevelSnapshot snapshot = new LevelSnapshot(world);
+        snapshot.addSections(world, from, to);
+        return snapshot;
+    }
+
+    private void addSections(Level world, BlockPos from, BlockPos to) {
+        int minY = Math.max(SectionPos.blockToSectionCoord(Math.min(from.getY(), to.getY())), world.getMinSection());
+        int maxY = Math.min(SectionPos.blockToSectionCoord(Math.max(from.getY(), to.getY())), world.getMaxSection() - 1);
+        int minX = SectionPos.blockToSectionCoord(Math.min(from.getX(), to.getX()));
+        int maxX = SectionPos.blockToSectionCoord(Math.max(from.getX(), to.getX()));
+        int minZ = SectionPos.blockToSectionCoord(Math.min(from.getZ(), to.getZ()));
+        int maxZ = SectionPos.blockToSectionCoord(Math.max(from.getZ(), to.getZ()));
+        for(int x = minX; x <= maxX; x++) {
+            for(int z = minZ; z <= maxZ; z++) {
+                LevelChunk chunk = null;
+                boolean fetched = false;
+                for(int y = minY; y <= maxY; y++) {
+                    long key = SectionPos.asLong(x, y, z);
+                    if(this.sections.containsKey(key)) {
+                        continue;
+                    }
+                    if(!fetched) {
+                        // Never load chunks for a snapshot
+                        chunk = world.getChunkSource().getChunkNow(x, z);
+                        fetched = true;
+                    }
+                    LevelChunkSection section = chunk == null ? null : chunk.getSection(world.getSectionIndexFromSectionY(y));
+                    this.sections.put(key, section == null || section.hasOnlyAir() ? null : section.getStates().copy());
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the number of sections in this snapshot, including empty ones
+     */
+    public int getSectionCount() {
+        return this.sections.size();
+    }
+
+    @Override
+    public BlockState getBlockState(BlockPos pos) {
+        PalettedContainer<BlockState> states = this.sections.get(SectionPos.asLong(
+                SectionPos.blockToSectionCoord(pos.getX()),
+                SectionPos.blockToSectionCoord(pos.getY()),
+                SectionPos.blockToSectionCoord(pos.getZ())));
+        return states == null ? AIR : states.get(pos.getX() & 15, pos.getY() & 15, pos.getZ() & 15);
+    }
+
+    @Override
+    public FluidState getFluidState(BlockPos pos) {
+        return this.getBlockState(pos).getFluidState();
+    }
+
+    @Nullable
+    @Override
+    public BlockEntity getBlockEntity(BlockPos pos) {
+        return null;
+    }
+
+    @Override
+    public int getHeight() {
+        return this.height;
+    }
+
+    @Override
+    public int getMinBuildHeight() {
+        return this.minBuildHeight;
+    }
+}
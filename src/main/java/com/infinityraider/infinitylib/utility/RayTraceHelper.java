@@ -2,6 +2,8 @@ package com.infinityraider.infinitylib.utility;
 
 import com.google.common.base.Predicate;
 import com.google.common.base.Predicates;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
 import net.minecraft.core.BlockPos;
 import net.minecraft.core.Direction;
 import net.minecraft.util.Mth;
@@ -9,7 +11,9 @@ import net.minecraft.util.Tuple;
 import net.minecraft.world.entity.Entity;
 import net.minecraft.world.level.ClipContext;
 import net.minecraft.world.level.Level;
-import net.minecraft.world.level.LevelAccessor;
+import net.minecraft.world.level.block.Block;
+import net.minecraft.world.level.BlockGetter;
+import net.minecraft.world.level.block.state.BlockBehaviour;
 import net.minecraft.world.level.block.state.BlockState;
 import net.minecraft.world.level.material.FluidState;
 import net.minecraft.world.phys.*;
@@ -21,9 +25,15 @@ import net.minecraft.world.phys.shapes.VoxelShape;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
 
 public class RayTraceHelper {
+    /** Batches with fewer rays than this are traced on the calling thread */
+    private static final int PARALLEL_THRESHOLD = 16;
+
     public static Optional<HitResult> getTargetBlock(Entity entity, double distance) {
         return getRayFromEyesAndDistance(entity, distance).flatMap(ray ->
                 rayTraceBlockForEntity(entity, entity.getLevel(), ray, false, false));
@@ -131,71 +141,193 @@ public class RayTraceHelper {
         return Optional.ofNullable(doRayTrace(world, ray, optionBuilder.build(), GENERAL_RAY_TRACER));
     }
 
+    /**
+     * Traces many rays against blocks at once, for instance a cone of line of sight checks.
+     * A snapshot of the chunk sections covered by the rays is taken on the calling thread, which must own the level,
+     * after which the rays are traced in parallel on the common ForkJoinPool.
+     *
+     * Shapes are cached per BlockState for the batch, except for blocks with dynamic or offset shapes.
+     * As the snapshot does not contain block entities, blocks of which the shape depends on their block entity are
+     * traced with the shape they have without one.
+     *
+     * @param world the level
+     * @param rays the rays
+     * @param options the ray trace options, entity filters are ignored
+     * @return the results, in the same order as the rays
+     */
+    public static List<BlockHitResult> rayTraceBlocks(Level world, List<Tuple<Vec3, Vec3>> rays, RayTraceOptions options) {
+        return rayTraceBlocks(world, rays, options, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Traces many rays against blocks at once, see rayTraceBlocks(Level, List, RayTraceOptions)
+     *
+     * @param world the level
+     * @param rays the rays
+     * @param options the ray trace options, entity filters are ignored
+     * @param pool the pool on which to trace the rays
+     * @return the results, in the same order as the rays
+     */
+    public static List<BlockHitResult> rayTraceBlocks(Level world, List<Tuple<Vec3, Vec3>> rays, RayTraceOptions options, ForkJoinPool pool) {
+        if (rays.isEmpty()) {
+            return ImmutableList.of();
+        }
+        LevelSnapshot snapshot = LevelSnapshot.of(world, rays);
+        ShapeCache shapes = new ShapeCache(options);
+        if (rays.size() < PARALLEL_THRESHOLD) {
+            return rays.stream().map(ray -> traceBlocks(snapshot, ray, options, shapes)).collect(Collectors.toList());
+        }
+        // Parallel streams run in the pool which invokes them
+        return pool.submit(() -> rays.parallelStream()
+                .map(ray -> traceBlocks(snapshot, ray, options, shapes))
+                .collect(Collectors.toList())).join();
+    }
+
+    private static BlockHitResult traceBlocks(LevelSnapshot snapshot, Tuple<Vec3, Vec3> ray, RayTraceOptions options, ShapeCache shapes) {
+        Vec3 start = ray.getA();
+        Vec3 stop = ray.getB();
+        if (start.equals(stop)) {
+            return BLOCK_RAY_TRACER.createMiss(ray);
+        }
+        BlockHitResult result = walkVoxels(ray, (x, y, z, pos, entry) -> {
+            BlockState state = snapshot.getBlockState(pos);
+            if (state.isAir()) {
+                return null;
+            }
+            BlockHitResult blockResult = snapshot.clipWithInteractionOverride(start, stop, pos, shapes.getBlockShape(snapshot, pos, state), state);
+            FluidState fluid = state.getFluidState();
+            BlockHitResult fluidResult = fluid.isEmpty() ? null : options.getFluidShape(snapshot, pos, fluid).clip(start, stop, pos);
+            double d0 = blockResult == null ? Double.MAX_VALUE : start.distanceToSqr(blockResult.getLocation());
+            double d1 = fluidResult == null ? Double.MAX_VALUE : start.distanceToSqr(fluidResult.getLocation());
+            return d0 <= d1 ? blockResult : fluidResult;
+        });
+        return result == null ? BLOCK_RAY_TRACER.createMiss(ray) : result;
+    }
+
     @Nullable
     private static <T extends HitResult> T doRayTrace(Level world, Tuple<Vec3, Vec3> ray, RayTraceOptions options, RayTracer<T> rayTracer) {
         Vec3 start = ray.getA();
         Vec3 stop = ray.getB();
         if (start.equals(stop)) {
             return rayTracer.createMiss(ray);
+        }
+        // Entities are fetched once for the whole ray, and sorted by where the ray enters their hitbox
+        EntityCandidates entities = rayTracer.hitsEntities() ? EntityCandidates.fetch(world, ray, options) : EntityCandidates.NONE;
+        if (!rayTracer.hitsBlocks()) {
+            T result = entities.isEmpty() ? null : rayTracer.onEntityHit(entities.getFirst());
+            return result == null ? rayTracer.createMiss(ray) : result;
         } else {
-            // Define start coordinates
-            double x_1 = Mth.lerp(-1.0E-7D, start.x, stop.x);
-            double y_1 = Mth.lerp(-1.0E-7D, start.y, stop.y);
-            double z_1 = Mth.lerp(-1.0E-7D, start.z, stop.z);
-            // Check if a result is found at the initial position
-            int x_0 = Mth.floor(x_1);
-            int y_0 = Mth.floor(y_1);
-            int z_0 = Mth.floor(z_1);
-            BlockPos.MutableBlockPos mutable_pos = new BlockPos.MutableBlockPos(x_0, y_0, z_0);
-            T result = rayTracer.trace(world, x_1, y_1, z_1, mutable_pos, ray, options);
+            T result = walkVoxels(ray, (x, y, z, pos, entry) -> checkVoxel(world, x, y, z, pos, ray, options, rayTracer, entities, entry));
             if (result != null) {
                 return result;
             }
-            // Define end coordinates
-            double x_2 = Mth.lerp(-1.0E-7D, stop.x, start.x);
-            double y_2 = Mth.lerp(-1.0E-7D, stop.y, start.y);
-            double z_2 = Mth.lerp(-1.0E-7D, stop.z, start.z);
-            // Define iteration parameters
-            double dx = x_2 - x_1;
-            double dy = y_2 - y_1;
-            double dz = z_2 - z_1;
-            int xSign = Mth.sign(dx);
-            int ySign = Mth.sign(dy);
-            int zSign = Mth.sign(dz);
-            double dxInv = xSign == 0 ? Double.MAX_VALUE : (double) xSign / dx;
-            double dyInv = ySign == 0 ? Double.MAX_VALUE : (double) ySign / dy;
-            double dzInv = zSign == 0 ? Double.MAX_VALUE : (double) zSign / dz;
-            double progress_x = dxInv * (xSign > 0 ? 1.0D - Mth.frac(x_1) : Mth.frac(x_1));
-            double progress_y = dyInv * (ySign > 0 ? 1.0D - Mth.frac(y_1) : Mth.frac(y_1));
-            double progress_z = dzInv * (zSign > 0 ? 1.0D - Mth.frac(z_1) : Mth.frac(z_1));
-            // Iterate along the ray
-            while (progress_x <= 1.0D || progress_y <= 1.0D || progress_z <= 1.0D) {
-                // Calculate next ray trace position
-                if (progress_x < progress_y) {
-                    if (progress_x < progress_z) {
-                        x_0 += xSign;
-                        progress_x += dxInv;
-                    } else {
-                        z_0 += zSign;
-                        progress_z += dzInv;
-                    }
-                } else if (progress_y < progress_z) {
-                    y_0 += ySign;
-                    progress_y += dyInv;
+            // No block has been hit, the first entity along the ray is hit, if any
+            result = entities.isEmpty() ? null : rayTracer.onEntityHit(entities.getFirst());
+            return result == null ? rayTracer.createMiss(ray) : result;
+        }
+    }
+
+    /**
+     * Walks the voxels along a ray, in order, until the visitor returns a result
+     */
+    @Nullable
+    private static <T> T walkVoxels(Tuple<Vec3, Vec3> ray, VoxelVisitor<T> visitor) {
+        Vec3 start = ray.getA();
+        Vec3 stop = ray.getB();
+        // Define start coordinates
+        double x_1 = Mth.lerp(-1.0E-7D, start.x, stop.x);
+        double y_1 = Mth.lerp(-1.0E-7D, start.y, stop.y);
+        double z_1 = Mth.lerp(-1.0E-7D, start.z, stop.z);
+        // Check if a result is found at the initial position
+        int x_0 = Mth.floor(x_1);
+        int y_0 = Mth.floor(y_1);
+        int z_0 = Mth.floor(z_1);
+        BlockPos.MutableBlockPos mutable_pos = new BlockPos.MutableBlockPos(x_0, y_0, z_0);
+        T result = visitor.visit(x_1, y_1, z_1, mutable_pos, 0);
+        if (result != null) {
+            return result;
+        }
+        // Define end coordinates
+        double x_2 = Mth.lerp(-1.0E-7D, stop.x, start.x);
+        double y_2 = Mth.lerp(-1.0E-7D, stop.y, start.y);
+        double z_2 = Mth.lerp(-1.0E-7D, stop.z, start.z);
+        // Define iteration parameters
+        double dx = x_2 - x_1;
+        double dy = y_2 - y_1;
+        double dz = z_2 - z_1;
+        int xSign = Mth.sign(dx);
+        int ySign = Mth.sign(dy);
+        int zSign = Mth.sign(dz);
+        double dxInv = xSign == 0 ? Double.MAX_VALUE : (double) xSign / dx;
+        double dyInv = ySign == 0 ? Double.MAX_VALUE : (double) ySign / dy;
+        double dzInv = zSign == 0 ? Double.MAX_VALUE : (double) zSign / dz;
+        double progress_x = dxInv * (xSign > 0 ? 1.0D - Mth.frac(x_1) : Mth.frac(x_1));
+        double progress_y = dyInv * (ySign > 0 ? 1.0D - Mth.frac(y_1) : Mth.frac(y_1));
+        double progress_z = dzInv * (zSign > 0 ? 1.0D - Mth.frac(z_1) : Mth.frac(z_1));
+        // Iterate along the ray
+        while (progress_x <= 1.0D || progress_y <= 1.0D || progress_z <= 1.0D) {
+            // Calculate next ray trace position, and the progress at which the ray enters it
+            double entry;
+            if (progress_x < progress_y) {
+                if (progress_x < progress_z) {
+                    entry = progress_x;
+                    x_0 += xSign;
+                    progress_x += dxInv;
                 } else {
+                    entry = progress_z;
                     z_0 += zSign;
                     progress_z += dzInv;
                 }
-                // Check if a result has been found
-                result = rayTracer.trace(world, x_1 + progress_x*dx, y_1+ progress_y*dy, z_1 + progress_z*dz,
-                        mutable_pos.set(x_0, y_0, z_0), ray, options);
-                if (result != null) {
-                    return result;
-                }
+            } else if (progress_y < progress_z) {
+                entry = progress_y;
+                y_0 += ySign;
+                progress_y += dyInv;
+            } else {
+                entry = progress_z;
+                z_0 += zSign;
+                progress_z += dzInv;
+            }
+            // Check if a result has been found
+            result = visitor.visit(x_1 + progress_x*dx, y_1+ progress_y*dy, z_1 + progress_z*dz, mutable_pos.set(x_0, y_0, z_0), entry);
+            if (result != null) {
+                return result;
             }
-            // No result has been found, return a miss
-            return rayTracer.createMiss(ray);
         }
+        return null;
+    }
+
+    @FunctionalInterface
+    private interface VoxelVisitor<T> {
+        /**
+         * @param x the x coordinate of the current point on the ray
+         * @param y the y coordinate of the current point on the ray
+         * @param z the z coordinate of the current point on the ray
+         * @param pos the position of the voxel, mutable
+         * @param entry the progress along the ray, between 0 and 1, at which the ray enters the voxel
+         * @return a result to stop the walk, or null to continue
+         */
+        @Nullable
+        T visit(double x, double y, double z, BlockPos pos, double entry);
+    }
+
+    @Nullable
+    private static <T extends HitResult> T checkVoxel(Level world, double x, double y, double z, BlockPos pos, Tuple<Vec3, Vec3> ray,
+                                                      RayTraceOptions options, RayTracer<T> rayTracer, EntityCandidates entities, double entry) {
+        // An entity which the ray enters before this voxel is always hit first
+        if (!entities.isEmpty() && entities.getFirstProgress() <= entry) {
+            return rayTracer.onEntityHit(entities.getFirst());
+        }
+        T result = rayTracer.trace(world, x, y, z, pos, ray, options);
+        if (result != null && !entities.isEmpty() && result.getType() != HitResult.Type.MISS) {
+            // Entities within this voxel might still be hit before the block
+            double length = ray.getA().distanceTo(ray.getB());
+            double progress = length <= 0 ? 0 : ray.getA().distanceTo(result.getLocation()) / length;
+            if (entities.getFirstProgress() < progress) {
+                T entityResult = rayTracer.onEntityHit(entities.getFirst());
+                return entityResult == null ? result : entityResult;
+            }
+        }
+        return result;
     }
 
     public static class PredicateInstanceOf<E extends Entity> implements Predicate<E> {
@@ -241,11 +373,11 @@ public class RayTraceHelper {
             this.entityFilter = entityFilter;
         }
 
-        public VoxelShape getBlockShape(LevelAccessor world, BlockPos pos, BlockState state) {
+        public VoxelShape getBlockShape(BlockGetter world, BlockPos pos, BlockState state) {
             return this.blockMode.get(state, world, pos, this.context);
         }
 
-        public VoxelShape getFluidShape(LevelAccessor world, BlockPos pos, FluidState state) {
+        public VoxelShape getFluidShape(BlockGetter world, BlockPos pos, FluidState state) {
             return this.fluidMode.canPick(state) ? state.getShape(world, pos) : Shapes.empty();
         }
 
@@ -256,6 +388,14 @@ public class RayTraceHelper {
             return null;
         }
 
+        public Predicate<? super Entity> getEntityFilter() {
+            return this.entityFilter;
+        }
+
+        /**
+         * Finds the entity closest to the ray origin near a point on the ray.
+         * The ray tracers fetch entities once per ray instead, this is kept for custom RayTracers.
+         */
         @Nullable
         public Entity getHitEntity(Level world, double x, double y, double z, Tuple<Vec3, Vec3> ray) {
             double d = 0.25D;
@@ -336,10 +476,35 @@ public class RayTraceHelper {
     }
 
     public static abstract class RayTracer<T extends HitResult> {
+        /**
+         * Called for every voxel along the ray if this tracer hits blocks
+         */
         @Nullable
         public abstract T trace(Level world, double x, double y, double z, BlockPos pos, Tuple<Vec3,Vec3> ray, RayTraceOptions options);
 
         public abstract T createMiss(Tuple<Vec3,Vec3> ray);
+
+        /**
+         * @return true if trace() should be called for the voxels along the ray
+         */
+        public boolean hitsBlocks() {
+            return true;
+        }
+
+        /**
+         * @return true if entities along the ray should be hit, these are fetched once for the whole ray, and passed to onEntityHit()
+         */
+        public boolean hitsEntities() {
+            return false;
+        }
+
+        /**
+         * Called with the first entity hit along the ray, if it is hit before any block
+         */
+        @Nullable
+        public T onEntityHit(EntityHitResult hit) {
+            return null;
+        }
     }
 
     public static final RayTracer<BlockHitResult> BLOCK_RAY_TRACER = new RayTracer<BlockHitResult>() {
@@ -376,16 +541,28 @@ public class RayTraceHelper {
         public EntityHitResult createMiss(Tuple<Vec3, Vec3> ray) {
             return new EntityRayTraceResultMiss(ray.getB());
         }
+
+        @Override
+        public boolean hitsBlocks() {
+            return false;
+        }
+
+        @Override
+        public boolean hitsEntities() {
+            return true;
+        }
+
+        @Override
+        public EntityHitResult onEntityHit(EntityHitResult hit) {
+            return hit;
+        }
     };
 
     public static final RayTracer<HitResult> GENERAL_RAY_TRACER = new RayTracer<>() {
         @Nullable
         @Override
         public HitResult trace(Level world, double x, double y, double z, BlockPos pos, Tuple<Vec3, Vec3> ray, RayTraceOptions options) {
-            EntityHitResult entityResult = ENTITY_RAY_TRACER.trace(world, x, y, z, pos, ray, options);
-            if (entityResult != null) {
-                return entityResult;
-            }
+            // Entities are handled by the broadphase
             return BLOCK_RAY_TRACER.trace(world, x, y, z, pos, ray, options);
         }
 
@@ -393,8 +570,124 @@ public class RayTraceHelper {
         public HitResult createMiss(Tuple<Vec3, Vec3> ray) {
             return BLOCK_RAY_TRACER.createMiss(ray);
         }
+
+        @Override
+        public boolean hitsEntities() {
+            return true;
+        }
+
+        @Override
+        public HitResult onEntityHit(EntityHitResult hit) {
+            return hit;
+        }
     };
 
+    /**
+     * Swept broadphase for entity hits: all entities in the bounding box of the ray are fetched once,
+     * and their hitboxes are intersected with the ray using a slab test, in order of where the ray enters them
+     */
+    private static final class EntityCandidates {
+        private static final EntityCandidates NONE = new EntityCandidates(null, Double.MAX_VALUE, null);
+
+        private final Entity first;
+        private final double progress;
+        private final Vec3 location;
+
+        private EntityCandidates(Entity first, double progress, Vec3 location) {
+            this.first = first;
+            this.progress = progress;
+            this.location = location;
+        }
+
+        private static EntityCandidates fetch(Level world, Tuple<Vec3, Vec3> ray, RayTraceOptions options) {
+            Vec3 start = ray.getA();
+            Vec3 delta = ray.getB().subtract(start);
+            // Inflate to account for pick radii
+            AABB area = new AABB(start, ray.getB()).inflate(1.0D);
+            Entity first = null;
+            double min = Double.MAX_VALUE;
+            for (Entity entity : world.getEntities(options.getSourceEntity(), area, options.getEntityFilter())) {
+                double progress = intersect(entity.getBoundingBox().inflate(entity.getPickRadius()), start, delta);
+                if (progress >= 0 && progress < min) {
+                    min = progress;
+                    first = entity;
+                }
+            }
+            return first == null ? NONE : new EntityCandidates(first, min, start.add(delta.scale(min)));
+        }
+
+        private boolean isEmpty() {
+            return this.first == null;
+        }
+
+        private double getFirstProgress() {
+            return this.progress;
+        }
+
+        private EntityHitResult getFirst() {
+            return new EntityHitResult(this.first, this.location);
+        }
+    }
+
+    /**
+     * Slab test of a ray against a box
+     * @param box the box
+     * @param start the start of the ray
+     * @param delta the ray, from start to end
+     * @return the progress along the ray, between 0 and 1, at which the ray enters the box, or -1 if it does not hit the box
+     */
+    public static double intersect(AABB box, Vec3 start, Vec3 delta) {
+        double tMin = 0;
+        double tMax = 1;
+        for (Direction.Axis axis : Direction.Axis.values()) {
+            double origin = axis.choose(start.x, start.y, start.z);
+            double direction = axis.choose(delta.x, delta.y, delta.z);
+            double low = box.min(axis);
+            double high = box.max(axis);
+            if (Math.abs(direction) < 1.0E-12D) {
+                if (origin < low || origin > high) {
+                    return -1;
+                }
+            } else {
+                double t1 = (low - origin) / direction;
+                double t2 = (high - origin) / direction;
+                tMin = Math.max(tMin, Math.min(t1, t2));
+                tMax = Math.min(tMax, Math.max(t1, t2));
+                if (tMin > tMax) {
+                    return -1;
+                }
+            }
+        }
+        return tMin;
+    }
+
+    /**
+     * Caches block shapes per BlockState for a set of ray trace options, shared by the threads tracing a batch
+     */
+    private static final class ShapeCache {
+        private final RayTraceOptions options;
+        private final Map<BlockState, VoxelShape> shapes;
+
+        private ShapeCache(RayTraceOptions options) {
+            this.options = options;
+            this.shapes = Maps.newConcurrentMap();
+        }
+
+        private VoxelShape getBlockShape(BlockGetter world, BlockPos pos, BlockState state) {
+            Block block = state.getBlock();
+            if (block.hasDynamicShape() || block.getOffsetType() != BlockBehaviour.OffsetType.NONE) {
+                // The shape depends on more than the state
+                return this.options.getBlockShape(world, pos, state);
+            }
+            VoxelShape shape = this.shapes.get(state);
+            if (shape == null) {
+                shape = this.options.getBlockShape(world, pos, state);
+                this.shapes.put(state, shape);
+            }
+            return shape;
+        }
+    }
+
     private static final class EntityRayTraceResultMiss extends EntityHitResult {
         public EntityRayTraceResultMiss(Vec3 hitVec) {
             super(null, hitVec);
@@ -0,0 +1,65 @@
+package com.infinityraider.infinitylib.utility;
+
+import com.google.common.collect.Maps;
+
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Memoizing cache for values which are derived from tags or data pack contents.
+ * The cache is cleared whenever tags are updated or data packs are reloaded, as tracked by the TagReloadTracker.
+ * Values stored in the cache are shared, and should therefore be immutable.
+ *
+ * @param <K> the key type, must implement equals and hashCode
+ * @param <V> the value type, the loader must not return null
+ */
+public class ReloadableCache<K, V> {
+    private final Function<K, V> loader;
+    private final Map<K, V> cache;
+
+    private volatile int generation;
+
+    public ReloadableCache(Function<K, V> loader) {
+        this.loader = loader;
+        this.cache = Maps.newConcurrentMap();
+        this.generation = TagReloadTracker.getInstance().getGeneration();
+    }
+
+    /**
+     * Fetches the value for a key, loads it if it is not cached yet
+     * @param key the key
+     * @return the value
+     */
+    public V get(K key) {
+        this.checkGeneration();
+        V value = this.cache.get(key);
+        if(value == null) {
+            // Do not load inside computeIfAbsent, loaders may access other caches
+            value = this.loader.apply(key);
+            V previous = this.cache.putIfAbsent(key, value);
+            if(previous != null) {
+                value = previous;
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Clears all cached values
+     */
+    public void invalidate() {
+        this.cache.clear();
+    }
+
+    private void checkGeneration() {
+        int generation = TagReloadTracker.getInstance().getGeneration();
+        if(this.generation != generation) {
+            synchronized (this) {
+                if(this.generation != generation) {
+                    this.invalidate();
+                    this.generation = generation;
+                }
+            }
+        }
+    }
+}
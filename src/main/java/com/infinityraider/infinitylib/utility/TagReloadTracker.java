@@ -0,0 +1,73 @@
+package com.infinityraider.infinitylib.utility;
+
+import com.google.common.collect.Lists;
+import net.minecraft.server.packs.resources.ResourceManagerReloadListener;
+import net.minecraftforge.event.AddReloadListenerEvent;
+import net.minecraftforge.event.TagsUpdatedEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps track of tag and data pack reloads by means of a generation counter which is incremented every time
+ * tags are (re)bound or data packs are reloaded.
+ * Anything caching data which is derived from tags can store the generation at which it was computed,
+ * and recompute it lazily once the generation has changed, or register a listener to be notified eagerly.
+ */
+public final class TagReloadTracker {
+    private static final TagReloadTracker INSTANCE = new TagReloadTracker();
+
+    public static TagReloadTracker getInstance() {
+        return INSTANCE;
+    }
+
+    private final AtomicInteger generation;
+    private final List<Runnable> listeners;
+
+    private TagReloadTracker() {
+        this.generation = new AtomicInteger(0);
+        this.listeners = Lists.newCopyOnWriteArrayList();
+    }
+
+    /**
+     * Registers a listener which is called every time the generation changes
+     * @param listener the listener
+     */
+    public void addListener(Runnable listener) {
+        this.listeners.add(listener);
+    }
+
+    /**
+     * @return the current tag generation, changes every time tags are reloaded
+     */
+    public int getGeneration() {
+        return this.generation.get();
+    }
+
+    /**
+     * Checks if data computed at a given generation is still valid
+     * @param generation the generation at which the data was computed
+     * @return true if tags have not been reloaded since
+     */
+    public boolean isCurrent(int generation) {
+        return this.getGeneration() == generation;
+    }
+
+    private void onReload() {
+        this.generation.incrementAndGet();
+        this.listeners.forEach(Runnable::run);
+    }
+
+    @SubscribeEvent
+    @SuppressWarnings("unused")
+    public void onTagsUpdated(TagsUpdatedEvent event) {
+        this.onReload();
+    }
+
+    @SubscribeEvent
+    @SuppressWarnings("unused")
+    public void onDataPackReload(AddReloadListenerEvent event) {
+        event.addListener((ResourceManagerReloadListener) manager -> this.onReload());
+    }
+}
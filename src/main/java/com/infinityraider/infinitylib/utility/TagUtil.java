@@ -2,11 +2,15 @@ package com.infinityraider.infinitylib.utility;
 
 import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import javax.annotation.Nonnull;
@@ -33,6 +37,13 @@ import net.minecraftforge.registries.tags.ITag;
 import net.minecraftforge.registries.tags.ITagManager;
 
 public final class TagUtil {
+    /**
+     * Caches for parsed stacks and fetched states, cleared on tag and data pack reloads
+     */
+    private static final ReloadableCache<StackSpec, Optional<FuzzyStack>> STACKS = new ReloadableCache<>(TagUtil::loadStack);
+    private static final ReloadableCache<StateSpec, Set<BlockState>> BLOCK_STATES = new ReloadableCache<>(TagUtil::loadBlockStates);
+    private static final ReloadableCache<StateSpec, Set<FluidState>> FLUID_STATES = new ReloadableCache<>(TagUtil::loadFluidStates);
+
     /**
      * Determines if the given string represents a valid tag.
      *
@@ -106,7 +117,7 @@ public final class TagUtil {
      * @param useTags to check if the element corresponds to a registry name in the tag registry instead
      * @param nbt a json string representation of the nbt to be associated with the item.
      * @param ignoredNbt a List of NBT tags to ignore
-     * @return an Optional containing a FuzzyStack, or empty
+     * @return an Optional containing a FuzzyStack, or empty, cached until the next tag reload
      */
     @Nonnull
     public static Optional<FuzzyStack> parseStack(@Nullable String element, int amount, boolean useTags, String nbt, List<String> ignoredNbt) {
@@ -114,6 +125,16 @@ public final class TagUtil {
         if (element == null || element.isEmpty()) {
             return Optional.empty();
         }
+        return STACKS.get(new StackSpec(element, amount, useTags, nbt, ignoredNbt));
+    }
+
+    @Nonnull
+    private static Optional<FuzzyStack> loadStack(StackSpec spec) {
+        final String element = spec.element;
+        final int amount = spec.amount;
+        final boolean useTags = spec.useTags;
+        final String nbt = spec.nbt;
+        final List<String> ignoredNbt = spec.ignoredNbt;
 
         // Split the element.
         final String[] parts = element.split(":");
@@ -216,27 +237,61 @@ public final class TagUtil {
      * @param element the registry name of the Block.
      * @param useTags to check if the element corresponds to a registry name in the tag registry instead
      * @param blockStateData a list of strings representing block state property values
-     * @return a Collection containing all matching BlockStates, or empty
-     * optional.
+     * @return an immutable Collection containing all matching BlockStates, or empty, cached until the next tag reload
      */
     @Nonnull
     public static Collection<BlockState> fetchBlockStates(@Nullable String element, boolean useTags, List<String> blockStateData) {
+        return fetchBlockStateSet(element, useTags, blockStateData);
+    }
+
+    /**
+     * Fetches a Set of all BlockStates respecting the given attributes, if possible.
+     * The set is cached until the next tag reload, and is meant to check BlockStates against with a hash lookup.
+     *
+     * @param element the registry name of the Block.
+     * @param useTags to check if the element corresponds to a registry name in the tag registry instead
+     * @param blockStateData a list of strings representing block state property values
+     * @return an immutable Set containing all matching BlockStates, or empty
+     */
+    @Nonnull
+    public static Set<BlockState> fetchBlockStateSet(@Nullable String element, boolean useTags, List<String> blockStateData) {
         // If null or empty return nothing.
         if (element == null || element.isEmpty()) {
-            return Collections.emptyList();
+            return ImmutableSet.of();
         }
+        return BLOCK_STATES.get(new StateSpec(element, useTags, blockStateData));
+    }
+
+    /**
+     * Checks if a BlockState matches the given attributes
+     *
+     * @param state the BlockState to check
+     * @param element the registry name of the Block.
+     * @param useTags to check if the element corresponds to a registry name in the tag registry instead
+     * @param blockStateData a list of strings representing block state property values
+     * @return true if the BlockState matches
+     */
+    public static boolean matchesBlockState(BlockState state, @Nullable String element, boolean useTags, List<String> blockStateData) {
+        return fetchBlockStateSet(element, useTags, blockStateData).contains(state);
+    }
+
+    @Nonnull
+    private static Set<BlockState> loadBlockStates(StateSpec spec) {
+        final String element = spec.element;
+        final boolean useTags = spec.useTags;
+        final List<String> blockStateData = spec.data;
 
         // Split the element.
         final String[] parts = element.split(":");
 
         // If only 1 part, then assume is suffix.
         if (parts.length == 1) {
-            return fetchBlockStates("minecraft", parts[0], useTags, blockStateData);
+            return ImmutableSet.copyOf(fetchBlockStates("minecraft", parts[0], useTags, blockStateData));
         } else if (parts.length == 2) {
-            return fetchBlockStates(parts[0], parts[1], useTags, blockStateData);
+            return ImmutableSet.copyOf(fetchBlockStates(parts[0], parts[1], useTags, blockStateData));
         } else if (parts.length > 2) {
             InfinityLib.instance.getLogger().warn("Invalid block identifier detected!\n\tGiven: \"{0}\"\n\tAssuming: \"{1}:{2}\"", element, parts[0], parts[1]);
-            return fetchBlockStates(parts[0], parts[1], useTags, blockStateData);
+            return ImmutableSet.copyOf(fetchBlockStates(parts[0], parts[1], useTags, blockStateData));
         } else {
             throw new AssertionError("String.split() method worked incorrectly. This should be an impossible error.");
         }
@@ -308,27 +363,61 @@ public final class TagUtil {
      * @param element the registry name of the Fluid.
      * @param useTags to check if the element corresponds to a registry name in the tag registry instead
      * @param fluidStateData a List of BlockState Properties to ignore
-     * @return a Collection containing all matching FluidStates, or empty
-     * optional.
+     * @return an immutable Collection containing all matching FluidStates, or empty, cached until the next tag reload
      */
     @Nonnull
     public static Collection<FluidState> fetchFluidStates(@Nullable String element, boolean useTags, List<String> fluidStateData) {
+        return fetchFluidStateSet(element, useTags, fluidStateData);
+    }
+
+    /**
+     * Fetches a Set of all FluidStates respecting the given attributes, if possible.
+     * The set is cached until the next tag reload, and is meant to check FluidStates against with a hash lookup.
+     *
+     * @param element the registry name of the Fluid.
+     * @param useTags to check if the element corresponds to a registry name in the tag registry instead
+     * @param fluidStateData a list of strings representing fluid state property values
+     * @return an immutable Set containing all matching FluidStates, or empty
+     */
+    @Nonnull
+    public static Set<FluidState> fetchFluidStateSet(@Nullable String element, boolean useTags, List<String> fluidStateData) {
         // If null or empty return nothing.
         if (element == null || element.isEmpty()) {
-            return Collections.emptyList();
+            return ImmutableSet.of();
         }
+        return FLUID_STATES.get(new StateSpec(element, useTags, fluidStateData));
+    }
+
+    /**
+     * Checks if a FluidState matches the given attributes
+     *
+     * @param state the FluidState to check
+     * @param element the registry name of the Fluid.
+     * @param useTags to check if the element corresponds to a registry name in the tag registry instead
+     * @param fluidStateData a list of strings representing fluid state property values
+     * @return true if the FluidState matches
+     */
+    public static boolean matchesFluidState(FluidState state, @Nullable String element, boolean useTags, List<String> fluidStateData) {
+        return fetchFluidStateSet(element, useTags, fluidStateData).contains(state);
+    }
+
+    @Nonnull
+    private static Set<FluidState> loadFluidStates(StateSpec spec) {
+        final String element = spec.element;
+        final boolean useTags = spec.useTags;
+        final List<String> fluidStateData = spec.data;
 
         // Split the element.
         final String[] parts = element.split(":");
 
         // If only 1 part, then assume is suffix.
         if (parts.length == 1) {
-            return fetchFluidStates("minecraft", parts[0], useTags, fluidStateData);
+            return ImmutableSet.copyOf(fetchFluidStates("minecraft", parts[0], useTags, fluidStateData));
         } else if (parts.length == 2) {
-            return fetchFluidStates(parts[0], parts[1], useTags, fluidStateData);
+            return ImmutableSet.copyOf(fetchFluidStates(parts[0], parts[1], useTags, fluidStateData));
         } else if (parts.length > 2) {
             InfinityLib.instance.getLogger().warn("Invalid stack identifier detected!\n\tGiven: \"{0}\"\n\tAssuming: \"{1}:{2}\"", element, parts[0], parts[1]);
-            return fetchFluidStates(parts[0], parts[1], useTags, fluidStateData);
+            return ImmutableSet.copyOf(fetchFluidStates(parts[0], parts[1], useTags, fluidStateData));
         } else {
             throw new AssertionError("String.split() method worked incorrectly. This should be an impossible error.");
         }
@@ -411,6 +500,80 @@ public final class TagUtil {
         });
     }
 
+    /**
+     * Cache key for parsed stacks
+     */
+    private static final class StackSpec {
+        private final String element;
+        private final int amount;
+        private final boolean useTags;
+        private final String nbt;
+        private final List<String> ignoredNbt;
+
+        private StackSpec(String element, int amount, boolean useTags, @Nullable String nbt, @Nullable List<String> ignoredNbt) {
+            this.element = element;
+            this.amount = amount;
+            this.useTags = useTags;
+            this.nbt = nbt;
+            this.ignoredNbt = ignoredNbt == null ? null : ImmutableList.copyOf(ignoredNbt);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if(this == obj) {
+                return true;
+            }
+            if(!(obj instanceof StackSpec)) {
+                return false;
+            }
+            StackSpec other = (StackSpec) obj;
+            return this.amount == other.amount
+                    && this.useTags == other.useTags
+                    && this.element.equals(other.element)
+                    && Objects.equals(this.nbt, other.nbt)
+                    && Objects.equals(this.ignoredNbt, other.ignoredNbt);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(this.element, this.amount, this.useTags, this.nbt, this.ignoredNbt);
+        }
+    }
+
+    /**
+     * Cache key for fetched block and fluid states
+     */
+    private static final class StateSpec {
+        private final String element;
+        private final boolean useTags;
+        private final List<String> data;
+
+        private StateSpec(String element, boolean useTags, List<String> data) {
+            this.element = element;
+            this.useTags = useTags;
+            this.data = ImmutableList.copyOf(data);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if(this == obj) {
+                return true;
+            }
+            if(!(obj instanceof StateSpec)) {
+                return false;
+            }
+            StateSpec other = (StateSpec) obj;
+            return this.useTags == other.useTags
+                    && this.element.equals(other.element)
+                    && this.data.equals(other.data);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(this.element, this.useTags, this.data);
+        }
+    }
+
     /**
      * Dummy constructor to prevent instantiation of utility class.
      */
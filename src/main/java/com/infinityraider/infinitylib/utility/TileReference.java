@@ -1,13 +1,23 @@
 package com.infinityraider.infinitylib.utility;
 
+import com.google.common.collect.Lists;
 import net.minecraft.core.BlockPos;
 import net.minecraft.world.level.LevelAccessor;
 import net.minecraft.world.level.block.entity.BlockEntity;
 
 import javax.annotation.Nullable;
 import java.lang.ref.WeakReference;
+import java.util.List;
 import java.util.function.BiFunction;
 
+/**
+ * Reference to a tile at a position, which resolves the tile lazily and keeps track of its status.
+ *
+ * Untracked references re-check the world once the referenced tile has been garbage collected.
+ * References which are tracked by the TileReferenceRegistry are updated when their chunk is loaded or unloaded,
+ * or when their tile is removed, instead: in that case getTile() does not access the world while the tile is ready,
+ * and listeners are notified of status changes.
+ */
 public class TileReference<T extends BlockEntity> {
     private final BlockPos pos;
     private final BiFunction<LevelAccessor, BlockPos, T> getter;
@@ -15,6 +25,10 @@ public class TileReference<T extends BlockEntity> {
     private Status status;
     private WeakReference<T> ref;
 
+    private boolean tracked;
+    private T tile;
+    private List<Listener<T>> listeners;
+
     public TileReference(BlockPos pos, BiFunction<LevelAccessor, BlockPos, T> getter) {
         this.pos = pos;
         this.getter = getter;
@@ -41,6 +55,50 @@ public class TileReference<T extends BlockEntity> {
         return this.getStatus().isRemoved();
     }
 
+    /**
+     * @return true if this reference is tracked by the TileReferenceRegistry
+     */
+    public boolean isTracked() {
+        return this.tracked;
+    }
+
+    /**
+     * Starts tracking this reference in the TileReferenceRegistry, must be called from the thread owning the world
+     * @param world the world in which the tile resides
+     * @return this
+     */
+    public TileReference<T> track(LevelAccessor world) {
+        TileReferenceRegistry.getInstance().track(world, this);
+        return this;
+    }
+
+    /**
+     * Stops tracking this reference in the TileReferenceRegistry
+     * @param world the world in which the tile resides
+     */
+    public void untrack(LevelAccessor world) {
+        TileReferenceRegistry.getInstance().untrack(world, this);
+    }
+
+    /**
+     * Adds a listener which is notified whenever the status of this reference changes
+     * @param listener the listener
+     * @return this
+     */
+    public TileReference<T> addListener(Listener<T> listener) {
+        if(this.listeners == null) {
+            this.listeners = Lists.newArrayListWithCapacity(1);
+        }
+        this.listeners.add(listener);
+        return this;
+    }
+
+    public void removeListener(Listener<T> listener) {
+        if(this.listeners != null) {
+            this.listeners.remove(listener);
+        }
+    }
+
     @Nullable
     public T getTile(LevelAccessor world) {
         switch (this.getStatus()) {
@@ -52,23 +110,25 @@ public class TileReference<T extends BlockEntity> {
     }
 
     protected T getTileReady(LevelAccessor world) {
+        if(this.tracked) {
+            T tile = this.tile;
+            // Tiles can be replaced without notification (e.g. vanilla tiles), resolve again in that case
+            return tile.isRemoved() ? this.resolve(world) : tile;
+        }
         T tile = this.ref.get();
         if (tile == null) {
-            this.status = this.checkLoaded(world) ? Status.REMOVED : Status.UNLOADED;
+            this.setStatus(this.checkLoaded(world) ? Status.REMOVED : Status.UNLOADED);
         }
         return tile;
     }
 
     protected T getTileUnloaded(LevelAccessor world) {
+        if(this.tracked) {
+            // The registry resolves the tile when the chunk loads
+            return null;
+        }
         if(this.checkLoaded(world)) {
-            T tile = this.getter.apply(world, this.getPos());
-            if(tile == null) {
-                this.status = Status.REMOVED;
-            } else {
-                this.ref = new WeakReference<>(tile);
-                this.status = Status.READY;
-            }
-            return tile;
+            return this.resolve(world);
         } else {
             return null;
         }
@@ -82,6 +142,68 @@ public class TileReference<T extends BlockEntity> {
         return world.isAreaLoaded(this.getPos(), 0);
     }
 
+    void setTracked(boolean tracked) {
+        this.tracked = tracked;
+        if(tracked) {
+            this.tile = this.ref == null ? null : this.ref.get();
+            if(this.tile == null && this.isReady()) {
+                this.setStatus(Status.UNLOADED);
+            }
+        } else {
+            this.tile = null;
+        }
+    }
+
+    /**
+     * Resolves the tile from the world, the chunk must be loaded
+     */
+    @Nullable
+    T resolve(LevelAccessor world) {
+        T tile = this.getter.apply(world, this.getPos());
+        this.setTile(tile);
+        this.setStatus(tile == null ? Status.REMOVED : Status.READY);
+        return tile;
+    }
+
+    void onUnloaded() {
+        this.setTile(null);
+        this.setStatus(Status.UNLOADED);
+    }
+
+    /**
+     * Called when a tile at the position of this reference is removed
+     * @return true if the removed tile was the referenced tile
+     */
+    boolean onRemoved(BlockEntity removed) {
+        if(this.isReady() && this.tile == removed) {
+            this.setTile(null);
+            this.setStatus(Status.REMOVED);
+            return true;
+        }
+        return false;
+    }
+
+    private void setTile(@Nullable T tile) {
+        this.ref = tile == null ? null : new WeakReference<>(tile);
+        this.tile = this.tracked ? tile : null;
+    }
+
+    private void setStatus(Status status) {
+        Status old = this.status;
+        this.status = status;
+        if(old != status && this.listeners != null) {
+            this.listeners.forEach(listener -> listener.onStatusChanged(this, old, status));
+        }
+    }
+
+    /**
+     * Listener for status changes of a TileReference
+     */
+    @FunctionalInterface
+    public interface Listener<T extends BlockEntity> {
+        void onStatusChanged(TileReference<T> reference, Status from, Status to);
+    }
+
     public enum Status {
         READY(),
         UNLOADED(),
@@ -0,0 +1,225 @@
+package com.infinityraider.infinitylib.utility;
+
+import com.google.common.collect.Lists;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import net.minecraft.core.BlockPos;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.level.LevelAccessor;
+import net.minecraft.world.level.block.entity.BlockEntity;
+import net.minecraftforge.event.TickEvent;
+import net.minecraftforge.event.world.ChunkEvent;
+import net.minecraftforge.event.world.WorldEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+
+import java.lang.ref.WeakReference;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Keeps tracked TileReferences up to date, so that they do not have to poll the world:
+ * references are marked as unloaded when their chunk unloads, are resolved again at the end of the tick in which
+ * their chunk loads, and are marked as removed when their tile is removed.
+ *
+ * References are grouped per chunk, and are only weakly referenced: references which are no longer used are
+ * cleaned up automatically, untracking them explicitly is optional.
+ * Tracking and all updates happen on the thread owning the world.
+ */
+public final class TileReferenceRegistry {
+    private static final TileReferenceRegistry INSTANCE = new TileReferenceRegistry();
+
+    public static TileReferenceRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    private final Map<LevelAccessor, Entries> entries;
+
+    private TileReferenceRegistry() {
+        this.entries = Collections.synchronizedMap(new WeakHashMap<>());
+    }
+
+    /**
+     * Starts tracking a reference, resolves it right away if its chunk is loaded
+     * @param world the world in which the tile resides
+     * @param reference the reference
+     */
+    public void track(LevelAccessor world, TileReference<?> reference) {
+        if(reference.isTracked()) {
+            return;
+        }
+        this.entries.computeIfAbsent(world, w -> new Entries()).add(reference);
+        reference.setTracked(true);
+        if(reference.checkLoaded(world)) {
+            reference.resolve(world);
+        } else {
+            reference.onUnloaded();
+        }
+    }
+
+    /**
+     * Stops tracking a reference
+     * @param world the world in which the tile resides
+     * @param reference the reference
+     */
+    public void untrack(LevelAccessor world, TileReference<?> reference) {
+        Entries entries = this.entries.get(world);
+        if(entries != null) {
+            entries.remove(reference);
+        }
+        reference.setTracked(false);
+    }
+
+    /**
+     * Called when a tile is added to the world, resolves references which do not point to a tile yet
+     * @param tile the tile
+     */
+    public void onTileAdded(BlockEntity tile) {
+        Entries entries = tile.getLevel() == null ? null : this.entries.get(tile.getLevel());
+        if(entries != null) {
+            // The tile is not yet in the world when it is added, resolve at the end of the tick
+            entries.markPending(tile.getBlockPos());
+        }
+    }
+
+    /**
+     * Called when a tile is removed from the world, marks references pointing to it as removed
+     * @param tile the tile
+     */
+    public void onTileRemoved(BlockEntity tile) {
+        Entries entries = tile.getLevel() == null ? null : this.entries.get(tile.getLevel());
+        if(entries != null) {
+            BlockPos pos = tile.getBlockPos();
+            entries.forEach(ChunkPos.asLong(pos.getX() >> 4, pos.getZ() >> 4), reference -> {
+                if(reference.getPos().equals(pos) && reference.onRemoved(tile)) {
+                    // The tile might be replaced within the same tick
+                    entries.markPending(pos);
+                }
+            });
+        }
+    }
+
+    @SubscribeEvent
+    @SuppressWarnings("unused")
+    public void onChunkLoad(ChunkEvent.Load event) {
+        Entries entries = this.entries.get(event.getWorld());
+        if(entries != null) {
+            // Tiles can not be resolved safely while the chunk is being loaded, resolve at the end of the tick
+            entries.markPending(event.getChunk().getPos().toLong());
+        }
+    }
+
+    @SubscribeEvent
+    @SuppressWarnings("unused")
+    public void onChunkUnload(ChunkEvent.Unload event) {
+        Entries entries = this.entries.get(event.getWorld());
+        if(entries != null) {
+            long chunk = event.getChunk().getPos().toLong();
+            entries.pending.remove(chunk);
+            entries.forEach(chunk, TileReference::onUnloaded);
+        }
+    }
+
+    @SubscribeEvent
+    @SuppressWarnings("unused")
+    public void onWorldUnload(WorldEvent.Unload event) {
+        Entries entries = this.entries.remove(event.getWorld());
+        if(entries != null) {
+            entries.references.values().forEach(list -> list.forEach(ref -> {
+                TileReference<?> reference = ref.get();
+                if(reference != null) {
+                    reference.onUnloaded();
+                    reference.setTracked(false);
+                }
+            }));
+        }
+    }
+
+    @SubscribeEvent
+    @SuppressWarnings("unused")
+    public void onWorldTick(TickEvent.WorldTickEvent event) {
+        if(event.phase != TickEvent.Phase.END) {
+            return;
+        }
+        Entries entries = this.entries.get(event.world);
+        if(entries != null && !entries.pending.isEmpty()) {
+            long[] chunks = entries.pending.toLongArray();
+            entries.pending.clear();
+            for(long chunk : chunks) {
+                entries.forEach(chunk, reference -> {
+                    if(!reference.isReady() && reference.checkLoaded(event.world)) {
+                        reference.resolve(event.world);
+                    }
+                });
+            }
+        }
+    }
+
+    /**
+     * The tracked references of a single world
+     */
+    private static final class Entries {
+        private final Long2ObjectMap<List<WeakReference<TileReference<?>>>> references;
+        private final LongSet pending;
+
+        private Entries() {
+            this.references = new Long2ObjectOpenHashMap<>();
+            this.pending = new LongOpenHashSet();
+        }
+
+        private static long getChunk(TileReference<?> reference) {
+            return ChunkPos.asLong(reference.getPos().getX() >> 4, reference.getPos().getZ() >> 4);
+        }
+
+        private void add(TileReference<?> reference) {
+            this.references.computeIfAbsent(getChunk(reference), c -> Lists.newArrayList()).add(new WeakReference<>(reference));
+        }
+
+        private void remove(TileReference<?> reference) {
+            long chunk = getChunk(reference);
+            List<WeakReference<TileReference<?>>> list = this.references.get(chunk);
+            if(list != null) {
+                list.removeIf(ref -> ref.get() == null || ref.get() == reference);
+                if(list.isEmpty()) {
+                    this.references.remove(chunk);
+                }
+            }
+        }
+
+        private void markPending(BlockPos pos) {
+            this.markPending(ChunkPos.asLong(pos.getX() >> 4, pos.getZ() >> 4));
+        }
+
+        private void markPending(long chunk) {
+            if(this.references.containsKey(chunk)) {
+                this.pending.add(chunk);
+            }
+        }
+
+        /**
+         * Applies an action to the references in a chunk, cleaning up references which are no longer used
+         */
+        private void forEach(long chunk, Consumer<TileReference<?>> action) {
+            List<WeakReference<TileReference<?>>> list = this.references.get(chunk);
+            if(list == null) {
+                return;
+            }
+            // Copy, as actions might notify listeners which (un)track references
+            for(WeakReference<TileReference<?>> ref : Lists.newArrayList(list)) {
+                TileReference<?> reference = ref.get();
+                if(reference == null) {
+                    list.remove(ref);
+                } else {
+                    action.accept(reference);
+                }
+            }
+            if(list.isEmpty()) {
+                this.references.remove(chunk);
+            }
+        }
+    }
+}
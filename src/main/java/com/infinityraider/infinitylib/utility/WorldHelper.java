@@ -1,10 +1,12 @@
 package com.infinityraider.infinitylib.utility;
 
 import com.infinityraider.infinitylib.InfinityLib;
+import com.infinityraider.infinitylib.block.tile.TileEntityBase;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
@@ -21,8 +23,11 @@ import net.minecraft.world.level.block.Block;
 import net.minecraft.world.level.block.entity.BlockEntity;
 import net.minecraft.world.level.block.state.BlockBehaviour;
 import net.minecraftforge.common.capabilities.Capability;
+import net.minecraftforge.common.util.LazyOptional;
 
 public class WorldHelper {
+    private static final Direction[] DIRECTIONS = Direction.values();
+
     public static <T> Optional<T> getBlock(LevelAccessor world, BlockPos pos, Class<T> type) {
         return Optional.ofNullable(world)
                 .map(w -> w.getBlockState(pos))
@@ -50,6 +55,37 @@ public class WorldHelper {
                 });
     }
 
+    /**
+     * Fetches a capability of the neighbour of a tile, through the neighbour cache if the tile is a TileEntityBase
+     * @param tile the tile
+     * @param dir the direction of the neighbour
+     * @param capability the capability
+     * @return the handle for the face of the neighbour which faces the tile
+     */
+    public static <T> LazyOptional<T> getNeighborCapability(BlockEntity tile, Direction dir, Capability<T> capability) {
+        if(tile instanceof TileEntityBase) {
+            return ((TileEntityBase) tile).getNeighborCapability(dir, capability);
+        }
+        Level world = tile.getLevel();
+        BlockEntity neighbor = world == null ? null : world.getBlockEntity(tile.getBlockPos().relative(dir));
+        return neighbor == null ? LazyOptional.empty() : neighbor.getCapability(capability, dir.getOpposite());
+    }
+
+    /**
+     * Applies an action to the capabilities of all neighbours of a tile which have it, without allocating for TileEntityBase
+     * @param tile the tile
+     * @param capability the capability
+     * @param action the action, receives the direction of the neighbour and its capability
+     */
+    public static <T> void forEachNeighborCapability(BlockEntity tile, Capability<T> capability, BiConsumer<Direction, T> action) {
+        for(Direction dir : DIRECTIONS) {
+            LazyOptional<T> handle = getNeighborCapability(tile, dir, capability);
+            if(handle.isPresent()) {
+                action.accept(dir, handle.orElseThrow(IllegalStateException::new));
+            }
+        }
+    }
+
     public static <T> List<T> collectBlocks(LevelAccessor world, BlockPos min, BlockPos max, Class<T> type) {
         return streamBlocks(world, min, max, type).collect(Collectors.toList());
     }
@@ -4,16 +4,29 @@ import net.minecraft.world.item.ItemStack;
 import net.minecraftforge.items.IItemHandler;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 /**
  * Simple class to wrap an IItemHandler as an IInventory while maintaining IItemHandler functionality
+ *
+ * The wrapper can optionally index the slots, this is only valid if the wrapped IItemHandler is only modified through
+ * the wrapper, otherwise the index has to be rebuilt after outside modifications.
  */
 @SuppressWarnings("unused")
 public class ContainerItemHandler implements IContainerItemHandler {
     private final IItemHandler itemHandler;
+    private final SlotIndex index;
 
     public ContainerItemHandler(IItemHandler itemHandler) {
+        this(itemHandler, false);
+    }
+
+    public ContainerItemHandler(IItemHandler itemHandler, boolean indexed) {
         this.itemHandler = itemHandler;
+        this.index = indexed ? new SlotIndex(itemHandler.getSlots()) : null;
+        if(this.index != null) {
+            this.index.rebuild(itemHandler);
+        }
     }
 
     public IItemHandler getItemHandler() {
@@ -40,13 +53,21 @@ public class ContainerItemHandler implements IContainerItemHandler {
     @Override
     @Nonnull
     public ItemStack insertItem(int slot, @Nonnull ItemStack stack, boolean simulate) {
-        return this.getItemHandler().insertItem(slot, stack, simulate);
+        ItemStack remaining = this.getItemHandler().insertItem(slot, stack, simulate);
+        if(!simulate) {
+            this.onSlotChanged(slot);
+        }
+        return remaining;
     }
 
     @Override
     @Nonnull
     public ItemStack extractItem(int slot, int amount, boolean simulate) {
-        return this.getItemHandler().extractItem(slot, amount, simulate);
+        ItemStack extracted = this.getItemHandler().extractItem(slot, amount, simulate);
+        if(!simulate) {
+            this.onSlotChanged(slot);
+        }
+        return extracted;
     }
 
     @Override
@@ -59,6 +80,12 @@ public class ContainerItemHandler implements IContainerItemHandler {
         return this.getItemHandler().isItemValid(slot, stack);
     }
 
+    @Override
+    @Nullable
+    public SlotIndex getSlotIndex() {
+        return this.index;
+    }
+
 
     /**
      * ------------------
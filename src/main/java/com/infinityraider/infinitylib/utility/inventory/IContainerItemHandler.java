@@ -1,11 +1,18 @@
 package com.infinityraider.infinitylib.utility.inventory;
 
 import net.minecraft.world.item.ItemStack;
+import net.minecraftforge.items.ItemHandlerHelper;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.BitSet;
+import java.util.function.Predicate;
 
 /**
  * IInventory interface to link the IItemHandler methods automatically to the Container methods
+ *
+ * Implementations can optionally provide a SlotIndex to speed up the bulk transfer methods, in that case they must
+ * call onSlotChanged() from setItem(), or whenever else the contents of a slot change.
  */
 public interface IContainerItemHandler extends IContainerWrapped, IItemHandlerWrapped {
     @Nonnull
@@ -31,27 +38,31 @@ public interface IContainerItemHandler extends IContainerWrapped, IItemHandlerWr
             return stack;
         }
         ItemStack inSlot = this.getStackInSlot(slot);
+        int max = Math.min(this.getSlotLimit(slot), stack.getMaxStackSize());
+        int transfer;
         if(inSlot.isEmpty() || inSlot.getCount() <= 0) {
+            transfer = Math.min(stack.getCount(), max);
+            if(transfer <= 0) {
+                return stack;
+            }
             if(!simulate) {
-                this.setItem(slot, stack.copy());
+                this.setItem(slot, ItemHandlerHelper.copyStackWithSize(stack, transfer));
+                this.onSlotChanged(slot);
+            }
+        } else if(ItemStack.isSameItemSameTags(inSlot, stack)) {
+            transfer = Math.min(stack.getCount(), max - inSlot.getCount());
+            if(transfer <= 0) {
+                return stack;
             }
-            return ItemStack.EMPTY;
-        } else if(ItemStack.matches(inSlot, stack) && ItemStack.tagMatches(inSlot, stack)) {
-            int max = stack.getItem().getItemStackLimit(stack);
-            int transfer = Math.min(stack.getCount(), max - inSlot.getCount());
             if(!simulate) {
                 inSlot.setCount(inSlot.getCount() + transfer);
                 this.setItem(slot, inSlot);
-            }
-            if(transfer >= stack.getCount()) {
-                return ItemStack.EMPTY;
-            } else {
-                stack.setCount(stack.getCount() - transfer);
-                return stack;
+                this.onSlotChanged(slot);
             }
         } else {
             return stack;
         }
+        return transfer >= stack.getCount() ? ItemStack.EMPTY : ItemHandlerHelper.copyStackWithSize(stack, stack.getCount() - transfer);
     }
 
     @Override
@@ -69,6 +80,7 @@ public interface IContainerItemHandler extends IContainerWrapped, IItemHandlerWr
             if(amount >= inSlot.getCount()) {
                 if(!simulate) {
                     this.setItem(slot, ItemStack.EMPTY);
+                    this.onSlotChanged(slot);
                 }
                 return stack;
             } else {
@@ -76,14 +88,130 @@ public interface IContainerItemHandler extends IContainerWrapped, IItemHandlerWr
                 if(!simulate) {
                     inSlot.setCount(inSlot.getCount() - amount);
                     this.setItem(slot, inSlot);
+                    this.onSlotChanged(slot);
                 }
                 return stack;
             }
         }
     }
 
+    /**
+     * Inserts a stack into the inventory, spread over as many slots as needed.
+     * Slots already containing the item are filled first, then empty slots.
+     *
+     * @param stack the stack to insert, will not be modified
+     * @param simulate if the insertion should only be simulated
+     * @return the remainder which could not be inserted
+     */
+    @Nonnull
+    default ItemStack insertAll(@Nonnull ItemStack stack, boolean simulate) {
+        if(stack.isEmpty() || stack.getCount() <= 0) {
+            return stack;
+        }
+        ItemStack remaining = stack.copy();
+        SlotIndex index = this.getSlotIndex();
+        if(index == null) {
+            // Stack onto existing stacks first
+            for(int slot = 0; slot < this.getSlots() && !remaining.isEmpty(); slot++) {
+                ItemStack inSlot = this.getStackInSlot(slot);
+                if(!inSlot.isEmpty() && inSlot.getItem() == remaining.getItem()) {
+                    remaining = this.insertItem(slot, remaining, simulate);
+                }
+            }
+            // Then fill empty slots
+            for(int slot = 0; slot < this.getSlots() && !remaining.isEmpty(); slot++) {
+                if(this.getStackInSlot(slot).isEmpty()) {
+                    remaining = this.insertItem(slot, remaining, simulate);
+                }
+            }
+        } else {
+            // Only visit the slots which can still accept the item, copy the sets as inserting updates the index
+            BitSet candidates = (BitSet) index.getNonFullSlots(remaining.getItem()).clone();
+            for(int slot = candidates.nextSetBit(0); slot >= 0 && !remaining.isEmpty(); slot = candidates.nextSetBit(slot + 1)) {
+                remaining = this.insertItem(slot, remaining, simulate);
+            }
+            candidates = (BitSet) index.getEmptySlots().clone();
+            for(int slot = candidates.nextSetBit(0); slot >= 0 && !remaining.isEmpty(); slot = candidates.nextSetBit(slot + 1)) {
+                remaining = this.insertItem(slot, remaining, simulate);
+            }
+        }
+        return remaining;
+    }
+
+    /**
+     * Extracts items from the inventory, collected from as many slots as needed.
+     * The first stack matching the filter determines which item (and nbt) is extracted.
+     *
+     * @param filter filter for the stacks to extract
+     * @param amount the maximum amount to extract, limited to the max stack size of the item
+     * @param simulate if the extraction should only be simulated
+     * @return the extracted stack
+     */
+    @Nonnull
+    default ItemStack extractMatching(@Nonnull Predicate<ItemStack> filter, int amount, boolean simulate) {
+        if(amount <= 0) {
+            return ItemStack.EMPTY;
+        }
+        SlotIndex index = this.getSlotIndex();
+        BitSet emptySlots = index == null ? null : (BitSet) index.getEmptySlots().clone();
+        ItemStack result = ItemStack.EMPTY;
+        for(int slot = 0; slot < this.getSlots(); slot++) {
+            if(emptySlots != null) {
+                // Skip straight to the next non-empty slot
+                slot = emptySlots.nextClearBit(slot);
+                if(slot >= this.getSlots()) {
+                    break;
+                }
+            }
+            ItemStack inSlot = this.getStackInSlot(slot);
+            if(inSlot.isEmpty()) {
+                continue;
+            }
+            if(result.isEmpty() ? !filter.test(inSlot) : !ItemStack.isSameItemSameTags(result, inSlot)) {
+                continue;
+            }
+            ItemStack extracted = this.extractItem(slot, amount - result.getCount(), simulate);
+            if(extracted.isEmpty()) {
+                continue;
+            }
+            if(result.isEmpty()) {
+                result = extracted;
+                amount = Math.min(amount, extracted.getMaxStackSize());
+            } else {
+                result.grow(extracted.getCount());
+            }
+            if(result.getCount() >= amount) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return an optional index of the slots to speed up bulk transfers, or null if this inventory is not indexed
+     */
+    @Nullable
+    default SlotIndex getSlotIndex() {
+        return null;
+    }
+
+    /**
+     * Must be called by indexed implementations whenever the contents of a slot change
+     * @param slot the slot which changed
+     */
+    default void onSlotChanged(int slot) {
+        SlotIndex index = this.getSlotIndex();
+        if(index != null) {
+            index.update(slot, this.getStackInSlot(slot), this.getSlotLimit(slot));
+        }
+    }
+
     @Override
     default boolean isEmpty() {
+        SlotIndex index = this.getSlotIndex();
+        if(index != null) {
+            return index.getEmptySlots().cardinality() >= this.getContainerSize();
+        }
         for(int i = 0; i < this.getContainerSize(); i++) {
             if(!this.getStackInSlot(i).isEmpty()) {
                 return false;
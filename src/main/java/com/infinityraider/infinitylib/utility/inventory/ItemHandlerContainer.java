@@ -5,6 +5,7 @@ import net.minecraft.world.entity.player.Player;
 import net.minecraft.world.item.ItemStack;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 /**
  * Simple class to wrap an IInventory as an IItemHandler while maintaining IInventory functionality
@@ -12,9 +13,18 @@ import javax.annotation.Nonnull;
 @SuppressWarnings("unused")
 public class ItemHandlerContainer implements IContainerItemHandler {
     private final Container inventory;
+    private final SlotIndex index;
 
     public ItemHandlerContainer(Container inventory) {
+        this(inventory, false);
+    }
+
+    public ItemHandlerContainer(Container inventory, boolean indexed) {
         this.inventory = inventory;
+        this.index = indexed ? new SlotIndex(inventory.getContainerSize()) : null;
+        if(this.index != null) {
+            this.index.rebuild(this);
+        }
     }
 
     public Container getInventory() {
@@ -45,18 +55,23 @@ public class ItemHandlerContainer implements IContainerItemHandler {
     @Override
     @Nonnull
     public ItemStack removeItem(int index, int count) {
-        return  this.getInventory().removeItem(index, count);
+        ItemStack stack = this.getInventory().removeItem(index, count);
+        this.onSlotChanged(index);
+        return stack;
     }
 
     @Override
     @Nonnull
     public ItemStack removeItemNoUpdate(int index) {
-        return  this.getInventory().removeItemNoUpdate(index);
+        ItemStack stack = this.getInventory().removeItemNoUpdate(index);
+        this.onSlotChanged(index);
+        return stack;
     }
 
     @Override
     public void setItem(int index, @Nonnull ItemStack stack) {
         this.getInventory().setItem(index, stack);
+        this.onSlotChanged(index);
     }
 
     @Override
@@ -92,5 +107,14 @@ public class ItemHandlerContainer implements IContainerItemHandler {
     @Override
     public void clearContent() {
         this.getInventory().clearContent();
+        if(this.index != null) {
+            this.index.rebuild(this);
+        }
+    }
+
+    @Override
+    @Nullable
+    public SlotIndex getSlotIndex() {
+        return this.index;
     }
 }
@@ -0,0 +1,123 @@
+package com.infinityraider.infinitylib.utility.inventory;
+
+import com.google.common.collect.Maps;
+import net.minecraft.world.item.Item;
+import net.minecraft.world.item.ItemStack;
+import net.minecraftforge.items.IItemHandler;
+
+import javax.annotation.Nullable;
+import java.util.BitSet;
+import java.util.Map;
+
+/**
+ * Index of the slots of an inventory, tracking which slots are empty, which slots can still accept more of an Item,
+ * and which slots have changed since they were last synced.
+ *
+ * The index does not observe the inventory by itself: the owner must call rebuild() after loading its contents,
+ * and update() whenever the contents of a slot change, IContainerItemHandler.onSlotChanged() does the latter.
+ */
+public class SlotIndex {
+    private final Item[] items;
+    private final BitSet empty;
+    private final Map<Item, BitSet> nonFull;
+    private final BitSet dirty;
+
+    public SlotIndex(int size) {
+        this.items = new Item[size];
+        this.empty = new BitSet(size);
+        this.empty.set(0, size);
+        this.nonFull = Maps.newIdentityHashMap();
+        this.dirty = new BitSet(size);
+    }
+
+    public int size() {
+        return this.items.length;
+    }
+
+    /**
+     * Rebuilds the whole index from the contents of an inventory, and marks all slots as dirty
+     * @param inventory the inventory
+     */
+    public void rebuild(IItemHandler inventory) {
+        this.nonFull.clear();
+        this.empty.set(0, this.size());
+        for(int slot = 0; slot < Math.min(this.size(), inventory.getSlots()); slot++) {
+            this.items[slot] = null;
+            this.update(slot, inventory.getStackInSlot(slot), inventory.getSlotLimit(slot));
+        }
+    }
+
+    /**
+     * Updates the index for a slot and marks it as dirty
+     * @param slot the slot
+     * @param stack the new contents of the slot
+     * @param slotLimit the slot limit
+     */
+    public void update(int slot, ItemStack stack, int slotLimit) {
+        if(slot < 0 || slot >= this.size()) {
+            return;
+        }
+        // Remove old entry
+        Item old = this.items[slot];
+        if(old != null) {
+            BitSet slots = this.nonFull.get(old);
+            if(slots != null) {
+                slots.clear(slot);
+            }
+        }
+        // Add new entry
+        if(stack.isEmpty() || stack.getCount() <= 0) {
+            this.items[slot] = null;
+            this.empty.set(slot);
+        } else {
+            this.items[slot] = stack.getItem();
+            this.empty.clear(slot);
+            if(stack.getCount() < Math.min(slotLimit, stack.getMaxStackSize())) {
+                this.nonFull.computeIfAbsent(stack.getItem(), item -> new BitSet(this.size())).set(slot);
+            }
+        }
+        this.dirty.set(slot);
+    }
+
+    /**
+     * @param slot the slot
+     * @return the item in the slot, or null if the slot is empty
+     */
+    @Nullable
+    public Item getItem(int slot) {
+        return slot < 0 || slot >= this.size() ? null : this.items[slot];
+    }
+
+    /**
+     * @return the empty slots, must not be modified
+     */
+    public BitSet getEmptySlots() {
+        return this.empty;
+    }
+
+    /**
+     * @param item the item
+     * @return the slots which contain the item, but are not full yet, must not be modified
+     */
+    public BitSet getNonFullSlots(Item item) {
+        BitSet slots = this.nonFull.get(item);
+        return slots == null ? EMPTY : slots;
+    }
+
+    /**
+     * @return the slots which changed since the dirty flags were last cleared, must not be modified
+     */
+    public BitSet getDirtySlots() {
+        return this.dirty;
+    }
+
+    public boolean isDirty() {
+        return !this.dirty.isEmpty();
+    }
+
+    public void clearDirty() {
+        this.dirty.clear();
+    }
+
+    private static final BitSet EMPTY = new BitSet(0);
+}
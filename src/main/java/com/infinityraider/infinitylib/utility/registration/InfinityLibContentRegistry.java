@@ -30,7 +30,7 @@ public class InfinityLibContentRegistry extends ModContentRegistry {
     }
 
     // ingredients
-    public final IInfIngredientSerializer<FallbackIngredient> fallbackIngredient = FallbackIngredient.SERIALIZER;
+    public final IInfIngredientSerializer<FallbackIngredient> fallbackIngredient;
 
     // recipes
     public final RegistryInitializer<IInfRecipeSerializer<ShapedDynamicTextureRecipe>> shapedDynamicTextureRecipe;
@@ -38,6 +38,7 @@ public class InfinityLibContentRegistry extends ModContentRegistry {
 
     private InfinityLibContentRegistry() {
         super();
+        this.fallbackIngredient = this.ingredient(() -> FallbackIngredient.SERIALIZER).get();
         this.shapedDynamicTextureRecipe = this.recipe(() -> ShapedDynamicTextureRecipe.SERIALIZER);
         this.shapelessDynamicTextureRecipe = this.recipe(() -> ShapelessDynamicTextureRecipe.SERIALIZER);
     }
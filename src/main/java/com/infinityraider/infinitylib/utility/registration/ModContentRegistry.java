@@ -1,10 +1,13 @@
 package com.infinityraider.infinitylib.utility.registration;
 
+import com.google.common.base.Suppliers;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import com.infinityraider.infinitylib.block.IInfinityBlock;
 import com.infinityraider.infinitylib.block.tile.InfinityTileEntityType;
 import com.infinityraider.infinitylib.container.IInfinityContainerMenuType;
+import com.infinityraider.infinitylib.crafting.IInfIngredientSerializer;
 import com.infinityraider.infinitylib.crafting.IInfRecipeSerializer;
 import com.infinityraider.infinitylib.enchantment.IInfinityEnchantment;
 import com.infinityraider.infinitylib.entity.IInfinityEntityType;
@@ -17,15 +20,18 @@ import com.infinityraider.infinitylib.sound.IInfinitySoundEvent;
 import net.minecraftforge.registries.IForgeRegistryEntry;
 
 import java.util.EnumMap;
+import java.util.List;
 import java.util.Set;
 import java.util.function.Supplier;
 import java.util.stream.Stream;
 
 public class ModContentRegistry {
     private final EnumMap<RegistryInitializer.Type, Set<RegistryInitializer<?>>> initializers;
+    private final List<Supplier<? extends IInfIngredientSerializer<?>>> ingredients;
 
     protected ModContentRegistry() {
         this.initializers = Maps.newEnumMap(RegistryInitializer.Type.class);
+        this.ingredients = Lists.newArrayList();
     }
 
     protected final <T extends IInfinityBlock> RegistryInitializer<T> block(Supplier<T> supplier) {
@@ -76,6 +82,16 @@ public class ModContentRegistry {
         return this.store(RegistryInitializer.loot(supplier));
     }
 
+    /**
+     * Declares an ingredient serializer, declared ingredient serializers are registered directly.
+     * If a registry declares none, its fields are scanned for ingredient serializers instead.
+     */
+    protected final <T extends IInfIngredientSerializer<?>> Supplier<T> ingredient(Supplier<T> supplier) {
+        Supplier<T> memoized = Suppliers.memoize(supplier::get);
+        this.ingredients.add(memoized);
+        return memoized;
+    }
+
     private <T extends IInfinityRegistrable<? extends IForgeRegistryEntry<?>>> RegistryInitializer<T> store(RegistryInitializer<T> initializer) {
         this.initializers.computeIfAbsent(initializer.getType(), (i) -> Sets.newIdentityHashSet()).add(initializer);
         return initializer;
@@ -84,4 +100,12 @@ public class ModContentRegistry {
     public Stream<RegistryInitializer<?>> stream(RegistryInitializer.Type type) {
         return this.initializers.containsKey(type) ? this.initializers.get(type).stream() : Stream.empty();
     }
+
+    public boolean hasIngredientSerializers() {
+        return !this.ingredients.isEmpty();
+    }
+
+    public Stream<IInfIngredientSerializer<?>> streamIngredientSerializers() {
+        return this.ingredients.stream().map(Supplier::get);
+    }
 }
@@ -173,8 +173,14 @@ public class RegistrationHandler {
             }
         });
         // Register ingredient serializers
-        if (mod.getModRecipeSerializerRegistry() != null) {
-            ReflectionHelper.forEachValueIn(mod.getModRecipeSerializerRegistry(), IInfIngredientSerializer.class, ser -> IngredientSerializerRegistrar.getInstance().registerSerializer(ser));
+        ModContentRegistry registry = mod.getModRecipeSerializerRegistry();
+        if (registry != null) {
+            if (registry.hasIngredientSerializers()) {
+                registry.streamIngredientSerializers().forEach(ser -> IngredientSerializerRegistrar.getInstance().registerSerializer(ser));
+            } else {
+                // Fallback for registries which store their ingredient serializers in fields without declaring them
+                ReflectionHelper.forEachValueIn(registry, IInfIngredientSerializer.class, ser -> IngredientSerializerRegistrar.getInstance().registerSerializer(ser));
+            }
         }
     }
 